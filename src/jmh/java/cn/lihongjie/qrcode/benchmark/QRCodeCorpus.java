@@ -0,0 +1,156 @@
+package cn.lihongjie.qrcode.benchmark;
+
+import boofcv.alg.fiducial.qrcode.QrCode;
+import boofcv.alg.fiducial.qrcode.QrCodeEncoder;
+import boofcv.alg.fiducial.qrcode.QrCodeGeneratorImage;
+import boofcv.struct.image.GrayU8;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的QR码图片生成器，不依赖任何外部文件
+ * 
+ * 图片规格字符串格式为 {@code 宽x高/QR码数量/旋转角度/噪声标准差/格式}，
+ * 例如 {@code 1920x1080/4/15/8/jpeg}。
+ */
+public final class QRCodeCorpus {
+    
+    private static final long SEED = 20240601L;
+    
+    private QRCodeCorpus() {
+    }
+    
+    /**
+     * 生成的图片
+     */
+    public static final class Sample {
+        public final String spec;
+        public final byte[] bytes;
+        public final BufferedImage image;
+        public final List<String> contents;
+        
+        Sample(String spec, byte[] bytes, BufferedImage image, List<String> contents) {
+            this.spec = spec;
+            this.bytes = bytes;
+            this.image = image;
+            this.contents = contents;
+        }
+    }
+    
+    /**
+     * 按规格字符串生成图片
+     */
+    public static Sample generate(String spec) {
+        String[] parts = spec.split("/");
+        if (parts.length != 5) {
+            throw new IllegalArgumentException("图片规格格式应为 宽x高/数量/角度/噪声/格式: " + spec);
+        }
+        String[] size = parts[0].split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+        int codes = Integer.parseInt(parts[1]);
+        double rotation = Math.toRadians(Double.parseDouble(parts[2]));
+        double noise = Double.parseDouble(parts[3]);
+        String format = parts[4];
+        
+        Random random = new Random(SEED ^ spec.hashCode());
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setColor(new Color(235, 232, 225));
+        g.fillRect(0, 0, width, height);
+        
+        // 按网格摆放QR码，每个QR码占据一个单元格的一半左右
+        int columns = (int) Math.ceil(Math.sqrt(codes * (double) width / height));
+        int rows = (int) Math.ceil(codes / (double) columns);
+        double cellWidth = width / (double) columns;
+        double cellHeight = height / (double) rows;
+        List<String> contents = new ArrayList<>(codes);
+        for (int i = 0; i < codes; i++) {
+            String content = "https://example.com/item/" + i + "/" + Long.toHexString(random.nextLong());
+            contents.add(content);
+            BufferedImage code = renderCode(content);
+            
+            double side = Math.min(cellWidth, cellHeight) * 0.5;
+            double scale = side / code.getWidth();
+            double centerX = (i % columns + 0.5) * cellWidth;
+            double centerY = (i / columns + 0.5) * cellHeight;
+            
+            AffineTransform transform = new AffineTransform();
+            transform.translate(centerX, centerY);
+            transform.rotate(rotation);
+            transform.scale(scale, scale);
+            transform.translate(-code.getWidth() / 2.0, -code.getHeight() / 2.0);
+            g.drawImage(code, transform, null);
+        }
+        g.dispose();
+        
+        if (noise > 0) {
+            addNoise(image, noise, random);
+        }
+        
+        return new Sample(spec, encode(image, format), image, contents);
+    }
+    
+    private static BufferedImage renderCode(String content) {
+        QrCode qr = new QrCodeEncoder().addAutomatic(content).fixate();
+        QrCodeGeneratorImage generator = new QrCodeGeneratorImage(4);
+        generator.render(qr);
+        GrayU8 gray = generator.getGray();
+        
+        // 四周保留白色静区
+        int margin = 16;
+        BufferedImage image = new BufferedImage(gray.width + margin * 2, gray.height + margin * 2, BufferedImage.TYPE_BYTE_GRAY);
+        WritableRaster raster = image.getRaster();
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                raster.setSample(x, y, 0, 255);
+            }
+        }
+        for (int y = 0; y < gray.height; y++) {
+            for (int x = 0; x < gray.width; x++) {
+                raster.setSample(x + margin, y + margin, 0, gray.get(x, y));
+            }
+        }
+        return image;
+    }
+    
+    private static void addNoise(BufferedImage image, double sigma, Random random) {
+        WritableRaster raster = image.getRaster();
+        int bands = raster.getNumBands();
+        int[] pixel = new int[bands];
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                raster.getPixel(x, y, pixel);
+                double delta = random.nextGaussian() * sigma;
+                for (int b = 0; b < bands; b++) {
+                    pixel[b] = Math.max(0, Math.min(255, (int) Math.round(pixel[b] + delta)));
+                }
+                raster.setPixel(x, y, pixel);
+            }
+        }
+    }
+    
+    private static byte[] encode(BufferedImage image, String format) {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            if (!ImageIO.write(image, format, out)) {
+                throw new IllegalArgumentException("不支持的图片格式: " + format);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
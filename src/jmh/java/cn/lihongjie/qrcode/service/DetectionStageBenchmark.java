@@ -0,0 +1,64 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.abst.fiducial.QrCodeDetector;
+import boofcv.factory.fiducial.FactoryFiducial;
+import boofcv.struct.image.GrayU8;
+import cn.lihongjie.qrcode.benchmark.QRCodeCorpus;
+import cn.lihongjie.qrcode.image.GrayImageDecoder;
+import cn.lihongjie.qrcode.model.QRCodeInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 检测阶段基准：detector.process 与 detectQRCodesFromGrayImage 中的结果转换分别计时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectionStageBenchmark {
+    
+    @Param({"1280x720/1/0/0/png", "1920x1080/4/15/8/jpeg", "4000x3000/1/30/4/jpeg", "4000x3000/16/0/8/jpeg"})
+    public String image;
+    
+    private QrCodeDetector<GrayU8> detector;
+    private QRCodeDetectionService service;
+    private final GrayU8 grayImage = new GrayU8(1, 1);
+    
+    @Setup
+    public void setup() throws IOException {
+        GrayImageDecoder.decode(ByteBuffer.wrap(QRCodeCorpus.generate(image).bytes), grayImage);
+        detector = FactoryFiducial.qrcode(null, GrayU8.class);
+        service = BenchmarkServices.detectionService(Map.of());
+        // 预先检测一次，供结果转换基准使用
+        detector.process(grayImage);
+    }
+    
+    @Benchmark
+    public int detectorProcess() {
+        detector.process(grayImage);
+        return detector.getDetections().size();
+    }
+    
+    @Benchmark
+    public List<QRCodeInfo> resultMapping() {
+        return service.toQRCodeInfos(detector.getDetections(), 0, 0, 1);
+    }
+}
@@ -0,0 +1,59 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.benchmark.QRCodeCorpus;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端基准：QRCodeDetectionService.detectQRCodes，包含解码、检测与结果转换
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+    
+    @Param({"1280x720/1/0/0/png", "1920x1080/4/15/8/jpeg", "4000x3000/1/30/4/jpeg", "4000x3000/16/0/8/jpeg"})
+    public String image;
+    
+    @Param({"full", "coarse"})
+    public String mode;
+    
+    private QRCodeDetectionService service;
+    private byte[] imageBytes;
+    private DetectionOptions options;
+    
+    @Setup
+    public void setup() {
+        QRCodeCorpus.Sample sample = QRCodeCorpus.generate(image);
+        imageBytes = sample.bytes;
+        service = BenchmarkServices.detectionService(Map.of());
+        options = new DetectionOptions();
+        options.setMode(DetectionMode.parse(mode));
+        
+        QRCodeResult result = service.detectQRCodes(imageBytes, options);
+        if (!result.isSuccess() || result.getCount() != sample.contents.size()) {
+            System.err.println("警告: " + image + " 期望 " + sample.contents.size() + " 个QR码, 实际检测到 " + result.getCount());
+        }
+    }
+    
+    @Benchmark
+    public QRCodeResult detect() {
+        return service.detectQRCodes(imageBytes, options);
+    }
+}
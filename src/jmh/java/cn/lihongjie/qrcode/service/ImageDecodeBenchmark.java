@@ -0,0 +1,59 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.io.image.ConvertBufferedImage;
+import boofcv.struct.image.GrayU8;
+import cn.lihongjie.qrcode.benchmark.QRCodeCorpus;
+import cn.lihongjie.qrcode.image.GrayImageDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片解码阶段基准：loadImageSimpleDirect 使用的直接灰度解码 与 ImageIO + ConvertBufferedImage 对比
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageDecodeBenchmark {
+    
+    @Param({"1280x720/1/0/0/png", "1920x1080/1/0/4/jpeg", "4000x3000/1/0/4/jpeg", "4000x3000/4/0/0/png"})
+    public String image;
+    
+    private ByteBuffer imageBuffer;
+    private byte[] imageBytes;
+    private final GrayU8 output = new GrayU8(1, 1);
+    
+    @Setup
+    public void setup() {
+        imageBytes = QRCodeCorpus.generate(image).bytes;
+        imageBuffer = ByteBuffer.wrap(imageBytes);
+    }
+    
+    @Benchmark
+    public GrayU8 directDecode() throws IOException {
+        GrayImageDecoder.decode(imageBuffer, output);
+        return output;
+    }
+    
+    @Benchmark
+    public GrayU8 imageIoDecode() throws IOException {
+        return ConvertBufferedImage.convertFrom(ImageIO.read(new ByteArrayInputStream(imageBytes)), (GrayU8) null);
+    }
+}
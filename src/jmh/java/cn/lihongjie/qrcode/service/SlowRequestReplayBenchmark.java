@@ -0,0 +1,75 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 慢请求重放基准：按采样时的检测选项重新检测 /admin/slow-requests/export 导出的图片
+ *
+ * ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="SlowRequestReplay -p archive=slow-requests.zip -p id=42"
+ *
+ * id 为空时每次操作依次重放所有保存了图片的样本。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlowRequestReplayBenchmark {
+
+    @Param({""})
+    public String archive;
+
+    @Param({""})
+    public String id;
+
+    private QRCodeDetectionService service;
+    private final List<byte[]> images = new ArrayList<>();
+    private final List<DetectionOptions> options = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        if (archive.isBlank()) {
+            throw new IllegalArgumentException("请通过 -p archive=<导出的ZIP文件> 指定慢请求样本");
+        }
+        service = BenchmarkServices.detectionService(Map.of());
+        for (SlowRequestSampler.Sample sample : SlowRequestArchive.read(Path.of(archive), new ObjectMapper())) {
+            if (sample.getImage() == null || (!id.isBlank() && sample.getMetadata().getId() != Long.parseLong(id))) {
+                continue;
+            }
+            images.add(sample.getImage());
+            options.add(SlowRequestSampler.options(sample.getMetadata()));
+        }
+        if (images.isEmpty()) {
+            throw new IllegalArgumentException("导出文件中没有可重放的样本" + (id.isBlank() ? "" : ": " + id));
+        }
+    }
+
+    @Benchmark
+    public void replay(Blackhole blackhole) {
+        for (int i = 0; i < images.size(); i++) {
+            QRCodeResult result = service.detectQRCodes(images.get(i), options.get(i));
+            blackhole.consume(result);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.benchmark.QRCodeCorpus;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单张大图的分块并行检测与单次全图检测对比
+ * 
+ * 单线程执行，衡量的是单个请求的延迟：full 只用一个核，tiled 将分块分发到检测线程池。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TiledDetectionBenchmark {
+    
+    @Param({"4000x3000/16/0/8/jpeg", "8000x6000/48/0/8/jpeg", "8000x6000/48/10/8/jpeg"})
+    public String image;
+    
+    @Param({"full", "tiled"})
+    public String mode;
+    
+    @Param({"1536"})
+    public int tileSize;
+    
+    private QRCodeDetectionService service;
+    private byte[] imageBytes;
+    private DetectionOptions options;
+    
+    @Setup
+    public void setup() {
+        QRCodeCorpus.Sample sample = QRCodeCorpus.generate(image);
+        imageBytes = sample.bytes;
+        service = BenchmarkServices.detectionService(Map.of(
+                "qrcode.tiled.tile-size", String.valueOf(tileSize),
+                "qrcode.pixel-budget.max-pixels", "0"));
+        options = new DetectionOptions();
+        options.setMode(DetectionMode.parse(mode));
+        
+        QRCodeResult result = service.detectQRCodes(imageBytes, options);
+        if (!result.isSuccess() || result.getCount() != sample.contents.size()) {
+            System.err.println("警告: " + image + " (" + mode + ") 期望 " + sample.contents.size() + " 个QR码, 实际检测到 " + result.getCount());
+        }
+    }
+    
+    @Benchmark
+    public QRCodeResult detect() {
+        return service.detectQRCodes(imageBytes, options);
+    }
+}
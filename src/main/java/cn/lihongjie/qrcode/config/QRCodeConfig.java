@@ -0,0 +1,502 @@
+package cn.lihongjie.qrcode.config;
+
+import boofcv.factory.filter.binary.ThresholdType;
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * QR码检测服务配置
+ *
+ * 对应 application.properties 中 qrcode.* 前缀的配置项。
+ */
+@ConfigMapping(prefix = "qrcode")
+public interface QRCodeConfig {
+
+    /**
+     * 检测器配置
+     */
+    Detector detector();
+
+    /**
+     * 批量检测配置
+     */
+    Batch batch();
+
+    /**
+     * 由粗到精检测模式配置
+     */
+    Coarse coarse();
+
+    /**
+     * 分块并行检测模式配置
+     */
+    Tiled tiled();
+
+    /**
+     * 图像缓冲区池配置
+     */
+    Arena arena();
+
+    /**
+     * 检测结果缓存配置
+     */
+    Cache cache();
+
+    /**
+     * 解码图像缓存配置
+     */
+    ImageCache imageCache();
+
+    /**
+     * 检测请求准入控制配置
+     */
+    Admission admission();
+
+    /**
+     * 图片像素预算配置
+     */
+    PixelBudget pixelBudget();
+
+    /**
+     * 执行线程配置
+     */
+    Execution execution();
+
+    /**
+     * 多帧图片检测配置
+     */
+    Frames frames();
+
+    /**
+     * WebSocket视频帧跟踪检测配置
+     */
+    Tracking tracking();
+
+    /**
+     * 指标快照配置
+     */
+    Metrics metrics();
+
+    /**
+     * 慢请求采样配置
+     */
+    SlowRequests slowRequests();
+
+    interface Detector {
+
+        /**
+         * 检测器池配置
+         */
+        Pool pool();
+
+        /**
+         * 命名的检测配置，每个配置使用独立的ConfigQrCode和检测器池，按请求参数 profile 选择；
+         * 名为 default 的配置覆盖默认检测器的参数
+         */
+        Map<String, Profile> profiles();
+    }
+
+    interface Profile {
+
+        /**
+         * 基础参数：default（BoofCV默认参数，召回率优先）或 fast（ConfigQrCode.fast()，速度优先）
+         */
+        @WithDefault("default")
+        Preset preset();
+
+        /**
+         * 二值化阈值算法，如 block-min-max、block-otsu、local-mean、global-otsu
+         */
+        Optional<ThresholdType> threshold();
+
+        /**
+         * 局部阈值的区域宽度（像素）
+         */
+        OptionalInt thresholdWidth();
+
+        /**
+         * 允许的最小QR码版本
+         */
+        OptionalInt versionMinimum();
+
+        /**
+         * 允许的最大QR码版本，限制版本可以减少候选区域的解码尝试
+         */
+        OptionalInt versionMaximum();
+
+        /**
+         * 是否尝试解码转置（镜像）的QR码
+         */
+        Optional<Boolean> considerTransposed();
+
+        /**
+         * 该配置的检测器池大小，0表示与默认检测器池相同
+         */
+        @WithDefault("0")
+        int poolSize();
+
+        enum Preset {
+            DEFAULT,
+            FAST
+        }
+    }
+
+    interface Pool {
+
+        /**
+         * 最大检测器实例数，0表示使用CPU核数
+         */
+        @WithDefault("0")
+        int maxSize();
+
+        /**
+         * 借用检测器的最长等待时间
+         */
+        @WithDefault("30s")
+        Duration borrowTimeout();
+    }
+
+    interface Batch {
+
+        /**
+         * 批量检测并行度，0表示使用CPU核数
+         */
+        @WithDefault("0")
+        int parallelism();
+
+        /**
+         * 单次批量请求最多包含的图片数
+         */
+        @WithDefault("200")
+        int maxItems();
+
+        /**
+         * zip压缩包中单个文件解压后的大小上限（字节），超过时该文件检测失败
+         */
+        @WithDefault("52428800")
+        int maxEntryBytes();
+
+        /**
+         * zip压缩包解压后的总大小上限（字节），超过后其余文件检测失败
+         */
+        @WithDefault("209715200")
+        long maxArchiveBytes();
+    }
+
+    interface Coarse {
+
+        /**
+         * 粗检测图像长边的目标像素数，原图长边不超过其2倍时直接全分辨率检测
+         */
+        @WithDefault("1024")
+        int targetSize();
+
+        /**
+         * 候选区域向四周扩展的比例（相对候选区域尺寸）
+         */
+        @WithDefault("0.5")
+        double roiMargin();
+    }
+
+    interface Tiled {
+
+        /**
+         * 分块边长（像素），图像长宽都不超过该值时不分块
+         */
+        @WithDefault("1536")
+        int tileSize();
+
+        /**
+         * 相邻分块的重叠宽度（像素），应大于图中最大QR码的边长，保证每个QR码完整落在至少一个分块内
+         */
+        @WithDefault("384")
+        int overlap();
+
+        /**
+         * 单个分块检测请求最多同时使用的检测线程数（包括请求自身所在的线程），0表示检测线程池大小
+         */
+        @WithDefault("0")
+        int parallelism();
+    }
+
+    interface Arena {
+
+        /**
+         * 池中最多保留的缓冲区数量，0表示CPU核数的2倍
+         */
+        @WithDefault("0")
+        int maxPooled();
+
+        /**
+         * 归还时单个图像数组允许保留的最大像素数，超过则释放
+         */
+        @WithDefault("16777216")
+        long maxRetainedPixels();
+    }
+
+    interface Cache {
+
+        /**
+         * 是否启用检测结果缓存
+         */
+        @WithDefault("false")
+        boolean enabled();
+
+        /**
+         * 图片内容哈希算法：xxhash64 或 sha256
+         */
+        @WithDefault("xxhash64")
+        String hash();
+
+        /**
+         * 缓存的序列化结果总字节数上限
+         */
+        @WithDefault("67108864")
+        long maxBytes();
+
+        /**
+         * 缓存结果写入后的存活时间
+         */
+        @WithDefault("10m")
+        Duration ttl();
+    }
+
+    interface ImageCache {
+
+        /**
+         * 是否启用解码图像缓存，启用后请求可以通过 retainImage=true 保留解码后的灰度图像并获得图片句柄
+         */
+        @WithDefault("false")
+        boolean enabled();
+
+        /**
+         * 图片句柄使用的内容哈希算法：sha256 或 xxhash64
+         */
+        @WithDefault("sha256")
+        String hash();
+
+        /**
+         * 缓存的灰度像素总字节数上限
+         */
+        @WithDefault("268435456")
+        long maxBytes();
+
+        /**
+         * 图像写入后的存活时间
+         */
+        @WithDefault("2m")
+        Duration ttl();
+    }
+
+    interface Admission {
+
+        /**
+         * 是否启用准入控制
+         */
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * 是否按请求耗时自适应调整并发上限（AIMD）
+         */
+        @WithDefault("true")
+        boolean adaptive();
+
+        /**
+         * 初始并发上限，0表示CPU核数
+         */
+        @WithDefault("0")
+        int initialLimit();
+
+        /**
+         * 并发上限的最小值
+         */
+        @WithDefault("1")
+        int minLimit();
+
+        /**
+         * 并发上限的最大值，0表示CPU核数的4倍
+         */
+        @WithDefault("0")
+        int maxLimit();
+
+        /**
+         * 等待队列长度，队列满时新请求立即被拒绝
+         */
+        @WithDefault("64")
+        int maxQueue();
+
+        /**
+         * 排队最长等待时间
+         */
+        @WithDefault("5s")
+        Duration queueTimeout();
+
+        /**
+         * 自适应调整的耗时阈值，单次检测超过该耗时时减小并发上限，同时也是减小的最小间隔
+         */
+        @WithDefault("2s")
+        Duration latencyThreshold();
+
+        /**
+         * 拒绝时 Retry-After 响应头建议的重试间隔
+         */
+        @WithDefault("1s")
+        Duration retryAfter();
+    }
+
+    interface PixelBudget {
+
+        /**
+         * 单张图片允许解码的最大像素数，0表示不限制
+         */
+        @WithDefault("40000000")
+        long maxPixels();
+
+        /**
+         * 超出像素预算时的处理策略
+         */
+        @WithDefault("downsample")
+        Policy policy();
+
+        enum Policy {
+            /**
+             * 拒绝请求，返回413
+             */
+            REJECT,
+            /**
+             * 解码时按整数倍抽样，使像素数不超过预算
+             */
+            DOWNSAMPLE
+        }
+    }
+
+    interface Execution {
+
+        /**
+         * 是否将CPU密集的检测阶段提交到专用平台线程池执行；关闭时在请求线程上执行
+         */
+        @WithDefault("true")
+        boolean detectionOffload();
+
+        /**
+         * 检测线程池大小，0表示CPU核数
+         */
+        @WithDefault("0")
+        int detectionThreads();
+    }
+
+    interface Frames {
+
+        /**
+         * 单次请求最多检测的帧数，超出的帧被忽略
+         */
+        @WithDefault("100")
+        int maxFrames();
+
+        /**
+         * 单次请求并行检测的帧数，0表示CPU核数
+         */
+        @WithDefault("0")
+        int parallelism();
+    }
+
+    interface Tracking {
+
+        /**
+         * 单帧允许的最大像素数，超过时该帧被拒绝
+         */
+        @WithDefault("8294400")
+        long maxFramePixels();
+
+        /**
+         * 帧差计算中单个像素灰度差超过该值时视为发生变化
+         */
+        @WithDefault("24")
+        int pixelDiffThreshold();
+
+        /**
+         * 与上一检测帧相比发生变化的采样像素比例低于该值时视为画面未变化，直接跳过检测
+         */
+        @WithDefault("0.002")
+        double minChangedRatio();
+
+        /**
+         * 帧差计算的采样步长（像素）
+         */
+        @WithDefault("4")
+        int diffSampleStep();
+
+        /**
+         * 跟踪区域向四周扩展的比例（相对上一帧QR码外接矩形尺寸）
+         */
+        @WithDefault("0.5")
+        double roiMargin();
+
+        /**
+         * 跟踪状态下每隔多少帧做一次全帧检测，以发现新出现的QR码
+         */
+        @WithDefault("15")
+        int fullScanInterval();
+
+        /**
+         * 同时打开的帧流连接上限，达到上限后新连接被关闭并提示稍后重试，0表示不限制
+         */
+        @WithDefault("16")
+        int maxSessions();
+    }
+
+    interface Metrics {
+
+        /**
+         * 指标快照的缓存时间，期间的查询和推送直接返回已序列化的快照
+         */
+        @WithDefault("1s")
+        Duration snapshotInterval();
+
+        /**
+         * 仪表板SSE推送（/metrics/stream）的间隔
+         */
+        @WithDefault("2s")
+        Duration streamInterval();
+    }
+
+    interface SlowRequests {
+
+        /**
+         * 是否采样慢请求
+         */
+        @WithDefault("false")
+        boolean enabled();
+
+        /**
+         * 检测总耗时超过该值的请求被采样
+         */
+        @WithDefault("1s")
+        Duration threshold();
+
+        /**
+         * 保留的样本数，超过后覆盖最早的样本
+         */
+        @WithDefault("32")
+        int capacity();
+
+        /**
+         * 是否保存图片原始数据；不保存或图片超过 max-image-bytes 时只记录哈希和尺寸。
+         * 图片是用户上传的数据，默认不保存，排查问题时再开启
+         */
+        @WithDefault("false")
+        boolean captureImages();
+
+        /**
+         * 单个样本保存的图片大小上限（字节）
+         */
+        @WithDefault("2097152")
+        int maxImageBytes();
+    }
+}
@@ -0,0 +1,88 @@
+package cn.lihongjie.qrcode.controller;
+
+import cn.lihongjie.qrcode.service.DetectionMode;
+import cn.lihongjie.qrcode.service.DetectionOptions;
+import cn.lihongjie.qrcode.service.DetectorProfiles;
+import org.jboss.resteasy.reactive.RestHeader;
+import org.jboss.resteasy.reactive.RestQuery;
+
+/**
+ * 检测接口的公共请求参数
+ */
+public class DetectionParams {
+    
+    /**
+     * 检测模式：full（默认）、coarse 或 tiled
+     */
+    @RestQuery
+    String mode;
+    
+    /**
+     * 检测器配置名称，对应 qrcode.detector.profiles.* 中定义的名称，缺省使用默认配置
+     */
+    @RestQuery
+    String profile;
+    
+    /**
+     * 最多返回的QR码数量，找到足够的QR码后提前结束
+     */
+    @RestQuery
+    Integer maxCodes;
+    
+    /**
+     * 只需要第一个QR码，等同于 maxCodes=1
+     */
+    @RestQuery
+    boolean firstOnly;
+    
+    /**
+     * 只返回以该前缀开头的QR码
+     */
+    @RestQuery
+    String prefix;
+    
+    /**
+     * 只返回完整匹配该正则表达式的QR码，表达式限制见 {@link DetectionOptions#compileContentPattern(String)}
+     */
+    @RestQuery
+    String match;
+    
+    /**
+     * 保留解码后的图像并返回图片句柄，后续请求可通过 /detect/image/{token} 复用
+     */
+    @RestQuery
+    boolean retainImage;
+    
+    /**
+     * 结果缓存控制，取值为 bypass 或 no-cache 时跳过缓存
+     */
+    @RestHeader("X-QRCode-Cache")
+    String cache;
+    
+    /**
+     * 转换为检测选项
+     * 
+     * @param profiles 已定义的检测器配置，用于校验 profile 参数
+     * @throws IllegalArgumentException 参数值无效
+     */
+    public DetectionOptions toOptions(DetectorProfiles profiles) {
+        DetectionOptions options = new DetectionOptions();
+        options.setMode(DetectionMode.parse(mode));
+        String resolved = profiles.resolve(profile);
+        options.setProfile(DetectorProfiles.DEFAULT.equals(resolved) ? null : resolved);
+        if (firstOnly) {
+            options.setMaxCodes(1);
+        } else if (maxCodes != null) {
+            options.setMaxCodes(maxCodes);
+        }
+        if (prefix != null && !prefix.isEmpty()) {
+            options.setContentPrefix(prefix);
+        }
+        if (match != null && !match.isEmpty()) {
+            options.setContentPattern(DetectionOptions.compileContentPattern(match));
+        }
+        options.setRetainImage(retainImage);
+        options.setCacheBypass("bypass".equalsIgnoreCase(cache) || "no-cache".equalsIgnoreCase(cache));
+        return options;
+    }
+}
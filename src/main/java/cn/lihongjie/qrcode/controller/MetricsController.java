@@ -1,19 +1,17 @@
 package cn.lihongjie.qrcode.controller;
 
-import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Meter;
-import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.Timer;
-import io.micrometer.core.instrument.Gauge;
+import cn.lihongjie.qrcode.service.MetricsSnapshotService;
+import cn.lihongjie.qrcode.service.QRCodeMetricsService;
 import io.quarkus.qute.Template;
 import io.quarkus.qute.TemplateInstance;
+import io.smallrye.mutiny.Multi;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Metrics控制器，提供指标查看接口
@@ -22,11 +20,14 @@ import java.util.concurrent.TimeUnit;
 public class MetricsController {
     
     @Inject
-    MeterRegistry meterRegistry;
+    MetricsSnapshotService snapshotService;
     
     @Inject
     Template metrics;
     
+    @Inject
+    QRCodeMetricsService metricsService;
+    
     /**
      * 获取所有metrics的JSON格式
      */
@@ -34,36 +35,7 @@ public class MetricsController {
     @Path("/json")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getMetricsJson() {
-        Map<String, Object> metricsData = new HashMap<>();
-        
-        // 计数器数据
-        Map<String, Double> counters = new HashMap<>();
-        // 计时器数据
-        Map<String, Map<String, Double>> timers = new HashMap<>();
-        // 仪表数据
-        Map<String, Double> gauges = new HashMap<>();
-        
-        for (Meter meter : meterRegistry.getMeters()) {
-            if (meter instanceof Counter counter) {
-                counters.put(meter.getId().getName(), counter.count());
-            } else if (meter instanceof Timer timer) {
-                Map<String, Double> timerData = new HashMap<>();
-                timerData.put("count", (double) timer.count());
-                timerData.put("totalTime", timer.totalTime(TimeUnit.MILLISECONDS));
-                timerData.put("mean", timer.mean(TimeUnit.MILLISECONDS));
-                timerData.put("max", timer.max(TimeUnit.MILLISECONDS));
-                timers.put(meter.getId().getName(), timerData);
-            } else if (meter instanceof Gauge gauge) {
-                gauges.put(meter.getId().getName(), gauge.value());
-            }
-        }
-        
-        metricsData.put("counters", counters);
-        metricsData.put("timers", timers);
-        metricsData.put("gauges", gauges);
-        metricsData.put("timestamp", System.currentTimeMillis());
-        
-        return Response.ok(metricsData).build();
+        return Response.ok(snapshotService.allJson(), MediaType.APPLICATION_JSON).build();
     }
     
     /**
@@ -83,39 +55,46 @@ public class MetricsController {
     @Path("/qrcode")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getQRCodeMetrics() {
-        Map<String, Object> qrMetrics = new HashMap<>();
-        
-        for (Meter meter : meterRegistry.getMeters()) {
-            String name = meter.getId().getName();
-            if (name.startsWith("qrcode.")) {
-                if (meter instanceof Counter counter) {
-                    qrMetrics.put(name, counter.count());
-                } else if (meter instanceof Timer timer) {
-                    Map<String, Object> timerData = new HashMap<>();
-                    timerData.put("count", timer.count());
-                    timerData.put("totalTime", timer.totalTime(TimeUnit.MILLISECONDS));
-                    timerData.put("mean", timer.mean(TimeUnit.MILLISECONDS));
-                    timerData.put("max", timer.max(TimeUnit.MILLISECONDS));
-                    qrMetrics.put(name, timerData);
-                } else if (meter instanceof Gauge gauge) {
-                    qrMetrics.put(name, gauge.value());
-                }
-            }
-        }
+        return Response.ok(snapshotService.qrcodeJson(), MediaType.APPLICATION_JSON).build();
+    }
+    
+    /**
+     * 仪表板推送（Server-Sent Events），每个事件包含QR码相关的metrics、滑动窗口统计和最近60秒的逐秒数据
+     */
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.TEXT_PLAIN)
+    public Multi<String> stream() {
+        return snapshotService.stream();
+    }
+    
+    /**
+     * 滑动窗口统计：最近10秒、1分钟、5分钟、1小时的请求速率、错误率和延迟分位数，以及最近60秒的逐秒数据
+     */
+    @GET
+    @Path("/windows")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getWindows() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("windows", metricsService.getRollingStats().windows());
+        result.put("series", metricsService.getRollingStats().series());
+        result.put("timestamp", System.currentTimeMillis());
         
-        return Response.ok(qrMetrics).build();
+        return Response.ok(result).build();
     }
     
     /**
-     * 重置所有计数器（仅用于测试）
+     * 重置滑动窗口统计
      */
     @POST
     @Path("/reset")
     @Produces(MediaType.APPLICATION_JSON)
     public Response resetMetrics() {
-        // 注意：Micrometer的Counter不支持重置，这里只是返回操作结果
+        // Micrometer的累计指标不支持重置，只清空滑动窗口统计
+        metricsService.getRollingStats().reset();
         Map<String, String> result = new HashMap<>();
-        result.put("message", "Metrics reset operation completed (note: counters cannot be reset in Micrometer)");
+        result.put("message", "Rolling window statistics reset (cumulative Micrometer metrics are not affected)");
         result.put("timestamp", new Date().toString());
         
         return Response.ok(result).build();
@@ -1,7 +1,24 @@
 package cn.lihongjie.qrcode.controller;
 
+import boofcv.struct.image.GrayU8;
+import cn.lihongjie.qrcode.image.RawLuminance;
+import cn.lihongjie.qrcode.model.QRCodeBatchItem;
+import cn.lihongjie.qrcode.model.QRCodeBatchResult;
 import cn.lihongjie.qrcode.model.QRCodeResult;
+import cn.lihongjie.qrcode.service.AdmissionRejectedException;
+import cn.lihongjie.qrcode.service.BatchImageSource;
+import cn.lihongjie.qrcode.service.DetectionOptions;
+import cn.lihongjie.qrcode.service.DetectorProfiles;
+import cn.lihongjie.qrcode.service.ImageHandleNotFoundException;
+import cn.lihongjie.qrcode.service.ImageTooLargeException;
+import cn.lihongjie.qrcode.service.QRCodeAsyncDetectionService;
+import cn.lihongjie.qrcode.service.QRCodeBatchService;
 import cn.lihongjie.qrcode.service.QRCodeDetectionService;
+import cn.lihongjie.qrcode.service.QRCodeStreamService;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -9,12 +26,25 @@ import jakarta.ws.rs.core.Response;
 import org.jboss.logging.Logger;
 import org.jboss.resteasy.reactive.multipart.FileUpload;
 import org.jboss.resteasy.reactive.RestForm;
+import org.jboss.resteasy.reactive.RestHeader;
+import org.jboss.resteasy.reactive.RestPath;
+import org.jboss.resteasy.reactive.RestQuery;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
+import java.awt.Rectangle;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * QR码检测REST API控制器
+ * 
+ * 单张图片的检测接口返回 Uni，读取上传数据和解码在虚拟线程上异步执行，客户端断开连接时取消检测；
+ * 批量接口运行在虚拟线程上。CPU密集的检测阶段由 {@link cn.lihongjie.qrcode.service.DetectionExecutor} 在固定大小的平台线程池中执行。
  */
 @Path("/api/qrcode")
 @Produces(MediaType.APPLICATION_JSON)
@@ -23,57 +53,458 @@ public class QRCodeController {
     
     private static final Logger LOG = Logger.getLogger(QRCodeController.class);
     
+    private static final String NDJSON = "application/x-ndjson";
+    
+    @Inject
+    QRCodeAsyncDetectionService qrCodeAsyncDetectionService;
+    
     @Inject
     QRCodeDetectionService qrCodeDetectionService;
     
+    @Inject
+    QRCodeBatchService qrCodeBatchService;
+    
+    @Inject
+    QRCodeStreamService qrCodeStreamService;
+    
+    @Inject
+    DetectorProfiles detectorProfiles;
+    
     /**
      * 上传图片并检测QR码
      * 
+     * 检测异步执行，客户端断开连接时取消检测
+     * 
      * @param file 上传的图片文件
+     * @param params 检测参数
      * @return QR码检测结果
      */
     @POST
     @Path("/detect")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
-    public Response detectQRCodes(@RestForm("file") FileUpload file) {
+    public Uni<Response> detectQRCodes(@RestForm("file") FileUpload file, @BeanParam DetectionParams params) {
         
         if (file == null || file.uploadedFile() == null) {
             QRCodeResult result = new QRCodeResult(false, "请上传图片文件");
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).entity(result).build());
+        }
+        
+        DetectionOptions options;
+        try {
+            options = params.toOptions(detectorProfiles);
+        } catch (IllegalArgumentException e) {
+            QRCodeResult result = new QRCodeResult(false, e.getMessage());
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).entity(result).build());
+        }
+        
+        // 验证文件类型
+        String contentType = file.contentType();
+        if (!isValidImageType(contentType)) {
+            QRCodeResult result = new QRCodeResult(false, "不支持的文件类型，请上传JPG、PNG、GIF、BMP、WEBP或TIFF图片");
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).entity(result).build());
+        }
+        
+        // 读取文件内容并检测QR码
+        return qrCodeAsyncDetectionService.detectQRCodes(file.uploadedFile(), options)
+                .map(this::toResponse)
+                .onFailure().recoverWithItem(this::toErrorResponse);
+    }
+    
+    /**
+     * 以请求体直接上传图片并检测QR码
+     * 
+     * 请求体由Vert.x接收到内存缓冲区后直接交给解码器读取，
+     * 不经过multipart临时文件，也不复制到新的字节数组。
+     * 检测异步执行，客户端断开连接时取消检测。
+     * 
+     * @param body 图片原始数据
+     * @param params 检测参数
+     * @return QR码检测结果
+     */
+    @POST
+    @Path("/detect")
+    @Consumes({MediaType.APPLICATION_OCTET_STREAM, "image/*"})
+    public Uni<Response> detectQRCodesRaw(Buffer body, @BeanParam DetectionParams params) {
+        
+        if (body == null || body.length() == 0) {
+            QRCodeResult result = new QRCodeResult(false, "请上传图片文件");
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).entity(result).build());
+        }
+        
+        DetectionOptions options;
+        try {
+            options = params.toOptions(detectorProfiles);
+        } catch (IllegalArgumentException e) {
+            QRCodeResult result = new QRCodeResult(false, e.getMessage());
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).entity(result).build());
+        }
+        
+        ByteBuffer imageBuffer = body.getByteBuf().nioBuffer();
+        
+        // 检测QR码
+        return qrCodeAsyncDetectionService.detectQRCodes(imageBuffer, options)
+                .map(this::toResponse)
+                .onFailure().recoverWithItem(this::toErrorResponse);
+    }
+    
+    /**
+     * 以请求体直接上传未压缩的亮度像素并检测QR码
+     * 
+     * 适用于上游已持有解码后摄像头帧的场景，省去客户端编码和服务端解码。
+     * 请求体缓冲区直接作为GrayU8的像素数组使用，不复制；NV21/YUV420只使用Y平面。
+     * 
+     * @param body 像素数据
+     * @param width 图像宽度
+     * @param height 图像高度
+     * @param stride 行跨度（字节），缺省等于宽度
+     * @param format 像素格式：gray8（默认）、nv21、yuv420
+     * @param params 检测参数
+     * @return QR码检测结果
+     */
+    @POST
+    @Path("/detect/gray")
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    public Uni<Response> detectQRCodesGray(Buffer body,
+                                           @RestHeader("X-Image-Width") Integer width,
+                                           @RestHeader("X-Image-Height") Integer height,
+                                           @RestHeader("X-Image-Stride") Integer stride,
+                                           @RestHeader("X-Pixel-Format") String format,
+                                           @BeanParam DetectionParams params) {
+        
+        if (body == null || body.length() == 0) {
+            QRCodeResult result = new QRCodeResult(false, "请上传像素数据");
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).entity(result).build());
+        }
+        if (width == null || height == null) {
+            QRCodeResult result = new QRCodeResult(false, "缺少请求头 X-Image-Width 或 X-Image-Height");
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).entity(result).build());
+        }
+        
+        DetectionOptions options;
+        GrayU8 image;
+        String pixelFormat;
+        try {
+            options = params.toOptions(detectorProfiles);
+            pixelFormat = RawLuminance.parseFormat(format);
+            image = RawLuminance.wrap(body.getByteBuf().nioBuffer(), width, height, stride != null ? stride : 0);
+        } catch (IllegalArgumentException e) {
+            QRCodeResult result = new QRCodeResult(false, e.getMessage());
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).entity(result).build());
+        }
+        
+        return qrCodeAsyncDetectionService.detectQRCodes(image, pixelFormat, options)
+                .map(this::toResponse)
+                .onFailure().recoverWithItem(this::toErrorResponse);
+    }
+    
+    /**
+     * 在之前保留的解码图像上再次检测，不重新上传图片
+     * 
+     * 首次请求带 retainImage=true 时返回图片句柄（imageToken），之后可以换用其他检测配置、
+     * 内容过滤条件，或只检测图片的一部分区域。句柄在缓存存活时间内有效，过期或被淘汰后返回404。
+     * 
+     * @param token 图片句柄
+     * @param roi 只检测的区域，格式为 x,y,宽,高（原图坐标），缺省检测整幅图像
+     * @param params 检测参数
+     * @return QR码检测结果，坐标为原图坐标
+     */
+    @POST
+    @Path("/detect/image/{token}")
+    @Consumes(MediaType.WILDCARD)
+    public Uni<Response> detectImageHandle(@RestPath String token, @RestQuery String roi, @BeanParam DetectionParams params) {
+        
+        DetectionOptions options;
+        Rectangle region;
+        try {
+            options = params.toOptions(detectorProfiles);
+            region = parseRoi(roi);
+        } catch (IllegalArgumentException e) {
+            QRCodeResult result = new QRCodeResult(false, e.getMessage());
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).entity(result).build());
+        }
+        
+        return qrCodeAsyncDetectionService.detectImageHandle(token, region, options)
+                .map(this::toResponse)
+                .onFailure().recoverWithItem(this::toErrorResponse);
+    }
+    
+    /**
+     * 提前释放保留的解码图像
+     * 
+     * @param token 图片句柄
+     * @return 204；句柄不存在时返回404
+     */
+    @DELETE
+    @Path("/detect/image/{token}")
+    public Response releaseImageHandle(@RestPath String token) {
+        if (qrCodeDetectionService.releaseImageHandle(token)) {
+            return Response.noContent().build();
+        }
+        QRCodeResult result = new QRCodeResult(false, new ImageHandleNotFoundException(token).getMessage());
+        return Response.status(Response.Status.NOT_FOUND).entity(result).build();
+    }
+    
+    /**
+     * 解析 x,y,宽,高 格式的检测区域
+     * 
+     * @return 检测区域，参数为空时返回null
+     * @throws IllegalArgumentException 格式错误或宽高不为正数
+     */
+    static Rectangle parseRoi(String roi) {
+        if (roi == null || roi.isBlank()) {
+            return null;
+        }
+        String[] parts = roi.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("无效的检测区域: " + roi + "，格式为 x,y,宽,高");
+        }
+        int[] values = new int[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                values[i] = Integer.parseInt(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的检测区域: " + roi + "，格式为 x,y,宽,高");
+        }
+        if (values[2] <= 0 || values[3] <= 0) {
+            throw new IllegalArgumentException("检测区域的宽高必须大于0: " + roi);
+        }
+        return new Rectangle(values[0], values[1], values[2], values[3]);
+    }
+    
+    /**
+     * 将检测结果转换为响应：成功返回200，失败返回500
+     */
+    private Response toResponse(QRCodeResult result) {
+        if (result.isSuccess()) {
+            LOG.info("成功检测到 " + result.getCount() + " 个QR码");
+            return Response.ok(result).build();
+        } else {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(result).build();
+        }
+    }
+    
+    /**
+     * 将异步检测的异常转换为响应
+     */
+    private Response toErrorResponse(Throwable e) {
+        if (e instanceof AdmissionRejectedException rejected) {
+            return serviceUnavailable(rejected);
+        }
+        if (e instanceof ImageTooLargeException) {
+            LOG.warn(e.getMessage());
+            QRCodeResult result = new QRCodeResult(false, e.getMessage());
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(result).build();
+        }
+        if (e instanceof ImageHandleNotFoundException) {
+            QRCodeResult result = new QRCodeResult(false, e.getMessage());
+            return Response.status(Response.Status.NOT_FOUND).entity(result).build();
+        }
+        if (e instanceof IllegalArgumentException) {
+            QRCodeResult result = new QRCodeResult(false, e.getMessage());
             return Response.status(Response.Status.BAD_REQUEST).entity(result).build();
         }
+        if (e instanceof UncheckedIOException) {
+            LOG.error("读取上传文件时出错", e);
+            QRCodeResult result = new QRCodeResult(false, "读取文件失败: " + e.getCause().getMessage());
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(result).build();
+        }
+        LOG.error("处理请求时出错", e);
+        QRCodeResult result = new QRCodeResult(false, "处理请求失败: " + e.getMessage());
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(result).build();
+    }
+    
+    /**
+     * 批量上传图片并检测QR码，多张图片并行处理
+     * 
+     * @param files 上传的图片文件列表（多个 file 字段）
+     * @param params 检测参数，应用于每张图片
+     * @return 每张图片的检测结果
+     */
+    @POST
+    @Path("/detect/batch")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @RunOnVirtualThread
+    public Response detectQRCodesBatch(@RestForm("file") List<FileUpload> files, @BeanParam DetectionParams params) {
         
+        if (files == null || files.isEmpty()) {
+            QRCodeBatchResult result = new QRCodeBatchResult(false, "请上传图片文件");
+            return Response.status(Response.Status.BAD_REQUEST).entity(result).build();
+        }
+        
+        DetectionOptions options;
         try {
-            // 验证文件类型
-            String contentType = file.contentType();
-            if (!isValidImageType(contentType)) {
-                QRCodeResult result = new QRCodeResult(false, "不支持的文件类型，请上传JPG、PNG或GIF图片");
+            options = params.toOptions(detectorProfiles);
+        } catch (IllegalArgumentException e) {
+            QRCodeBatchResult result = new QRCodeBatchResult(false, e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(result).build();
+        }
+        
+        if (files.size() > qrCodeBatchService.getMaxItems()) {
+            QRCodeBatchResult result = new QRCodeBatchResult(false, "单次最多检测 " + qrCodeBatchService.getMaxItems() + " 张图片");
+            return Response.status(Response.Status.BAD_REQUEST).entity(result).build();
+        }
+        
+        try {
+            QRCodeBatchResult result = qrCodeBatchService.detectBatch(toSources(files), options);
+            LOG.info("批量检测完成: " + result.getSucceeded() + "/" + result.getTotal() + " 张图片成功");
+            return Response.ok(result).build();
+        } catch (Exception e) {
+            LOG.error("处理批量请求时出错", e);
+            QRCodeBatchResult result = new QRCodeBatchResult(false, "处理请求失败: " + e.getMessage());
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(result).build();
+        }
+    }
+    
+    /**
+     * 上传zip压缩包并检测其中所有图片的QR码
+     * 
+     * @param zipStream zip压缩包数据
+     * @param params 检测参数，应用于每张图片
+     * @return 每张图片的检测结果
+     */
+    @POST
+    @Path("/detect/batch")
+    @Consumes({"application/zip", "application/x-zip-compressed"})
+    @RunOnVirtualThread
+    public Response detectQRCodesBatchZip(InputStream zipStream, @BeanParam DetectionParams params) {
+        
+        DetectionOptions options;
+        try {
+            options = params.toOptions(detectorProfiles);
+        } catch (IllegalArgumentException e) {
+            QRCodeBatchResult result = new QRCodeBatchResult(false, e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(result).build();
+        }
+        
+        try {
+            QRCodeBatchResult result = qrCodeBatchService.detectZip(zipStream, options);
+            if (!result.isSuccess()) {
                 return Response.status(Response.Status.BAD_REQUEST).entity(result).build();
             }
-            
-            // 读取文件内容
-            byte[] imageBytes = Files.readAllBytes(file.uploadedFile());
-            
-            // 检测QR码
-            QRCodeResult result = qrCodeDetectionService.detectQRCodes(imageBytes);
-            
-            if (result.isSuccess()) {
-                LOG.info("成功检测到 " + result.getCount() + " 个QR码");
-                return Response.ok(result).build();
-            } else {
-                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(result).build();
-            }
-            
+            LOG.info("批量检测完成: " + result.getSucceeded() + "/" + result.getTotal() + " 张图片成功");
+            return Response.ok(result).build();
         } catch (IOException e) {
-            LOG.error("读取上传文件时出错", e);
-            QRCodeResult result = new QRCodeResult(false, "读取文件失败: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(result).build();
+            LOG.error("读取压缩包时出错", e);
+            QRCodeBatchResult result = new QRCodeBatchResult(false, "读取压缩包失败: " + e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(result).build();
         } catch (Exception e) {
-            LOG.error("处理请求时出错", e);
-            QRCodeResult result = new QRCodeResult(false, "处理请求失败: " + e.getMessage());
+            LOG.error("处理批量请求时出错", e);
+            QRCodeBatchResult result = new QRCodeBatchResult(false, "处理请求失败: " + e.getMessage());
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(result).build();
         }
     }
     
+    /**
+     * 上传多张图片或多帧图片（TIFF多页、GIF动画）并流式返回检测结果
+     * 
+     * 每张图片（多帧图片的每一帧）检测完成后立即输出一行JSON（application/x-ndjson），
+     * 输出顺序为完成顺序，通过 index / frameIndex 对应到输入。
+     * 
+     * @param files 上传的图片文件列表（多个 file 字段）
+     * @param params 检测参数，应用于每张图片
+     * @param split 输出粒度：image（默认）每张图片/每一帧一行；code 每个QR码一行
+     * @return 检测结果流
+     */
+    @POST
+    @Path("/detect/stream")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<QRCodeBatchItem> detectQRCodesStream(@RestForm("file") List<FileUpload> files, @BeanParam DetectionParams params,
+                                                      @RestQuery String split) {
+        
+        if (files == null || files.isEmpty()) {
+            throw badRequest("请上传图片文件");
+        }
+        
+        return qrCodeStreamService.detectStream(toSources(files), toStreamOptions(params), isSplitByCode(split));
+    }
+    
+    /**
+     * 以请求体直接上传多帧图片（TIFF多页、GIF动画）并流式返回每一帧的检测结果
+     * 
+     * @param body 图片原始数据
+     * @param params 检测参数，应用于每一帧
+     * @param split 输出粒度：image（默认）每一帧一行；code 每个QR码一行
+     * @return 检测结果流
+     */
+    @POST
+    @Path("/detect/stream")
+    @Consumes({"image/tiff", "image/gif", MediaType.APPLICATION_OCTET_STREAM})
+    @Produces(NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<QRCodeBatchItem> detectQRCodesStreamRaw(Buffer body, @BeanParam DetectionParams params, @RestQuery String split) {
+        
+        if (body == null || body.length() == 0) {
+            throw badRequest("请上传图片文件");
+        }
+        
+        byte[] bytes = body.getBytes();
+        BatchImageSource source = new BatchImageSource() {
+            @Override
+            public String getName() {
+                return null;
+            }
+            
+            @Override
+            public byte[] read() {
+                return bytes;
+            }
+        };
+        return qrCodeStreamService.detectStream(List.of(source), toStreamOptions(params), isSplitByCode(split));
+    }
+    
+    private DetectionOptions toStreamOptions(DetectionParams params) {
+        try {
+            return params.toOptions(detectorProfiles);
+        } catch (IllegalArgumentException e) {
+            throw badRequest(e.getMessage());
+        }
+    }
+    
+    private static boolean isSplitByCode(String split) {
+        if (split == null || split.isBlank() || "image".equalsIgnoreCase(split)) {
+            return false;
+        }
+        if ("code".equalsIgnoreCase(split)) {
+            return true;
+        }
+        throw badRequest("不支持的输出粒度: " + split + "，可选值: image, code");
+    }
+    
+    /**
+     * 流式接口在开始输出前发现参数错误时，以异常形式返回400
+     */
+    private static WebApplicationException badRequest(String message) {
+        QRCodeResult result = new QRCodeResult(false, message);
+        return new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(result)
+                .build());
+    }
+    
+    /**
+     * 上传文件在工作线程中读取，读取失败只影响对应的图片
+     */
+    private static List<BatchImageSource> toSources(List<FileUpload> files) {
+        List<BatchImageSource> sources = new ArrayList<>(files.size());
+        for (FileUpload file : files) {
+            sources.add(new BatchImageSource() {
+                @Override
+                public String getName() {
+                    return file.fileName();
+                }
+                
+                @Override
+                public byte[] read() throws IOException {
+                    return Files.readAllBytes(file.uploadedFile());
+                }
+            });
+        }
+        return sources;
+    }
+    
     /**
      * 健康检查接口
      * 
@@ -85,6 +516,21 @@ public class QRCodeController {
         return Response.ok("{\"status\":\"OK\",\"service\":\"QR Code Detection Service\"}").build();
     }
     
+    /**
+     * 请求被准入控制拒绝时返回 503，并通过 Retry-After 提示客户端稍后重试
+     * 
+     * @param e 准入拒绝异常
+     * @return 503响应
+     */
+    private Response serviceUnavailable(AdmissionRejectedException e) {
+        LOG.warn("检测请求被拒绝: " + e.getMessage());
+        QRCodeResult result = new QRCodeResult(false, e.getMessage());
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", e.getRetryAfterSeconds())
+                .entity(result)
+                .build();
+    }
+    
     /**
      * 验证是否为有效的图片类型
      * 
@@ -101,6 +547,7 @@ public class QRCodeController {
                contentType.equals("image/png") ||
                contentType.equals("image/gif") ||
                contentType.equals("image/bmp") ||
-               contentType.equals("image/webp");
+               contentType.equals("image/webp") ||
+               contentType.equals("image/tiff");
     }
 }
@@ -0,0 +1,86 @@
+package cn.lihongjie.qrcode.controller;
+
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import cn.lihongjie.qrcode.service.FrameTracker;
+import cn.lihongjie.qrcode.service.QRCodeTrackingService;
+import io.quarkus.websockets.next.CloseReason;
+import io.quarkus.websockets.next.OnBinaryMessage;
+import io.quarkus.websockets.next.OnClose;
+import io.quarkus.websockets.next.OnOpen;
+import io.quarkus.websockets.next.WebSocket;
+import io.quarkus.websockets.next.WebSocketConnection;
+import io.vertx.core.buffer.Buffer;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 视频帧流QR码检测WebSocket端点
+ *
+ * 客户端以二进制消息连续发送摄像头帧（原始灰度帧或JPEG/PNG图片，格式见 {@link FrameTracker}），
+ * 服务端为每个连接维护一个跟踪器，只在解码出的内容集合变化时推送一条JSON格式的检测结果；
+ * 无法处理的帧推送 success=false 的结果，连接保持打开。
+ * 连接数达到 qrcode.tracking.max-sessions 时，新连接以 1013（Try Again Later）关闭。
+ */
+@WebSocket(path = "/api/qrcode/ws")
+public class QRCodeFrameSocket {
+
+    private static final Logger LOG = Logger.getLogger(QRCodeFrameSocket.class);
+
+    /**
+     * WebSocket关闭状态码：服务端暂时过载，客户端稍后重试
+     */
+    private static final int TRY_AGAIN_LATER = 1013;
+
+    @Inject
+    QRCodeTrackingService trackingService;
+
+    private final Map<String, FrameTracker> trackers = new ConcurrentHashMap<>();
+
+    @OnOpen
+    public void onOpen(WebSocketConnection connection) {
+        FrameTracker tracker = trackingService.open();
+        if (tracker == null) {
+            LOG.warn("帧流连接数已达到上限, 拒绝连接: " + connection.id());
+            connection.closeAndAwait(new CloseReason(TRY_AGAIN_LATER, "帧流连接数已满，请稍后重试"));
+            return;
+        }
+        trackers.put(connection.id(), tracker);
+        LOG.debug("帧流连接已建立: " + connection.id());
+    }
+
+    @OnBinaryMessage
+    public void onFrame(Buffer frame, WebSocketConnection connection) {
+        FrameTracker tracker = trackers.get(connection.id());
+        if (tracker == null) {
+            return;
+        }
+        QRCodeResult result;
+        try {
+            result = tracker.process(frame.getByteBuf().nioBuffer());
+        } catch (IllegalArgumentException e) {
+            result = new QRCodeResult(false, e.getMessage());
+        } catch (IOException e) {
+            LOG.debug("帧数据损坏: " + e.getMessage());
+            result = new QRCodeResult(false, "无法读取帧: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (result != null) {
+            connection.sendTextAndAwait(result);
+        }
+    }
+
+    @OnClose
+    public void onClose(WebSocketConnection connection) {
+        FrameTracker tracker = trackers.remove(connection.id());
+        if (tracker != null) {
+            LOG.debug("帧流连接已关闭: " + connection.id() + ", 共接收 " + tracker.getFrameNumber() + " 帧");
+            tracker.close();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package cn.lihongjie.qrcode.controller;
+
+import cn.lihongjie.qrcode.model.ProcessingTime;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import cn.lihongjie.qrcode.service.DetectionStage;
+import cn.lihongjie.qrcode.service.QRCodeMetricsService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.IOException;
+
+/**
+ * 记录检测结果序列化为JSON的耗时
+ * 
+ * 序列化发生在响应写出时，此时响应体已经生成，因此只记录到 serialize 阶段的指标中，不出现在响应的 stages 字段里。
+ */
+@Provider
+public class SerializationTimingInterceptor implements WriterInterceptor {
+    
+    @Inject
+    QRCodeMetricsService metricsService;
+    
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        if (!(context.getEntity() instanceof QRCodeResult result)) {
+            context.proceed();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            context.proceed();
+        } finally {
+            ProcessingTime processingTime = result.getProcessingTime();
+            int width = processingTime != null ? processingTime.getImageWidth() : 0;
+            int height = processingTime != null ? processingTime.getImageHeight() : 0;
+            metricsService.recordStage(DetectionStage.SERIALIZE, System.nanoTime() - start, width, height);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package cn.lihongjie.qrcode.controller;
+
+import cn.lihongjie.qrcode.model.SlowRequestSample;
+import cn.lihongjie.qrcode.service.SlowRequestArchive;
+import cn.lihongjie.qrcode.service.SlowRequestSampler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.vertx.http.ManagementInterface;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.logging.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 慢请求样本管理接口
+ *
+ * 查看和下载 SlowRequestSampler 采样的慢请求，导出的ZIP文件可用 SlowRequestReplayTest 或 SlowRequestReplayBenchmark 离线重放。
+ * 样本中包含用户上传的图片，接口只注册在管理端口（quarkus.management.*）上，不暴露在对外提供检测服务的HTTP端口。
+ */
+@ApplicationScoped
+public class SlowRequestController {
+
+    private static final Logger LOG = Logger.getLogger(SlowRequestController.class);
+
+    static final String PATH = "/admin/slow-requests";
+
+    @Inject
+    SlowRequestSampler sampler;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    void registerRoutes(@Observes ManagementInterface management) {
+        Router router = management.router();
+        router.get(PATH).handler(this::list);
+        // 固定路径先于 /{id} 注册
+        router.get(PATH + "/export").blockingHandler(this::export);
+        router.get(PATH + "/:id").handler(this::get);
+        router.get(PATH + "/:id/image").handler(this::image);
+        router.delete(PATH).handler(this::clear);
+        LOG.info("慢请求样本管理接口已注册在管理端口: " + PATH);
+    }
+
+    /**
+     * 当前保留的慢请求样本，最新的在前
+     */
+    void list(RoutingContext context) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", sampler.isEnabled());
+        result.put("samples", sampler.list());
+        json(context, Response.Status.OK, result);
+    }
+
+    /**
+     * 单个样本的元数据
+     */
+    void get(RoutingContext context) {
+        SlowRequestSampler.Sample sample = sample(context);
+        if (sample == null) {
+            notFound(context, "慢请求样本不存在或已被覆盖: " + context.pathParam("id"));
+            return;
+        }
+        json(context, Response.Status.OK, sample.getMetadata());
+    }
+
+    /**
+     * 下载样本的图片原始数据
+     */
+    void image(RoutingContext context) {
+        SlowRequestSampler.Sample sample = sample(context);
+        if (sample == null) {
+            notFound(context, "慢请求样本不存在或已被覆盖: " + context.pathParam("id"));
+            return;
+        }
+        if (sample.getImage() == null) {
+            notFound(context, "慢请求样本没有保存图片: " + context.pathParam("id"));
+            return;
+        }
+        SlowRequestSample metadata = sample.getMetadata();
+        String extension = metadata.getImageFormat() != null ? metadata.getImageFormat() : "bin";
+        context.response()
+                .putHeader("Content-Type", MediaType.APPLICATION_OCTET_STREAM)
+                .putHeader("Content-Disposition", "attachment; filename=\"slow-request-" + metadata.getId() + "." + extension + "\"")
+                .end(Buffer.buffer(sample.getImage()));
+    }
+
+    /**
+     * 导出所有样本（元数据和图片）为ZIP文件，格式见 SlowRequestArchive
+     */
+    void export(RoutingContext context) {
+        List<SlowRequestSampler.Sample> samples = sampler.snapshot();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            SlowRequestArchive.write(samples, objectMapper, out);
+        } catch (IOException e) {
+            LOG.error("导出慢请求样本失败", e);
+            context.fail(e);
+            return;
+        }
+        context.response()
+                .putHeader("Content-Type", "application/zip")
+                .putHeader("Content-Disposition", "attachment; filename=\"slow-requests.zip\"")
+                .end(Buffer.buffer(out.toByteArray()));
+    }
+
+    /**
+     * 清空所有样本
+     */
+    void clear(RoutingContext context) {
+        sampler.clear();
+        Map<String, String> result = new HashMap<>();
+        result.put("message", "慢请求样本已清空");
+        json(context, Response.Status.OK, result);
+    }
+
+    private SlowRequestSampler.Sample sample(RoutingContext context) {
+        try {
+            return sampler.get(Long.parseLong(context.pathParam("id")));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void notFound(RoutingContext context, String message) {
+        Map<String, String> result = new HashMap<>();
+        result.put("message", message);
+        json(context, Response.Status.NOT_FOUND, result);
+    }
+
+    private void json(RoutingContext context, Response.Status status, Object body) {
+        try {
+            context.response()
+                    .setStatusCode(status.getStatusCode())
+                    .putHeader("Content-Type", MediaType.APPLICATION_JSON)
+                    .end(Buffer.buffer(objectMapper.writeValueAsBytes(body)));
+        } catch (IOException e) {
+            context.fail(e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package cn.lihongjie.qrcode.image;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * 直接基于 ByteBuffer 的 ImageInputStream
+ * 
+ * ImageIO.read(InputStream) 默认会把输入流缓存到磁盘临时文件（或在关闭缓存时复制到内存），
+ * 而图片数据本来就完整地在内存中。这里直接按位置读取 ByteBuffer，不做任何复制。
+ */
+public class ByteBufferImageInputStream extends ImageInputStreamImpl {
+    
+    private final ByteBuffer buffer;
+    
+    /**
+     * @param source 图片数据，读取范围为 position 到 limit，不会修改 source 的位置
+     */
+    public ByteBufferImageInputStream(ByteBuffer source) {
+        this.buffer = source.slice();
+    }
+    
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= buffer.limit()) {
+            return -1;
+        }
+        return buffer.get((int) streamPos++) & 0xFF;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        bitOffset = 0;
+        long remaining = buffer.limit() - streamPos;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int count = (int) Math.min(len, remaining);
+        buffer.get((int) streamPos, b, off, count);
+        streamPos += count;
+        return count;
+    }
+    
+    @Override
+    public long length() {
+        return buffer.limit();
+    }
+    
+    @Override
+    public boolean isCached() {
+        return true;
+    }
+    
+    @Override
+    public boolean isCachedMemory() {
+        return true;
+    }
+}
@@ -0,0 +1,142 @@
+package cn.lihongjie.qrcode.image;
+
+import boofcv.io.image.ConvertBufferedImage;
+import boofcv.struct.image.GrayU8;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * 灰度图像解码器
+ * 
+ * JPEG直接取Y通道，PNG按扫描行流式解码为亮度，结果直接写入调用方提供的GrayU8；
+ * 其他格式（以及上述格式中不支持直接解码的变体）回退到ImageIO + ConvertBufferedImage。
+ * 
+ * 所有解码路径都支持按整数倍抽样（每隔 subsampling 个像素取一个），
+ * 抽样在解码过程中完成，不会先分配全尺寸图像。
+ */
+public final class GrayImageDecoder {
+    
+    public static final String FORMAT_JPEG = "jpeg";
+    public static final String FORMAT_PNG = "png";
+    
+    private GrayImageDecoder() {
+    }
+    
+    /**
+     * 只读取图片头获取尺寸，不解码像素数据
+     * 
+     * @param data 图片数据，读取范围为 position 到 limit，不会修改其位置
+     * @return 图片尺寸，无法识别的图片返回null
+     * @throws IOException 图片头损坏
+     */
+    public static ImageDimensions probe(ByteBuffer data) throws IOException {
+        if (PngLuminanceDecoder.isPng(data)) {
+            ImageDimensions dimensions = PngLuminanceDecoder.probe(data);
+            if (dimensions != null) {
+                return dimensions;
+            }
+        }
+        ImageInputStream inputStream = new ByteBufferImageInputStream(data);
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(inputStream, true, true);
+                return new ImageDimensions(reader.getWidth(0), reader.getHeight(0),
+                        reader.getFormatName().toLowerCase(Locale.ROOT));
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+    
+    /**
+     * 将图片解码为灰度图像
+     * 
+     * @param data 图片数据，读取范围为 position 到 limit，不会修改其位置
+     * @param output 输出图像，会被reshape为图片尺寸
+     * @return 实际使用的图片格式名称（小写），无法识别的图片返回null
+     * @throws IOException 图片数据损坏
+     */
+    public static String decode(ByteBuffer data, GrayU8 output) throws IOException {
+        return decode(data, output, 1);
+    }
+    
+    /**
+     * 将图片按抽样倍数解码为灰度图像
+     * 
+     * @param data 图片数据，读取范围为 position 到 limit，不会修改其位置
+     * @param output 输出图像，会被reshape为 ceil(宽/subsampling) x ceil(高/subsampling)
+     * @param subsampling 抽样倍数，1表示全尺寸解码；输出像素 (x, y) 对应原图像素 (x * subsampling, y * subsampling)
+     * @return 实际使用的图片格式名称（小写），无法识别的图片返回null
+     * @throws IOException 图片数据损坏
+     */
+    public static String decode(ByteBuffer data, GrayU8 output, int subsampling) throws IOException {
+        if (subsampling < 1) {
+            throw new IllegalArgumentException("抽样倍数必须大于0: " + subsampling);
+        }
+        if (PngLuminanceDecoder.isPng(data)) {
+            if (PngLuminanceDecoder.decode(data, output, subsampling)) {
+                return FORMAT_PNG;
+            }
+        } else if (isJpeg(data)) {
+            if (JpegLuminanceDecoder.decode(data, output, subsampling)) {
+                return FORMAT_JPEG;
+            }
+        }
+        return decodeWithImageIO(data, output, subsampling);
+    }
+    
+    /**
+     * 通过ImageIO解码为BufferedImage后再转换为灰度图像
+     */
+    static String decodeWithImageIO(ByteBuffer data, GrayU8 output, int subsampling) throws IOException {
+        ImageInputStream inputStream = new ByteBufferImageInputStream(data);
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(inputStream, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage bufferedImage = reader.read(0, param);
+                try {
+                    ConvertBufferedImage.convertFrom(bufferedImage, output);
+                } finally {
+                    bufferedImage.flush();
+                }
+                return reader.getFormatName().toLowerCase(Locale.ROOT);
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+    
+    private static boolean isJpeg(ByteBuffer data) {
+        int position = data.position();
+        return data.remaining() >= 3
+                && data.get(position) == (byte) 0xFF
+                && data.get(position + 1) == (byte) 0xD8
+                && data.get(position + 2) == (byte) 0xFF;
+    }
+}
@@ -0,0 +1,57 @@
+package cn.lihongjie.qrcode.image;
+
+import boofcv.struct.image.GrayU8;
+
+import java.util.Arrays;
+
+/**
+ * 灰度图像缩放工具
+ */
+public final class GrayImageScaler {
+    
+    private GrayImageScaler() {
+    }
+    
+    /**
+     * 按整数倍缩小图像，每个输出像素为对应 factor×factor 区域的均值，
+     * 右侧和底部不足一个区域的部分按实际像素数求均值
+     * 
+     * @param input 输入图像，支持子图像
+     * @param factor 缩小倍数，必须大于等于1
+     * @param output 输出图像，会被reshape为缩小后的尺寸
+     */
+    public static void downsample(GrayU8 input, int factor, GrayU8 output) {
+        if (factor < 1) {
+            throw new IllegalArgumentException("缩小倍数必须大于等于1: " + factor);
+        }
+        int outWidth = (input.width + factor - 1) / factor;
+        int outHeight = (input.height + factor - 1) / factor;
+        output.reshape(outWidth, outHeight);
+        
+        int[] sums = new int[outWidth];
+        for (int oy = 0; oy < outHeight; oy++) {
+            int y0 = oy * factor;
+            int y1 = Math.min(y0 + factor, input.height);
+            Arrays.fill(sums, 0);
+            
+            for (int y = y0; y < y1; y++) {
+                int index = input.startIndex + y * input.stride;
+                for (int ox = 0; ox < outWidth; ox++) {
+                    int x1 = Math.min((ox + 1) * factor, input.width);
+                    int sum = 0;
+                    for (int x = ox * factor; x < x1; x++) {
+                        sum += input.data[index + x] & 0xFF;
+                    }
+                    sums[ox] += sum;
+                }
+            }
+            
+            int rows = y1 - y0;
+            int dst = output.startIndex + oy * output.stride;
+            for (int ox = 0; ox < outWidth; ox++) {
+                int columns = Math.min((ox + 1) * factor, input.width) - ox * factor;
+                output.data[dst + ox] = (byte) (sums[ox] / (rows * columns));
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package cn.lihongjie.qrcode.image;
+
+/**
+ * 从图片头读取的尺寸信息，不解码像素数据
+ */
+public final class ImageDimensions {
+    
+    private final int width;
+    private final int height;
+    private final String format;
+    
+    public ImageDimensions(int width, int height, String format) {
+        this.width = width;
+        this.height = height;
+        this.format = format;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * 图片格式名称（小写）
+     */
+    public String getFormat() {
+        return format;
+    }
+    
+    public long getPixels() {
+        return (long) width * height;
+    }
+}
@@ -0,0 +1,140 @@
+package cn.lihongjie.qrcode.image;
+
+import boofcv.io.image.ConvertBufferedImage;
+import boofcv.struct.image.GrayU8;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * 多帧图片（TIFF多页、GIF动画）逐帧读取器
+ * 
+ * 每次只解码一帧并直接转换为灰度图像，帧图像转换后立即释放，
+ * 内存占用与帧数无关。实例不是线程安全的。
+ */
+public final class ImageFrameReader implements Closeable {
+    
+    public static final String FORMAT_TIFF = "tiff";
+    public static final String FORMAT_GIF = "gif";
+    
+    private final ImageInputStream inputStream;
+    private final ImageReader reader;
+    private final String format;
+    
+    private ImageFrameReader(ImageInputStream inputStream, ImageReader reader, String format) {
+        this.inputStream = inputStream;
+        this.reader = reader;
+        this.format = format;
+    }
+    
+    /**
+     * 打开图片
+     * 
+     * @param data 图片数据，读取范围为 position 到 limit，不会修改其位置；读取器关闭前不能修改
+     * @return 读取器，无法识别的图片返回null
+     * @throws IOException 图片数据损坏
+     */
+    public static ImageFrameReader open(ByteBuffer data) throws IOException {
+        ImageInputStream inputStream = new ByteBufferImageInputStream(data);
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+        if (!readers.hasNext()) {
+            inputStream.close();
+            return null;
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(inputStream, false, true);
+        String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+        return new ImageFrameReader(inputStream, reader, "tif".equals(format) ? FORMAT_TIFF : format);
+    }
+    
+    /**
+     * 根据文件签名判断是否为可能包含多帧的格式（TIFF、GIF）
+     */
+    public static boolean isMultiFrame(ByteBuffer data) {
+        if (data.remaining() < 4) {
+            return false;
+        }
+        int p = data.position();
+        byte b0 = data.get(p), b1 = data.get(p + 1), b2 = data.get(p + 2), b3 = data.get(p + 3);
+        boolean gif = b0 == 'G' && b1 == 'I' && b2 == 'F' && b3 == '8';
+        boolean tiffLittleEndian = b0 == 'I' && b1 == 'I' && b2 == 42 && b3 == 0;
+        boolean tiffBigEndian = b0 == 'M' && b1 == 'M' && b2 == 0 && b3 == 42;
+        return gif || tiffLittleEndian || tiffBigEndian;
+    }
+    
+    /**
+     * 判断格式是否可能包含多帧
+     */
+    public static boolean isMultiFrameFormat(String format) {
+        return FORMAT_TIFF.equals(format) || FORMAT_GIF.equals(format);
+    }
+    
+    /**
+     * 图片格式名称（小写）
+     */
+    public String getFormat() {
+        return format;
+    }
+    
+    /**
+     * 图片包含的帧数
+     * 
+     * @throws IOException 图片数据损坏
+     */
+    public int getFrameCount() throws IOException {
+        return reader.getNumImages(true);
+    }
+    
+    /**
+     * 读取指定帧的尺寸，不解码像素数据
+     * 
+     * @param index 帧序号，从0开始
+     * @return 帧尺寸，超出帧数时返回null
+     * @throws IOException 图片数据损坏
+     */
+    public ImageDimensions frameDimensions(int index) throws IOException {
+        try {
+            return new ImageDimensions(reader.getWidth(index), reader.getHeight(index), format);
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 将指定帧解码为灰度图像
+     * 
+     * @param index 帧序号，从0开始
+     * @param output 输出图像，会被reshape为帧尺寸
+     * @param subsampling 抽样倍数，1表示全尺寸解码
+     * @throws IOException 图片数据损坏
+     */
+    public void readFrame(int index, GrayU8 output, int subsampling) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        if (subsampling > 1) {
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        }
+        BufferedImage frame = reader.read(index, param);
+        try {
+            ConvertBufferedImage.convertFrom(frame, output);
+        } finally {
+            frame.flush();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.dispose();
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package cn.lihongjie.qrcode.image;
+
+import boofcv.struct.image.GrayU8;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * JPEG亮度通道解码器
+ * 
+ * 通过 ImageReader.readRaster 读取未经颜色转换的原始数据（JFIF为YCbCr），
+ * 只取Y通道写入GrayU8，不创建RGB的BufferedImage。
+ * RGB/CMYK编码的JPEG返回false，由调用方回退到ImageIO。
+ */
+final class JpegLuminanceDecoder {
+    
+    private static final String NATIVE_FORMAT = "javax_imageio_jpeg_image_1.0";
+    
+    private JpegLuminanceDecoder() {
+    }
+    
+    /**
+     * @param subsampling 抽样倍数，由JPEG解码器在逐行解码时完成
+     * @return 是否成功解码；false表示该JPEG的颜色编码不适用于直接取Y通道
+     */
+    static boolean decode(ByteBuffer data, GrayU8 output, int subsampling) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("jpeg");
+        if (!readers.hasNext()) {
+            return false;
+        }
+        ImageReader reader = readers.next();
+        ImageInputStream inputStream = new ByteBufferImageInputStream(data);
+        try {
+            reader.setInput(inputStream, true, false);
+            if (!hasLuminanceChannel(reader.getImageMetadata(0))) {
+                return false;
+            }
+            
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (subsampling > 1) {
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            }
+            Raster raster = reader.readRaster(0, param);
+            if (raster.getNumBands() != 1 && raster.getNumBands() != 3) {
+                return false;
+            }
+            LuminanceRasters.copyBand(raster, 0, output);
+            return true;
+        } finally {
+            reader.dispose();
+            inputStream.close();
+        }
+    }
+    
+    /**
+     * 判断JPEG的第一个通道是否为亮度：灰度图，或YCbCr编码的三通道图
+     */
+    private static boolean hasLuminanceChannel(IIOMetadata metadata) {
+        if (metadata == null || !NATIVE_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+            return false;
+        }
+        Node markerSequence = findChild(metadata.getAsTree(NATIVE_FORMAT), "markerSequence");
+        if (markerSequence == null) {
+            return false;
+        }
+        
+        Node sof = findChild(markerSequence, "sof");
+        if (sof == null || !"8".equals(attribute(sof, "samplePrecision"))) {
+            return false;
+        }
+        String components = attribute(sof, "numFrameComponents");
+        if ("1".equals(components)) {
+            return true;
+        }
+        if (!"3".equals(components)) {
+            return false;
+        }
+        
+        // Adobe标记明确给出颜色变换：1为YCbCr，0为RGB
+        Node adobe = findChild(markerSequence, "app14Adobe");
+        if (adobe != null) {
+            return "1".equals(attribute(adobe, "transform"));
+        }
+        
+        // 没有Adobe标记时，组件ID为'R','G','B'表示RGB编码，否则按JFIF视为YCbCr
+        StringBuilder ids = new StringBuilder();
+        for (Node spec = sof.getFirstChild(); spec != null; spec = spec.getNextSibling()) {
+            String id = attribute(spec, "componentId");
+            if (id != null) {
+                ids.append((char) Integer.parseInt(id));
+            }
+        }
+        return !"RGB".contentEquals(ids);
+    }
+    
+    private static Node findChild(Node parent, String name) {
+        if (parent == null) {
+            return null;
+        }
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (name.equals(child.getNodeName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+    
+    private static String attribute(Node node, String name) {
+        NamedNodeMap attributes = node.getAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Node attribute = attributes.getNamedItem(name);
+        return attribute != null ? attribute.getNodeValue() : null;
+    }
+}
@@ -0,0 +1,61 @@
+package cn.lihongjie.qrcode.image;
+
+import boofcv.struct.image.GrayU8;
+
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+
+/**
+ * Raster 到 GrayU8 的单通道复制工具
+ */
+final class LuminanceRasters {
+    
+    private LuminanceRasters() {
+    }
+    
+    /**
+     * 将 raster 的指定通道复制到 output，output 会被 reshape 为 raster 的尺寸
+     */
+    static void copyBand(Raster raster, int band, GrayU8 output) {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        output.reshape(width, height);
+        
+        if (raster.getDataBuffer() instanceof DataBufferByte dataBuffer
+                && raster.getSampleModel() instanceof ComponentSampleModel sampleModel) {
+            // 快速路径：直接按行从底层字节数组复制
+            int bank = sampleModel.getBankIndices()[band];
+            byte[] data = dataBuffer.getData(bank);
+            int pixelStride = sampleModel.getPixelStride();
+            int scanlineStride = sampleModel.getScanlineStride();
+            int x0 = raster.getMinX() - raster.getSampleModelTranslateX();
+            int y0 = raster.getMinY() - raster.getSampleModelTranslateY();
+            int base = dataBuffer.getOffsets()[bank] + sampleModel.getBandOffsets()[band]
+                    + y0 * scanlineStride + x0 * pixelStride;
+            
+            for (int y = 0; y < height; y++) {
+                int src = base + y * scanlineStride;
+                int dst = output.startIndex + y * output.stride;
+                if (pixelStride == 1) {
+                    System.arraycopy(data, src, output.data, dst, width);
+                } else {
+                    for (int x = 0; x < width; x++, src += pixelStride) {
+                        output.data[dst + x] = data[src];
+                    }
+                }
+            }
+            return;
+        }
+        
+        // 通用路径：逐行读取样本
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            raster.getSamples(raster.getMinX(), raster.getMinY() + y, width, 1, band, row);
+            int dst = output.startIndex + y * output.stride;
+            for (int x = 0; x < width; x++) {
+                output.data[dst + x] = (byte) row[x];
+            }
+        }
+    }
+}
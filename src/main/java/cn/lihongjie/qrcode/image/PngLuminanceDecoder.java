@@ -0,0 +1,380 @@
+package cn.lihongjie.qrcode.image;
+
+import boofcv.struct.image.GrayU8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * PNG亮度流式解码器
+ * 
+ * 逐个IDAT块直接送入Inflater，按扫描行解压、反滤波后立即转换为亮度写入GrayU8，
+ * 只保留当前行和上一行两个行缓冲区，不创建完整的RGB(A)图像。
+ * 抽样解码时每一行仍需解压和反滤波（后一行依赖前一行），但只有被抽中的行和列会写入输出。
+ * 隔行扫描(Adam7)的PNG返回false，由调用方回退到ImageIO。
+ */
+final class PngLuminanceDecoder {
+    
+    static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504C5445;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+    
+    private static final int COLOR_GRAY = 0;
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_PALETTE = 3;
+    private static final int COLOR_GRAY_ALPHA = 4;
+    private static final int COLOR_RGBA = 6;
+    
+    private PngLuminanceDecoder() {
+    }
+    
+    /**
+     * 判断数据是否以PNG文件签名开头
+     */
+    static boolean isPng(ByteBuffer data) {
+        if (data.remaining() < SIGNATURE.length) {
+            return false;
+        }
+        for (int i = 0; i < SIGNATURE.length; i++) {
+            if (data.get(data.position() + i) != SIGNATURE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 从紧跟签名的IHDR数据块读取图片尺寸
+     * 
+     * @return 图片尺寸，第一个数据块不是IHDR时返回null
+     * @throws IOException 尺寸无效
+     */
+    static ImageDimensions probe(ByteBuffer data) throws IOException {
+        ByteBuffer buffer = data.slice().order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < SIGNATURE.length + 16 || buffer.getInt(SIGNATURE.length + 4) != IHDR) {
+            return null;
+        }
+        int width = buffer.getInt(SIGNATURE.length + 8);
+        int height = buffer.getInt(SIGNATURE.length + 12);
+        if (width <= 0 || height <= 0) {
+            throw new IOException("PNG图像尺寸无效: " + width + "x" + height);
+        }
+        return new ImageDimensions(width, height, GrayImageDecoder.FORMAT_PNG);
+    }
+    
+    /**
+     * @param subsampling 抽样倍数，1表示全尺寸解码
+     * @return 是否成功解码；false表示该PNG的编码方式不支持流式解码
+     * @throws IOException PNG数据损坏
+     */
+    static boolean decode(ByteBuffer data, GrayU8 output, int subsampling) throws IOException {
+        ByteBuffer buffer = data.slice().order(ByteOrder.BIG_ENDIAN);
+        if (!isPng(buffer)) {
+            return false;
+        }
+        buffer.position(SIGNATURE.length);
+        
+        Header header = null;
+        byte[] paletteLuma = null;
+        RowDecoder rows = null;
+        Inflater inflater = new Inflater();
+        try {
+            while (buffer.remaining() >= 12) {
+                int length = buffer.getInt();
+                int type = buffer.getInt();
+                if (length < 0 || length > buffer.remaining() - 4) {
+                    throw new IOException("PNG数据块长度无效");
+                }
+                ByteBuffer chunk = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length + 4);
+                
+                if (type == IHDR) {
+                    header = Header.parse(chunk);
+                    if (header == null) {
+                        return false;
+                    }
+                } else if (type == PLTE) {
+                    paletteLuma = paletteLuma(chunk);
+                } else if (type == IDAT) {
+                    if (header == null) {
+                        throw new IOException("PNG缺少IHDR数据块");
+                    }
+                    if (rows == null) {
+                        if (header.colorType == COLOR_PALETTE && paletteLuma == null) {
+                            throw new IOException("PNG缺少PLTE数据块");
+                        }
+                        output.reshape(ceilDiv(header.width, subsampling), ceilDiv(header.height, subsampling));
+                        rows = new RowDecoder(header, paletteLuma, output, subsampling);
+                    }
+                    inflater.setInput(chunk);
+                    rows.inflate(inflater);
+                } else if (type == IEND) {
+                    break;
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        
+        if (rows == null || !rows.isComplete()) {
+            throw new IOException("PNG图像数据不完整");
+        }
+        return true;
+    }
+    
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+    
+    private static byte[] paletteLuma(ByteBuffer chunk) {
+        int entries = chunk.remaining() / 3;
+        byte[] luma = new byte[256];
+        for (int i = 0; i < entries; i++) {
+            int r = chunk.get(i * 3) & 0xFF;
+            int g = chunk.get(i * 3 + 1) & 0xFF;
+            int b = chunk.get(i * 3 + 2) & 0xFF;
+            luma[i] = (byte) luminance(r, g, b);
+        }
+        return luma;
+    }
+    
+    /**
+     * ITU-R BT.601 亮度，与JPEG的Y通道一致
+     */
+    static int luminance(int r, int g, int b) {
+        return (77 * r + 150 * g + 29 * b + 128) >> 8;
+    }
+    
+    /**
+     * IHDR头信息
+     */
+    static final class Header {
+        final int width;
+        final int height;
+        final int bitDepth;
+        final int colorType;
+        final int bitsPerPixel;
+        
+        private Header(int width, int height, int bitDepth, int colorType, int bitsPerPixel) {
+            this.width = width;
+            this.height = height;
+            this.bitDepth = bitDepth;
+            this.colorType = colorType;
+            this.bitsPerPixel = bitsPerPixel;
+        }
+        
+        /**
+         * @return 头信息，不支持的编码方式返回null
+         */
+        static Header parse(ByteBuffer chunk) throws IOException {
+            if (chunk.remaining() < 13) {
+                throw new IOException("PNG IHDR数据块长度无效");
+            }
+            int width = chunk.getInt(0);
+            int height = chunk.getInt(4);
+            int bitDepth = chunk.get(8) & 0xFF;
+            int colorType = chunk.get(9) & 0xFF;
+            int interlace = chunk.get(12) & 0xFF;
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+                throw new IOException("PNG图像尺寸无效: " + width + "x" + height);
+            }
+            if (interlace != 0) {
+                return null;
+            }
+            
+            int channels;
+            switch (colorType) {
+                case COLOR_GRAY, COLOR_PALETTE -> channels = 1;
+                case COLOR_RGB -> channels = 3;
+                case COLOR_GRAY_ALPHA -> channels = 2;
+                case COLOR_RGBA -> channels = 4;
+                default -> {
+                    return null;
+                }
+            }
+            boolean validDepth = switch (colorType) {
+                case COLOR_GRAY -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16;
+                case COLOR_PALETTE -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8;
+                default -> bitDepth == 8 || bitDepth == 16;
+            };
+            if (!validDepth) {
+                return null;
+            }
+            return new Header(width, height, bitDepth, colorType, channels * bitDepth);
+        }
+    }
+    
+    /**
+     * 扫描行解码：解压、反滤波并转换为亮度
+     */
+    private static final class RowDecoder {
+        private final Header header;
+        private final byte[] paletteLuma;
+        private final GrayU8 output;
+        private final int subsampling;
+        private final int rowBytes;
+        private final int filterDistance;
+        private byte[] current;
+        private byte[] previous;
+        private int filled;
+        private int y;
+        
+        RowDecoder(Header header, byte[] paletteLuma, GrayU8 output, int subsampling) {
+            this.header = header;
+            this.paletteLuma = paletteLuma;
+            this.output = output;
+            this.subsampling = subsampling;
+            this.rowBytes = (int) (((long) header.width * header.bitsPerPixel + 7) / 8);
+            this.filterDistance = Math.max(1, header.bitsPerPixel / 8);
+            // 第0个字节为滤波类型
+            this.current = new byte[rowBytes + 1];
+            this.previous = new byte[rowBytes + 1];
+        }
+        
+        void inflate(Inflater inflater) throws IOException {
+            try {
+                while (y < header.height) {
+                    int n = inflater.inflate(current, filled, current.length - filled);
+                    if (n == 0) {
+                        if (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    filled += n;
+                    if (filled == current.length) {
+                        unfilter();
+                        writeRow();
+                        byte[] swap = previous;
+                        previous = current;
+                        current = swap;
+                        filled = 0;
+                        y++;
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("PNG压缩数据损坏", e);
+            }
+        }
+        
+        boolean isComplete() {
+            return y == header.height;
+        }
+        
+        private void unfilter() throws IOException {
+            byte[] cur = current;
+            byte[] prev = previous;
+            int bpp = filterDistance;
+            switch (cur[0]) {
+                case 0 -> {
+                }
+                case 1 -> {
+                    for (int i = 1 + bpp; i <= rowBytes; i++) {
+                        cur[i] += cur[i - bpp];
+                    }
+                }
+                case 2 -> {
+                    for (int i = 1; i <= rowBytes; i++) {
+                        cur[i] += prev[i];
+                    }
+                }
+                case 3 -> {
+                    for (int i = 1; i <= rowBytes; i++) {
+                        int left = i > bpp ? cur[i - bpp] & 0xFF : 0;
+                        cur[i] += (byte) ((left + (prev[i] & 0xFF)) >>> 1);
+                    }
+                }
+                case 4 -> {
+                    for (int i = 1; i <= rowBytes; i++) {
+                        int a = i > bpp ? cur[i - bpp] & 0xFF : 0;
+                        int b = prev[i] & 0xFF;
+                        int c = i > bpp ? prev[i - bpp] & 0xFF : 0;
+                        cur[i] += (byte) paeth(a, b, c);
+                    }
+                }
+                default -> throw new IOException("PNG滤波类型无效: " + cur[0]);
+            }
+        }
+        
+        private static int paeth(int a, int b, int c) {
+            int p = a + b - c;
+            int pa = Math.abs(p - a);
+            int pb = Math.abs(p - b);
+            int pc = Math.abs(p - c);
+            if (pa <= pb && pa <= pc) {
+                return a;
+            }
+            return pb <= pc ? b : c;
+        }
+        
+        private void writeRow() {
+            if (y % subsampling != 0) {
+                return;
+            }
+            byte[] row = current;
+            byte[] dst = output.data;
+            int index = output.startIndex + (y / subsampling) * output.stride;
+            // 输出宽度，第x个输出像素对应原图第 x * subsampling 列
+            int width = output.width;
+            int bytesPerSample = header.bitDepth / 8;
+            
+            switch (header.colorType) {
+                case COLOR_GRAY -> {
+                    if (header.bitDepth < 8) {
+                        unpack(row, dst, index, width, null);
+                    } else {
+                        int step = bytesPerSample * subsampling;
+                        for (int x = 0, i = 1; x < width; x++, i += step) {
+                            dst[index + x] = row[i];
+                        }
+                    }
+                }
+                case COLOR_PALETTE -> {
+                    if (header.bitDepth < 8) {
+                        unpack(row, dst, index, width, paletteLuma);
+                    } else {
+                        for (int x = 0, i = 1; x < width; x++, i += subsampling) {
+                            dst[index + x] = paletteLuma[row[i] & 0xFF];
+                        }
+                    }
+                }
+                case COLOR_GRAY_ALPHA -> {
+                    int step = 2 * bytesPerSample * subsampling;
+                    for (int x = 0, i = 1; x < width; x++, i += step) {
+                        dst[index + x] = row[i];
+                    }
+                }
+                default -> {
+                    // RGB / RGBA，16位样本只取高字节
+                    int step = (header.colorType == COLOR_RGB ? 3 : 4) * bytesPerSample * subsampling;
+                    for (int x = 0, i = 1; x < width; x++, i += step) {
+                        int r = row[i] & 0xFF;
+                        int g = row[i + bytesPerSample] & 0xFF;
+                        int b = row[i + 2 * bytesPerSample] & 0xFF;
+                        dst[index + x] = (byte) luminance(r, g, b);
+                    }
+                }
+            }
+        }
+        
+        /**
+         * 解包1/2/4位样本；灰度图按位深扩展到0-255，调色板图查表
+         */
+        private void unpack(byte[] row, byte[] dst, int index, int width, byte[] palette) {
+            int bitDepth = header.bitDepth;
+            int mask = (1 << bitDepth) - 1;
+            int scale = 255 / mask;
+            for (int x = 0; x < width; x++) {
+                int bit = x * subsampling * bitDepth;
+                int value = ((row[1 + (bit >> 3)] & 0xFF) >> (8 - bitDepth - (bit & 7))) & mask;
+                dst[index + x] = palette != null ? palette[value] : (byte) (value * scale);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package cn.lihongjie.qrcode.image;
+
+import boofcv.struct.image.GrayU8;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * 未压缩的亮度像素数据
+ *
+ * 支持8位灰度（gray8）以及 NV21、YUV420（I420/NV12）等Y平面在前的YUV格式。
+ * YUV格式只使用Y平面，色度平面既不读取也不校验长度。
+ */
+public final class RawLuminance {
+
+    public static final String FORMAT_GRAY8 = "gray8";
+    public static final String FORMAT_NV21 = "nv21";
+    public static final String FORMAT_YUV420 = "yuv420";
+
+    private RawLuminance() {
+    }
+
+    /**
+     * 规范化像素格式名称
+     *
+     * @param format 格式名称，null表示gray8
+     * @return 小写格式名称
+     * @throws IllegalArgumentException 不支持的格式
+     */
+    public static String parseFormat(String format) {
+        if (format == null || format.isBlank()) {
+            return FORMAT_GRAY8;
+        }
+        String normalized = format.trim().toLowerCase(Locale.ROOT);
+        return switch (normalized) {
+            case FORMAT_GRAY8, "gray", "y8" -> FORMAT_GRAY8;
+            case FORMAT_NV21 -> FORMAT_NV21;
+            case FORMAT_YUV420, "i420", "nv12" -> FORMAT_YUV420;
+            default -> throw new IllegalArgumentException("不支持的像素格式: " + format);
+        };
+    }
+
+    /**
+     * 将像素数据包装为GrayU8
+     *
+     * 缓冲区有可访问的底层数组时，GrayU8直接引用该数组（通过 startIndex 和 stride 定位），不复制像素；
+     * 否则复制Y平面到新数组。返回的图像是子图像，不能被reshape。
+     *
+     * @param data 像素数据，从 position 开始，不会修改其位置
+     * @param width 宽度
+     * @param height 高度
+     * @param stride 行跨度（字节），小于等于0时等于宽度
+     * @return 引用像素数据的灰度图像
+     * @throws IllegalArgumentException 尺寸无效或数据长度不足
+     */
+    public static GrayU8 wrap(ByteBuffer data, int width, int height, int stride) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("图像尺寸无效: " + width + "x" + height);
+        }
+        if (stride <= 0) {
+            stride = width;
+        }
+        if (stride < width) {
+            throw new IllegalArgumentException("行跨度 " + stride + " 小于宽度 " + width);
+        }
+        long required = (long) stride * (height - 1) + width;
+        if (data.remaining() < required) {
+            throw new IllegalArgumentException("像素数据长度不足: 需要 " + required + " 字节, 实际 " + data.remaining() + " 字节");
+        }
+
+        GrayU8 image = new GrayU8();
+        image.width = width;
+        image.height = height;
+        image.stride = stride;
+        if (data.hasArray()) {
+            image.data = data.array();
+            image.startIndex = data.arrayOffset() + data.position();
+        } else {
+            image.data = new byte[(int) required];
+            data.get(data.position(), image.data, 0, (int) required);
+            image.startIndex = 0;
+        }
+        image.subImage = true;
+        return image;
+    }
+
+    /**
+     * 按整数倍抽样复制，每隔 subsampling 个像素取一个
+     *
+     * @param input 输入图像
+     * @param subsampling 抽样倍数，必须大于等于1
+     * @param output 输出图像，会被reshape为 ceil(宽/倍数) x ceil(高/倍数)
+     */
+    public static void subsample(GrayU8 input, int subsampling, GrayU8 output) {
+        if (subsampling < 1) {
+            throw new IllegalArgumentException("抽样倍数必须大于等于1: " + subsampling);
+        }
+        int outWidth = (input.width + subsampling - 1) / subsampling;
+        int outHeight = (input.height + subsampling - 1) / subsampling;
+        output.reshape(outWidth, outHeight);
+        for (int oy = 0; oy < outHeight; oy++) {
+            int src = input.startIndex + oy * subsampling * input.stride;
+            int dst = output.startIndex + oy * output.stride;
+            for (int ox = 0; ox < outWidth; ox++) {
+                output.data[dst + ox] = input.data[src + ox * subsampling];
+            }
+        }
+    }
+}
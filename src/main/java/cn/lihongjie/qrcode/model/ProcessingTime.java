@@ -2,6 +2,9 @@ package cn.lihongjie.qrcode.model;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * 处理时间信息
  */
@@ -15,6 +18,18 @@ public class ProcessingTime {
     private String imageFormat;
     private int imageWidth;
     private int imageHeight;
+    private String detectionMode;
+    private Boolean cacheHit;
+    private Integer subsampling;
+    private Integer frameCount;
+    private Integer framesProcessed;
+    private String detectorProfile;
+    private Boolean earlyExit;
+    private Integer skippedRegions;
+    private Long estimatedSavedTimeMs;
+    private Integer tiles;
+    private Boolean imageCacheHit;
+    private Map<String, Long> stages;
     
     public ProcessingTime() {}
     
@@ -81,6 +96,149 @@ public class ProcessingTime {
         this.imageHeight = imageHeight;
     }
     
+    public String getDetectionMode() {
+        return detectionMode;
+    }
+    
+    public void setDetectionMode(String detectionMode) {
+        this.detectionMode = detectionMode;
+    }
+    
+    public Boolean getCacheHit() {
+        return cacheHit;
+    }
+    
+    public void setCacheHit(Boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+    
+    /**
+     * 超出像素预算时的解码抽样倍数，未抽样时为null
+     */
+    public Integer getSubsampling() {
+        return subsampling;
+    }
+    
+    public void setSubsampling(Integer subsampling) {
+        this.subsampling = subsampling;
+    }
+    
+    /**
+     * 多帧图片的总帧数，单帧图片为null
+     */
+    public Integer getFrameCount() {
+        return frameCount;
+    }
+    
+    public void setFrameCount(Integer frameCount) {
+        this.frameCount = frameCount;
+    }
+    
+    /**
+     * 多帧图片实际检测的帧数，超出单次请求的帧数上限时小于总帧数
+     */
+    public Integer getFramesProcessed() {
+        return framesProcessed;
+    }
+    
+    public void setFramesProcessed(Integer framesProcessed) {
+        this.framesProcessed = framesProcessed;
+    }
+    
+    public String getDetectorProfile() {
+        return detectorProfile;
+    }
+    
+    public void setDetectorProfile(String detectorProfile) {
+        this.detectorProfile = detectorProfile;
+    }
+    
+    public Boolean getEarlyExit() {
+        return earlyExit;
+    }
+    
+    public void setEarlyExit(Boolean earlyExit) {
+        this.earlyExit = earlyExit;
+    }
+    
+    public Integer getSkippedRegions() {
+        return skippedRegions;
+    }
+    
+    public void setSkippedRegions(Integer skippedRegions) {
+        this.skippedRegions = skippedRegions;
+    }
+    
+    /**
+     * 提前结束节省的检测耗时估算值：按已执行部分的平均耗时（候选区域按像素数）推算跳过的部分，
+     * 分块和多帧为各线程耗时之和而非墙钟时间；无法估算时不返回
+     */
+    public Long getEstimatedSavedTimeMs() {
+        return estimatedSavedTimeMs;
+    }
+    
+    public void setEstimatedSavedTimeMs(Long estimatedSavedTimeMs) {
+        this.estimatedSavedTimeMs = estimatedSavedTimeMs;
+    }
+    
+    public Integer getTiles() {
+        return tiles;
+    }
+    
+    public void setTiles(Integer tiles) {
+        this.tiles = tiles;
+    }
+    
+    /**
+     * 是否通过图片句柄使用了缓存的解码图像，未引用句柄的请求不返回该字段
+     */
+    public Boolean getImageCacheHit() {
+        return imageCacheHit;
+    }
+    
+    public void setImageCacheHit(Boolean imageCacheHit) {
+        this.imageCacheHit = imageCacheHit;
+    }
+    
+    /**
+     * 各处理阶段的耗时（微秒），按阶段首次出现的顺序排列；多帧图片为各帧之和
+     */
+    public Map<String, Long> getStages() {
+        return stages;
+    }
+    
+    public void setStages(Map<String, Long> stages) {
+        this.stages = stages;
+    }
+    
+    /**
+     * 累加一个阶段的耗时
+     * 
+     * @param stage 阶段名称
+     * @param nanos 耗时（纳秒，由 System.nanoTime 计算），按微秒记录
+     */
+    public void addStage(String stage, long nanos) {
+        if (stages == null) {
+            stages = new LinkedHashMap<>();
+        }
+        stages.merge(stage, nanos / 1000, Long::sum);
+    }
+    
+    /**
+     * 累加另一个处理时间对象中的各阶段耗时
+     */
+    public void addStages(ProcessingTime other) {
+        if (other.stages == null) {
+            return;
+        }
+        for (Map.Entry<String, Long> entry : other.stages.entrySet()) {
+            if (stages == null) {
+                stages = new LinkedHashMap<>();
+            }
+            stages.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+    }
+    
     /**
      * 格式化文件大小为可读格式
      */
@@ -0,0 +1,66 @@
+package cn.lihongjie.qrcode.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 批量检测中单张图片的检测结果
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QRCodeBatchItem {
+    
+    private int index;
+    private String fileName;
+    private Integer frameIndex;
+    private QRCodeResult result;
+    
+    public QRCodeBatchItem() {}
+    
+    public QRCodeBatchItem(int index, String fileName, QRCodeResult result) {
+        this.index = index;
+        this.fileName = fileName;
+        this.result = result;
+    }
+    
+    public QRCodeBatchItem(int index, String fileName, Integer frameIndex, QRCodeResult result) {
+        this.index = index;
+        this.fileName = fileName;
+        this.frameIndex = frameIndex;
+        this.result = result;
+    }
+    
+    // Getters and setters
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    
+    /**
+     * 多帧图片（TIFF多页、GIF动画）中的帧序号，单帧图片为null
+     */
+    public Integer getFrameIndex() {
+        return frameIndex;
+    }
+    
+    public void setFrameIndex(Integer frameIndex) {
+        this.frameIndex = frameIndex;
+    }
+    
+    public QRCodeResult getResult() {
+        return result;
+    }
+    
+    public void setResult(QRCodeResult result) {
+        this.result = result;
+    }
+}
@@ -0,0 +1,99 @@
+package cn.lihongjie.qrcode.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+/**
+ * 批量QR码检测结果
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QRCodeBatchResult {
+    
+    private boolean success;
+    private String message;
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<QRCodeBatchItem> items;
+    private ProcessingTime processingTime;
+    
+    public QRCodeBatchResult() {}
+    
+    public QRCodeBatchResult(boolean success, String message) {
+        this.success = success;
+        this.message = message;
+    }
+    
+    public QRCodeBatchResult(List<QRCodeBatchItem> items, ProcessingTime processingTime) {
+        this.success = true;
+        this.processingTime = processingTime;
+        setItems(items);
+    }
+    
+    // Getters and setters
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    public int getTotal() {
+        return total;
+    }
+    
+    public void setTotal(int total) {
+        this.total = total;
+    }
+    
+    public int getSucceeded() {
+        return succeeded;
+    }
+    
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+    
+    public int getFailed() {
+        return failed;
+    }
+    
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+    
+    public List<QRCodeBatchItem> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<QRCodeBatchItem> items) {
+        this.items = items;
+        this.total = items != null ? items.size() : 0;
+        this.succeeded = 0;
+        if (items != null) {
+            for (QRCodeBatchItem item : items) {
+                if (item.getResult() != null && item.getResult().isSuccess()) {
+                    this.succeeded++;
+                }
+            }
+        }
+        this.failed = this.total - this.succeeded;
+    }
+    
+    public ProcessingTime getProcessingTime() {
+        return processingTime;
+    }
+    
+    public void setProcessingTime(ProcessingTime processingTime) {
+        this.processingTime = processingTime;
+    }
+}
@@ -11,6 +11,7 @@ public class QRCodeInfo {
     private String content;
     private BoundingBox boundingBox;
     private double confidence;
+    private Integer frameIndex;
     
     public QRCodeInfo() {}
     
@@ -49,4 +50,15 @@ public class QRCodeInfo {
     public void setConfidence(double confidence) {
         this.confidence = confidence;
     }
+    
+    /**
+     * 多帧图片（TIFF多页、GIF动画）中QR码所在的帧序号，单帧图片为null
+     */
+    public Integer getFrameIndex() {
+        return frameIndex;
+    }
+    
+    public void setFrameIndex(Integer frameIndex) {
+        this.frameIndex = frameIndex;
+    }
 }
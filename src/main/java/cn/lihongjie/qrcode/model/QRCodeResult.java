@@ -14,6 +14,7 @@ public class QRCodeResult {
     private List<QRCodeInfo> qrCodes;
     private int count;
     private ProcessingTime processingTime;
+    private String imageToken;
     
     public QRCodeResult() {}
     
@@ -76,4 +77,15 @@ public class QRCodeResult {
     public void setProcessingTime(ProcessingTime processingTime) {
         this.processingTime = processingTime;
     }
+    
+    /**
+     * 解码图像缓存中的图片句柄，仅在请求 retainImage=true 时返回
+     */
+    public String getImageToken() {
+        return imageToken;
+    }
+    
+    public void setImageToken(String imageToken) {
+        this.imageToken = imageToken;
+    }
 }
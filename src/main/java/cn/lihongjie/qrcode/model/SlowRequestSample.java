@@ -0,0 +1,211 @@
+package cn.lihongjie.qrcode.model;
+
+import java.util.Map;
+
+/**
+ * 慢请求样本的元数据，图片原始数据单独下载
+ */
+public class SlowRequestSample {
+    
+    private long id;
+    private long timestamp;
+    private double totalTimeMs;
+    private boolean success;
+    private int count;
+    private String message;
+    private String mode;
+    private String profile;
+    private int maxCodes;
+    private String contentPrefix;
+    private String contentPattern;
+    private String imageFormat;
+    private int imageWidth;
+    private int imageHeight;
+    private long fileSizeBytes;
+    private String imageSha256;
+    private boolean imageCaptured;
+    private Map<String, Long> stages;
+    
+    public SlowRequestSample() {}
+    
+    // Getters and setters
+    /**
+     * 样本序号，从1开始递增
+     */
+    public long getId() {
+        return id;
+    }
+    
+    public void setId(long id) {
+        this.id = id;
+    }
+    
+    /**
+     * 请求完成的时间（毫秒时间戳）
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+    
+    /**
+     * 检测总耗时（毫秒）
+     */
+    public double getTotalTimeMs() {
+        return totalTimeMs;
+    }
+    
+    public void setTotalTimeMs(double totalTimeMs) {
+        this.totalTimeMs = totalTimeMs;
+    }
+    
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+    
+    /**
+     * 检测到的QR码数量
+     */
+    public int getCount() {
+        return count;
+    }
+    
+    public void setCount(int count) {
+        this.count = count;
+    }
+    
+    /**
+     * 失败原因，成功时为null
+     */
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    /**
+     * 检测模式
+     */
+    public String getMode() {
+        return mode;
+    }
+    
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+    
+    /**
+     * 检测器配置名称，null表示默认配置
+     */
+    public String getProfile() {
+        return profile;
+    }
+    
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+    
+    public int getMaxCodes() {
+        return maxCodes;
+    }
+    
+    public void setMaxCodes(int maxCodes) {
+        this.maxCodes = maxCodes;
+    }
+    
+    public String getContentPrefix() {
+        return contentPrefix;
+    }
+    
+    public void setContentPrefix(String contentPrefix) {
+        this.contentPrefix = contentPrefix;
+    }
+    
+    public String getContentPattern() {
+        return contentPattern;
+    }
+    
+    public void setContentPattern(String contentPattern) {
+        this.contentPattern = contentPattern;
+    }
+    
+    public String getImageFormat() {
+        return imageFormat;
+    }
+    
+    public void setImageFormat(String imageFormat) {
+        this.imageFormat = imageFormat;
+    }
+    
+    /**
+     * 原图宽度
+     */
+    public int getImageWidth() {
+        return imageWidth;
+    }
+    
+    public void setImageWidth(int imageWidth) {
+        this.imageWidth = imageWidth;
+    }
+    
+    /**
+     * 原图高度
+     */
+    public int getImageHeight() {
+        return imageHeight;
+    }
+    
+    public void setImageHeight(int imageHeight) {
+        this.imageHeight = imageHeight;
+    }
+    
+    public long getFileSizeBytes() {
+        return fileSizeBytes;
+    }
+    
+    public void setFileSizeBytes(long fileSizeBytes) {
+        this.fileSizeBytes = fileSizeBytes;
+    }
+    
+    /**
+     * 图片内容的SHA-256，没有原始数据的请求（如灰度图像、图片句柄）为null
+     */
+    public String getImageSha256() {
+        return imageSha256;
+    }
+    
+    public void setImageSha256(String imageSha256) {
+        this.imageSha256 = imageSha256;
+    }
+    
+    /**
+     * 是否保存了图片原始数据，可以下载和重放
+     */
+    public boolean isImageCaptured() {
+        return imageCaptured;
+    }
+    
+    public void setImageCaptured(boolean imageCaptured) {
+        this.imageCaptured = imageCaptured;
+    }
+    
+    /**
+     * 各阶段耗时（微秒），与响应中的 processingTime.stages 相同
+     */
+    public Map<String, Long> getStages() {
+        return stages;
+    }
+    
+    public void setStages(Map<String, Long> stages) {
+        this.stages = stages;
+    }
+}
@@ -0,0 +1,53 @@
+package cn.lihongjie.qrcode.model;
+
+/**
+ * 按秒统计的请求数据点，用于绘制最近一段时间的趋势
+ */
+public class WindowPoint {
+    
+    private long time;
+    private long requests;
+    private long errors;
+    private double p99Ms;
+    
+    public WindowPoint() {}
+    
+    // Getters and setters
+    /**
+     * 该秒的开始时间（毫秒时间戳）
+     */
+    public long getTime() {
+        return time;
+    }
+    
+    public void setTime(long time) {
+        this.time = time;
+    }
+    
+    public long getRequests() {
+        return requests;
+    }
+    
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+    
+    public long getErrors() {
+        return errors;
+    }
+    
+    public void setErrors(long errors) {
+        this.errors = errors;
+    }
+    
+    /**
+     * 该秒内请求延迟的p99，没有请求时为0
+     */
+    public double getP99Ms() {
+        return p99Ms;
+    }
+    
+    public void setP99Ms(double p99Ms) {
+        this.p99Ms = p99Ms;
+    }
+}
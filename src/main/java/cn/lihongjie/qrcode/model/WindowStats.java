@@ -0,0 +1,125 @@
+package cn.lihongjie.qrcode.model;
+
+/**
+ * 滑动时间窗口内的请求统计
+ */
+public class WindowStats {
+    
+    private String window;
+    private double spanSeconds;
+    private long requests;
+    private long errors;
+    private double rps;
+    private double errorRate;
+    private double p50Ms;
+    private double p95Ms;
+    private double p99Ms;
+    private double p999Ms;
+    private double maxMs;
+    
+    public WindowStats() {}
+    
+    // Getters and setters
+    /**
+     * 窗口名称，如 10s、1m、5m、1h
+     */
+    public String getWindow() {
+        return window;
+    }
+    
+    public void setWindow(String window) {
+        this.window = window;
+    }
+    
+    /**
+     * 实际覆盖的秒数，服务启动或重置后不足一个窗口时小于窗口长度
+     */
+    public double getSpanSeconds() {
+        return spanSeconds;
+    }
+    
+    public void setSpanSeconds(double spanSeconds) {
+        this.spanSeconds = spanSeconds;
+    }
+    
+    public long getRequests() {
+        return requests;
+    }
+    
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+    
+    /**
+     * 失败的请求数（包括被拒绝、取消和检测失败的请求）
+     */
+    public long getErrors() {
+        return errors;
+    }
+    
+    public void setErrors(long errors) {
+        this.errors = errors;
+    }
+    
+    /**
+     * 每秒请求数
+     */
+    public double getRps() {
+        return rps;
+    }
+    
+    public void setRps(double rps) {
+        this.rps = rps;
+    }
+    
+    /**
+     * 失败请求的比例，0到1
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+    
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+    
+    public double getP50Ms() {
+        return p50Ms;
+    }
+    
+    public void setP50Ms(double p50Ms) {
+        this.p50Ms = p50Ms;
+    }
+    
+    public double getP95Ms() {
+        return p95Ms;
+    }
+    
+    public void setP95Ms(double p95Ms) {
+        this.p95Ms = p95Ms;
+    }
+    
+    public double getP99Ms() {
+        return p99Ms;
+    }
+    
+    public void setP99Ms(double p99Ms) {
+        this.p99Ms = p99Ms;
+    }
+    
+    public double getP999Ms() {
+        return p999Ms;
+    }
+    
+    public void setP999Ms(double p999Ms) {
+        this.p999Ms = p999Ms;
+    }
+    
+    public double getMaxMs() {
+        return maxMs;
+    }
+    
+    public void setMaxMs(double maxMs) {
+        this.maxMs = maxMs;
+    }
+}
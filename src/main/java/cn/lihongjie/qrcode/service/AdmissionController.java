@@ -0,0 +1,194 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 检测请求准入控制
+ * 
+ * 限制同时执行检测的请求数，超出的请求进入有界的FIFO等待队列；
+ * 队列已满或排队超时的请求立即被拒绝，由控制器返回 503 + Retry-After。
+ * 
+ * 启用自适应时并发上限按AIMD调整：请求耗时超过阈值时乘性减小，
+ * 并发已用满且耗时正常时加性增大，在 min-limit 和 max-limit 之间浮动。
+ * 每个延迟窗口（latency-threshold）内最多减小一次，且上次减小之前就已开始的请求不再触发减小，
+ * 一批同时执行的大图片只会让上限减小一次，而不是每完成一个就减小一次。
+ */
+@ApplicationScoped
+public class AdmissionController {
+    
+    private static final Logger LOG = Logger.getLogger(AdmissionController.class);
+    
+    private static final double DECREASE_FACTOR = 0.9;
+    
+    @Inject
+    QRCodeConfig config;
+    
+    @Inject
+    QRCodeMetricsService metricsService;
+    
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition available = lock.newCondition();
+    
+    private boolean enabled;
+    private boolean adaptive;
+    private int minLimit;
+    private int maxLimit;
+    private int maxQueue;
+    private long queueTimeoutNanos;
+    private long latencyThresholdNanos;
+    private long retryAfterSeconds;
+    
+    // 以下状态由 lock 保护，volatile 便于指标无锁读取
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile int waiting;
+    private long lastDecreaseNanos;
+    
+    /**
+     * 已获得的执行许可，检测完成后必须调用 {@link #release(Permit)} 归还
+     */
+    public static final class Permit {
+        private final long acquiredNanos;
+        
+        private Permit(long acquiredNanos) {
+            this.acquiredNanos = acquiredNanos;
+        }
+    }
+    
+    private static final Permit UNLIMITED = new Permit(0);
+    
+    @PostConstruct
+    void init() {
+        QRCodeConfig.Admission admission = config.admission();
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.enabled = admission.enabled();
+        this.adaptive = admission.adaptive();
+        this.minLimit = Math.max(1, admission.minLimit());
+        this.maxLimit = Math.max(minLimit, admission.maxLimit() > 0 ? admission.maxLimit() : cores * 4);
+        int initialLimit = admission.initialLimit() > 0 ? admission.initialLimit() : cores;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.maxQueue = admission.maxQueue();
+        this.queueTimeoutNanos = admission.queueTimeout().toNanos();
+        this.latencyThresholdNanos = admission.latencyThreshold().toNanos();
+        this.lastDecreaseNanos = System.nanoTime() - latencyThresholdNanos;
+        this.retryAfterSeconds = Math.max(1, admission.retryAfter().toSeconds());
+        metricsService.registerAdmissionController(this);
+        if (enabled) {
+            LOG.info("检测准入控制已启用, 并发上限: " + (int) limit + ", 等待队列: " + maxQueue + (adaptive ? ", 自适应" : ""));
+        }
+    }
+    
+    /**
+     * 获取执行许可，并发已满时排队等待
+     * 
+     * @throws AdmissionRejectedException 等待队列已满或排队超时
+     * @throws InterruptedException 等待被中断
+     */
+    public Permit acquire() throws InterruptedException {
+        if (!enabled) {
+            return UNLIMITED;
+        }
+        long waitStart = System.nanoTime();
+        lock.lock();
+        try {
+            // 已有请求在排队时不允许插队
+            if (waiting == 0 && inFlight < currentLimit()) {
+                inFlight++;
+                metricsService.recordAdmissionWait(0);
+                return new Permit(System.nanoTime());
+            }
+            if (waiting >= maxQueue) {
+                metricsService.incrementAdmissionRejected("queue_full");
+                throw new AdmissionRejectedException("检测服务繁忙，等待队列已满", retryAfterSeconds);
+            }
+            
+            waiting++;
+            try {
+                long remaining = queueTimeoutNanos;
+                while (inFlight >= currentLimit()) {
+                    if (remaining <= 0) {
+                        metricsService.incrementAdmissionRejected("timeout");
+                        throw new AdmissionRejectedException("检测服务繁忙，排队超时", retryAfterSeconds);
+                    }
+                    remaining = available.awaitNanos(remaining);
+                }
+                inFlight++;
+            } finally {
+                waiting--;
+                metricsService.recordAdmissionWait(System.nanoTime() - waitStart);
+            }
+            return new Permit(System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 归还执行许可，并根据本次耗时调整并发上限
+     */
+    public void release(Permit permit) {
+        if (permit == null || permit == UNLIMITED) {
+            return;
+        }
+        long now = System.nanoTime();
+        long latency = now - permit.acquiredNanos;
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= currentLimit();
+            inFlight--;
+            if (adaptive) {
+                if (latency > latencyThresholdNanos) {
+                    if (permit.acquiredNanos - lastDecreaseNanos > 0 && now - lastDecreaseNanos >= latencyThresholdNanos) {
+                        limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+                        lastDecreaseNanos = now;
+                    }
+                } else if (saturated) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+            // 上限增大时可能一次空出多个名额
+            for (int free = currentLimit() - inFlight; free > 0; free--) {
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private int currentLimit() {
+        return (int) limit;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * 当前并发上限
+     */
+    public int getLimit() {
+        return currentLimit();
+    }
+    
+    /**
+     * 正在执行的请求数
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+    
+    /**
+     * 排队等待的请求数
+     */
+    public int getQueueDepth() {
+        return waiting;
+    }
+}
@@ -0,0 +1,129 @@
+package cn.lihongjie.qrcode.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 堆内存分配量统计
+ *
+ * 基于 HotSpot 的 com.sun.management.ThreadMXBean，不支持时（如部分原生镜像或虚拟线程）返回 -1。
+ * 一次请求的处理分布在多个线程上（请求线程解码、检测线程池执行检测和分块），
+ * 请求开始时打开一个 Scope，提交到其他线程的任务通过 wrap 把各自的分配量累加到同一个 Scope；
+ * 虚拟线程上的部分无法统计，不计入。
+ */
+final class AllocationTracker {
+    
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = resolve();
+    
+    // 当前线程正在处理的请求的统计范围
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    
+    private AllocationTracker() {
+    }
+    
+    private static com.sun.management.ThreadMXBean resolve() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean hotspot
+                    && hotspot.isThreadAllocatedMemorySupported()) {
+                if (!hotspot.isThreadAllocatedMemoryEnabled()) {
+                    hotspot.setThreadAllocatedMemoryEnabled(true);
+                }
+                return hotspot;
+            }
+        } catch (RuntimeException | LinkageError e) {
+            // 运行环境不支持线程分配统计
+        }
+        return null;
+    }
+    
+    /**
+     * @return 当前线程累计分配的字节数，不支持时（包括虚拟线程）返回 -1
+     */
+    static long currentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN == null) {
+            return -1;
+        }
+        try {
+            return THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * 在当前线程上开始统计一次请求的分配量，必须在同一线程上调用 Scope.close
+     */
+    static Scope begin() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+    
+    /**
+     * 包装提交到其他线程的任务：任务执行期间的分配量计入提交时所在请求的 Scope，
+     * 任务内再提交的任务也计入同一个 Scope。提交线程不在任何请求中时原样返回。
+     */
+    static <T> Callable<T> wrap(Callable<T> task) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            Scope previous = CURRENT.get();
+            CURRENT.set(scope);
+            long start = currentThreadAllocatedBytes();
+            try {
+                return task.call();
+            } finally {
+                scope.add(start, currentThreadAllocatedBytes());
+                restore(previous);
+            }
+        };
+    }
+    
+    private static void restore(Scope previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+    
+    /**
+     * 一次请求在各线程上的分配量之和
+     */
+    static final class Scope {
+    
+        private final Scope previous;
+        private final long start;
+        private final AtomicLong bytes = new AtomicLong();
+        // 是否至少统计到一段，全部在虚拟线程上执行时为false
+        private volatile boolean measured;
+    
+        private Scope(Scope previous) {
+            this.previous = previous;
+            this.start = currentThreadAllocatedBytes();
+        }
+    
+        private void add(long segmentStart, long segmentEnd) {
+            if (segmentStart >= 0 && segmentEnd >= segmentStart) {
+                bytes.addAndGet(segmentEnd - segmentStart);
+                measured = true;
+            }
+        }
+    
+        /**
+         * 结束统计，加上打开Scope的线程自身的分配量
+         *
+         * @return 所有可统计线程上的分配量之和，没有任何一段可以统计时返回 -1
+         */
+        long close() {
+            add(start, currentThreadAllocatedBytes());
+            restore(previous);
+            return measured ? bytes.get() : -1;
+        }
+    }
+}
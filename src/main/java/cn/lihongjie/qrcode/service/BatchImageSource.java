@@ -0,0 +1,19 @@
+package cn.lihongjie.qrcode.service;
+
+import java.io.IOException;
+
+/**
+ * 批量检测的单张图片来源
+ */
+public interface BatchImageSource {
+    
+    /**
+     * 图片名称（文件名或压缩包内的路径）
+     */
+    String getName();
+    
+    /**
+     * 读取图片内容，在工作线程中调用
+     */
+    byte[] read() throws IOException;
+}
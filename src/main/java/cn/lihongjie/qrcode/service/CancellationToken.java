@@ -0,0 +1,63 @@
+package cn.lihongjie.qrcode.service;
+
+/**
+ * 检测请求的取消标记
+ * 
+ * 客户端断开连接时调用 {@link #cancel()}：设置取消标记，并中断当前执行该请求的线程，
+ * 使排队等待准入或检测线程的请求立即退出。检测流程在各阶段之间检查标记，协作式地跳过剩余工作。
+ */
+public final class CancellationToken {
+    
+    /**
+     * 不可取消的标记，用于同步调用
+     */
+    public static final CancellationToken NONE = new CancellationToken(false);
+    
+    private final boolean cancellable;
+    private volatile boolean cancelled;
+    private Thread boundThread;
+    
+    public CancellationToken() {
+        this(true);
+    }
+    
+    private CancellationToken(boolean cancellable) {
+        this.cancellable = cancellable;
+    }
+    
+    /**
+     * 取消请求
+     */
+    public void cancel() {
+        if (!cancellable) {
+            return;
+        }
+        synchronized (this) {
+            cancelled = true;
+            if (boundThread != null) {
+                boundThread.interrupt();
+            }
+        }
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * 绑定执行请求的线程，取消时中断该线程
+     */
+    synchronized void bind(Thread thread) {
+        this.boundThread = thread;
+        if (cancelled && thread != null) {
+            thread.interrupt();
+        }
+    }
+    
+    /**
+     * 解除线程绑定，之后的取消不再中断该线程
+     */
+    synchronized void unbind() {
+        this.boundThread = null;
+    }
+}
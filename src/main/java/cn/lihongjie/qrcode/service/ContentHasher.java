@@ -0,0 +1,129 @@
+package cn.lihongjie.qrcode.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * 图片内容哈希
+ * 
+ * 直接读取 ByteBuffer，不复制数据。xxHash64 速度快，适合做缓存键；
+ * SHA-256 抗碰撞，适合对缓存结果正确性要求更高的场景。
+ */
+public enum ContentHasher {
+    
+    XXHASH64 {
+        @Override
+        public String hash(ByteBuffer data) {
+            return Long.toHexString(xxHash64(data, 0));
+        }
+    },
+    
+    SHA256 {
+        @Override
+        public String hash(ByteBuffer data) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(data.duplicate());
+                return HexFormat.of().formatHex(digest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256不可用", e);
+            }
+        }
+    };
+    
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    
+    /**
+     * 计算 position 到 limit 之间数据的哈希值，不修改 data 的位置
+     */
+    public abstract String hash(ByteBuffer data);
+    
+    /**
+     * 解析配置中的哈希算法名称（xxhash64 / sha256）
+     */
+    public static ContentHasher parse(String value) {
+        String normalized = value.trim().toUpperCase(Locale.ROOT).replace("-", "");
+        try {
+            return valueOf(normalized);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的哈希算法: " + value);
+        }
+    }
+    
+    /**
+     * xxHash64 算法实现
+     */
+    static long xxHash64(ByteBuffer data, long seed) {
+        ByteBuffer buffer = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int length = buffer.remaining();
+        int index = 0;
+        long hash;
+        
+        if (length >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            int limit = length - 32;
+            do {
+                v1 = round(v1, buffer.getLong(index));
+                v2 = round(v2, buffer.getLong(index + 8));
+                v3 = round(v3, buffer.getLong(index + 16));
+                v4 = round(v4, buffer.getLong(index + 24));
+                index += 32;
+            } while (index <= limit);
+            
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        
+        hash += length;
+        
+        while (index + 8 <= length) {
+            hash ^= round(0, buffer.getLong(index));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+            index += 8;
+        }
+        if (index + 4 <= length) {
+            hash ^= (buffer.getInt(index) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            index += 4;
+        }
+        while (index < length) {
+            hash ^= (buffer.get(index) & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+            index++;
+        }
+        
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+    
+    private static long round(long acc, long input) {
+        acc += input * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+    
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME1 + PRIME4;
+    }
+}
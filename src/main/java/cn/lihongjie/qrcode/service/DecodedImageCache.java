@@ -0,0 +1,172 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.struct.image.GrayU8;
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 解码图像缓存
+ * 
+ * 保留请求解码后的灰度图像，以图片内容哈希作为图片句柄。后续请求引用句柄即可换用其他检测配置或只检测部分区域，
+ * 不需要重新上传和解码图片。像素复制为紧凑的数组后存入缓存，按像素总字节数和写入后存活时间淘汰。
+ */
+@ApplicationScoped
+public class DecodedImageCache {
+    
+    private static final Logger LOG = Logger.getLogger(DecodedImageCache.class);
+    
+    @Inject
+    QRCodeConfig config;
+    
+    @Inject
+    MeterRegistry meterRegistry;
+    
+    private Cache<String, CachedImage> cache;
+    
+    private ContentHasher hasher;
+    
+    @PostConstruct
+    void init() {
+        QRCodeConfig.ImageCache cacheConfig = config.imageCache();
+        if (!cacheConfig.enabled()) {
+            return;
+        }
+        this.hasher = ContentHasher.parse(cacheConfig.hash());
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(cacheConfig.maxBytes())
+                .weigher((String key, CachedImage value) -> key.length() + value.pixels.length)
+                .expireAfterWrite(cacheConfig.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "qrcode.image");
+        LOG.info("解码图像缓存已启用, 哈希算法: " + hasher + ", 最大字节数: " + cacheConfig.maxBytes() + ", TTL: " + cacheConfig.ttl());
+    }
+    
+    public boolean isEnabled() {
+        return cache != null;
+    }
+    
+    /**
+     * 计算图片句柄
+     * 
+     * @param imageBuffer 图片数据，不会修改其位置
+     */
+    public String token(ByteBuffer imageBuffer) {
+        return hasher.hash(imageBuffer) + "-" + Integer.toHexString(imageBuffer.remaining());
+    }
+    
+    /**
+     * 复制并缓存解码后的灰度图像
+     * 
+     * @param token 图片句柄
+     * @param image 解码后的图像，可以是借用的缓冲区，方法返回后调用方可以复用
+     * @param format 图片格式名称
+     * @param subsampling 解码抽样倍数
+     * @param originalWidth 原图宽度
+     * @param originalHeight 原图高度
+     */
+    public void put(String token, GrayU8 image, String format, int subsampling, int originalWidth, int originalHeight) {
+        byte[] pixels = new byte[image.width * image.height];
+        for (int y = 0; y < image.height; y++) {
+            System.arraycopy(image.data, image.startIndex + y * image.stride, pixels, y * image.width, image.width);
+        }
+        cache.put(token, new CachedImage(pixels, image.width, image.height, format, subsampling, originalWidth, originalHeight));
+    }
+    
+    /**
+     * 查询缓存的图像
+     * 
+     * @return 缓存的图像，句柄不存在或已过期返回null
+     */
+    public CachedImage get(String token) {
+        return cache != null ? cache.getIfPresent(token) : null;
+    }
+    
+    /**
+     * 删除缓存的图像
+     * 
+     * @return 句柄是否存在
+     */
+    public boolean invalidate(String token) {
+        return cache != null && cache.asMap().remove(token) != null;
+    }
+    
+    /**
+     * 缓存的灰度图像，像素数组只读，可以被多个请求同时检测
+     */
+    public static final class CachedImage {
+        
+        private final byte[] pixels;
+        private final int width;
+        private final int height;
+        private final String format;
+        private final int subsampling;
+        private final int originalWidth;
+        private final int originalHeight;
+        
+        CachedImage(byte[] pixels, int width, int height, String format, int subsampling, int originalWidth, int originalHeight) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.format = format;
+            this.subsampling = subsampling;
+            this.originalWidth = originalWidth;
+            this.originalHeight = originalHeight;
+        }
+        
+        /**
+         * 引用缓存像素的灰度图像（子图像，不复制像素）
+         * 
+         * @param x 区域左上角横坐标（缓存图像坐标）
+         * @param y 区域左上角纵坐标
+         * @param width 区域宽度
+         * @param height 区域高度
+         */
+        public GrayU8 view(int x, int y, int width, int height) {
+            GrayU8 image = new GrayU8();
+            image.data = pixels;
+            image.width = width;
+            image.height = height;
+            image.stride = this.width;
+            image.startIndex = y * this.width + x;
+            image.subImage = true;
+            return image;
+        }
+        
+        public int getWidth() {
+            return width;
+        }
+        
+        public int getHeight() {
+            return height;
+        }
+        
+        public String getFormat() {
+            return format;
+        }
+        
+        /**
+         * 缓存图像相对原图的抽样倍数
+         */
+        public int getSubsampling() {
+            return subsampling;
+        }
+        
+        public int getOriginalWidth() {
+            return originalWidth;
+        }
+        
+        public int getOriginalHeight() {
+            return originalHeight;
+        }
+    }
+}
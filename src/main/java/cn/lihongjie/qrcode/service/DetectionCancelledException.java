@@ -0,0 +1,21 @@
+package cn.lihongjie.qrcode.service;
+
+/**
+ * 检测请求已被取消（客户端断开连接），剩余工作被跳过
+ */
+public class DetectionCancelledException extends RuntimeException {
+    
+    private final String stage;
+    
+    public DetectionCancelledException(String stage) {
+        super("检测已取消");
+        this.stage = stage;
+    }
+    
+    /**
+     * 发现取消时所处的阶段
+     */
+    public String getStage() {
+        return stage;
+    }
+}
@@ -0,0 +1,167 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CPU密集的检测阶段专用线程池
+ * 
+ * 请求线程（虚拟线程）负责读取上传数据和解码，检测阶段提交到这里固定数量的平台线程上执行，
+ * 阻塞的上传不会占用检测线程，检测的并发数也不会超过CPU核数。
+ * 关闭 qrcode.execution.detection-offload 时直接在调用线程上执行。
+ */
+@ApplicationScoped
+public class DetectionExecutor {
+    
+    private static final Logger LOG = Logger.getLogger(DetectionExecutor.class);
+    
+    @Inject
+    QRCodeConfig config;
+    
+    @Inject
+    QRCodeMetricsService metricsService;
+    
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int CANCELLED = 2;
+    
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    void init() {
+        if (!config.execution().detectionOffload()) {
+            LOG.info("检测阶段在请求线程上执行");
+            return;
+        }
+        int threads = config.execution().detectionThreads();
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 等待中的任务数由准入控制限制，这里使用无界队列
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "qrcode-detect-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        metricsService.registerDetectionExecutor(this);
+        LOG.info("检测线程池初始化完成, 线程数: " + threads);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * 在检测线程池中执行任务并等待结果
+     * 
+     * @param task 检测任务
+     * 等待被中断时：任务仍在排队则直接取消，不再执行；任务已开始则等待其结束并返回结果
+     * （保留中断状态），因为任务使用的图像缓冲区在调用方返回后会被回收复用。
+     * 
+     * @return 任务结果
+     * @throws InterruptedException 任务还未开始执行时等待被中断，任务已被取消
+     * @throws ExecutionException 任务抛出异常
+     */
+    public <T> T execute(Callable<T> task) throws InterruptedException, ExecutionException {
+        if (executor == null) {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw new ExecutionException(e);
+            }
+        }
+        
+        long submitTime = System.nanoTime();
+        AtomicInteger state = new AtomicInteger(QUEUED);
+        // 检测线程上的分配量计入提交任务的请求
+        Callable<T> measured = AllocationTracker.wrap(task);
+        Future<T> future = executor.submit(() -> {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                throw new CancellationException();
+            }
+            metricsService.recordDetectionQueueWait(System.nanoTime() - submitTime);
+            return measured.call();
+        });
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            if (state.compareAndSet(QUEUED, CANCELLED)) {
+                future.cancel(false);
+                throw e;
+            }
+            return awaitUninterruptibly(future);
+        }
+    }
+    
+    /**
+     * 向检测线程池提交辅助任务，不等待结果
+     * 
+     * 用于在检测线程上把一个请求拆分给空闲的检测线程（例如分块检测）。辅助任务可能一直在队列中排队，
+     * 调用方不能在检测线程上阻塞等待尚未开始的辅助任务，否则检测线程都在等待时会死锁。
+     * 
+     * @param task 辅助任务，分配量计入提交任务的请求
+     * @return 任务的Future；关闭 detection-offload 时返回null，由调用方自己完成全部工作
+     */
+    public Future<?> submitHelper(Callable<?> task) {
+        if (executor == null) {
+            return null;
+        }
+        return executor.submit(AllocationTracker.wrap(task));
+    }
+    
+    private static <T> T awaitUninterruptibly(Future<T> future) throws ExecutionException {
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    // 继续等待，结束后恢复中断状态
+                }
+            }
+        } finally {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public boolean isOffloadEnabled() {
+        return executor != null;
+    }
+    
+    /**
+     * 线程池大小
+     */
+    public int getPoolSize() {
+        return executor != null ? executor.getMaximumPoolSize() : 0;
+    }
+    
+    /**
+     * 正在执行检测的线程数
+     */
+    public int getActiveCount() {
+        return executor != null ? executor.getActiveCount() : 0;
+    }
+    
+    /**
+     * 等待执行的检测任务数
+     */
+    public int getQueueSize() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+}
@@ -0,0 +1,45 @@
+package cn.lihongjie.qrcode.service;
+
+import java.util.Locale;
+
+/**
+ * QR码检测模式
+ */
+public enum DetectionMode {
+    
+    /**
+     * 全分辨率单次检测
+     */
+    FULL,
+    
+    /**
+     * 由粗到精：先在缩小的图像上查找候选区域，再只对候选区域做全分辨率检测，
+     * 粗检测没有找到QR码时回退到全分辨率检测
+     */
+    COARSE,
+    
+    /**
+     * 分块并行：将大图切分为相互重叠的分块，在多个核上并行检测后合并，重叠区域中重复的QR码只保留一个
+     */
+    TILED;
+    
+    /**
+     * 解析请求参数中的检测模式，空值返回 FULL
+     * 
+     * @throws IllegalArgumentException 无法识别的模式
+     */
+    public static DetectionMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return FULL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的检测模式: " + value);
+        }
+    }
+    
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
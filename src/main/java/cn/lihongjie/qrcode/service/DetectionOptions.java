@@ -0,0 +1,292 @@
+package cn.lihongjie.qrcode.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 单次检测请求的选项
+ */
+public class DetectionOptions {
+    
+    /**
+     * 内容匹配表达式的最大长度
+     */
+    public static final int MAX_PATTERN_LENGTH = 256;
+    
+    /**
+     * 参与正则匹配的QR码内容最大长度，更长的内容视为不匹配
+     */
+    public static final int MAX_MATCH_CONTENT_LENGTH = 1024;
+    
+    private DetectionMode mode = DetectionMode.FULL;
+    
+    private boolean cacheBypass;
+    
+    private String profile;
+    
+    private int maxCodes;
+    
+    private String contentPrefix;
+    
+    private Pattern contentPattern;
+    
+    private boolean retainImage;
+    
+    public DetectionOptions() {}
+    
+    /**
+     * 默认选项：全分辨率检测
+     */
+    public static DetectionOptions defaults() {
+        return new DetectionOptions();
+    }
+    
+    // Getters and setters
+    public DetectionMode getMode() {
+        return mode;
+    }
+    
+    public void setMode(DetectionMode mode) {
+        this.mode = mode != null ? mode : DetectionMode.FULL;
+    }
+    
+    public boolean isCacheBypass() {
+        return cacheBypass;
+    }
+    
+    public void setCacheBypass(boolean cacheBypass) {
+        this.cacheBypass = cacheBypass;
+    }
+    
+    /**
+     * 检测器配置名称，null表示默认配置
+     */
+    public String getProfile() {
+        return profile;
+    }
+    
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+    
+    /**
+     * 最多返回的QR码数量，0表示不限制；找到足够的QR码后跳过剩余的候选区域和帧
+     */
+    public int getMaxCodes() {
+        return maxCodes;
+    }
+    
+    public void setMaxCodes(int maxCodes) {
+        if (maxCodes < 0) {
+            throw new IllegalArgumentException("maxCodes 不能小于0: " + maxCodes);
+        }
+        this.maxCodes = maxCodes;
+    }
+    
+    /**
+     * 只返回以该前缀开头的QR码，null表示不过滤
+     */
+    public String getContentPrefix() {
+        return contentPrefix;
+    }
+    
+    public void setContentPrefix(String contentPrefix) {
+        this.contentPrefix = contentPrefix;
+    }
+    
+    /**
+     * 只返回完整匹配该正则表达式的QR码，null表示不过滤
+     */
+    public Pattern getContentPattern() {
+        return contentPattern;
+    }
+    
+    public void setContentPattern(Pattern contentPattern) {
+        this.contentPattern = contentPattern;
+    }
+    
+    /**
+     * 编译请求中的内容匹配表达式
+     * 
+     * 表达式在共享的检测线程上对每个QR码执行，为避免灾难性回溯占住检测线程，只接受安全的子集：
+     * 长度不超过 {@link #MAX_PATTERN_LENGTH}，不含反向引用，重复的分组内不能再有可变次数的量词或分支（如 (a+)+、(a|ab)*），
+     * 可选分组 (...)? 和固定次数的量词 {n} 不受限制。
+     * 
+     * @throws IllegalArgumentException 表达式无效或不在安全子集内
+     */
+    public static Pattern compileContentPattern(String regex) {
+        if (regex.length() > MAX_PATTERN_LENGTH) {
+            throw new IllegalArgumentException("内容匹配表达式过长: " + regex.length() + " 个字符, 上限 " + MAX_PATTERN_LENGTH);
+        }
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("无效的内容匹配表达式: " + regex);
+        }
+        String unsafe = unsafeConstruct(regex);
+        if (unsafe != null) {
+            throw new IllegalArgumentException("内容匹配表达式不能包含" + unsafe + ": " + regex);
+        }
+        return pattern;
+    }
+    
+    /**
+     * 查找可能导致灾难性回溯的写法，表达式已通过编译，语法是合法的
+     * 
+     * @return 不安全写法的说明，安全时返回null
+     */
+    private static String unsafeConstruct(String regex) {
+        // 每层分组内是否出现过可变次数的量词或分支
+        Deque<boolean[]> groups = new ArrayDeque<>();
+        groups.push(new boolean[1]);
+        boolean lastWasComplexGroup = false;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            boolean complexGroup = false;
+            if (c == '\\') {
+                char next = regex.charAt(i + 1);
+                if ((next >= '1' && next <= '9') || next == 'k') {
+                    return "反向引用";
+                }
+                if (next == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    i = end < 0 ? regex.length() : end + 2;
+                } else {
+                    i += 2;
+                }
+            } else if (c == '[') {
+                i = skipCharacterClass(regex, i);
+            } else if (c == '(') {
+                groups.push(new boolean[1]);
+                // (?: (?= 等分组标记中的 ? 不是量词
+                i += i + 1 < regex.length() && regex.charAt(i + 1) == '?' ? 2 : 1;
+            } else if (c == ')') {
+                boolean complex = groups.pop()[0];
+                if (complex) {
+                    groups.peek()[0] = true;
+                }
+                complexGroup = complex;
+                i++;
+            } else if (c == '|') {
+                groups.peek()[0] = true;
+                i++;
+            } else if (c == '*' || c == '+' || c == '?' || c == '{') {
+                int end = c == '{' ? regex.indexOf('}', i) : i;
+                // 可选（?）的分组最多匹配一次，不会重复回溯
+                if (lastWasComplexGroup && c != '?') {
+                    return "嵌套量词或带量词的分支";
+                }
+                // 固定次数 {n} 不产生多种匹配方式
+                if (c != '{' || regex.substring(i, end).indexOf(',') >= 0) {
+                    groups.peek()[0] = true;
+                }
+                i = end + 1;
+                // 跳过懒惰或占有量词的后缀
+                if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+                    i++;
+                }
+            } else {
+                i++;
+            }
+            lastWasComplexGroup = complexGroup;
+        }
+        return null;
+    }
+    
+    private static int skipCharacterClass(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                // 紧跟在 [ 或 [^ 之后的 ] 是普通字符
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == ']' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+    
+    /**
+     * 是否把解码后的图像保留在解码图像缓存中并返回图片句柄，不影响检测结果
+     */
+    public boolean isRetainImage() {
+        return retainImage;
+    }
+    
+    public void setRetainImage(boolean retainImage) {
+        this.retainImage = retainImage;
+    }
+    
+    /**
+     * QR码内容是否满足前缀和正则表达式过滤条件，超过 {@link #MAX_MATCH_CONTENT_LENGTH} 的内容不参与正则匹配，视为不满足
+     */
+    public boolean accepts(String content) {
+        if (content == null) {
+            return contentPrefix == null && contentPattern == null;
+        }
+        if (contentPrefix != null && !content.startsWith(contentPrefix)) {
+            return false;
+        }
+        if (contentPattern == null) {
+            return true;
+        }
+        return content.length() <= MAX_MATCH_CONTENT_LENGTH && contentPattern.matcher(content).matches();
+    }
+    
+    /**
+     * 已找到的QR码数量是否达到 maxCodes
+     */
+    public boolean isSatisfied(int found) {
+        return maxCodes > 0 && found >= maxCodes;
+    }
+    
+    /**
+     * 还能接收的QR码数量
+     */
+    public int remaining(int found) {
+        return maxCodes > 0 ? Math.max(0, maxCodes - found) : Integer.MAX_VALUE;
+    }
+    
+    /**
+     * 影响检测结果的选项组成的缓存键片段
+     * <p>
+     * 用户提供的字段以 {@code 长度:值} 形式写入，避免值中的分隔符伪造出其他选项组合的键。
+     */
+    public String cacheKey() {
+        StringBuilder key = new StringBuilder("mode=").append(mode.getName());
+        if (profile != null) {
+            appendField(key, "profile", profile);
+        }
+        if (maxCodes > 0) {
+            key.append(";max=").append(maxCodes);
+        }
+        if (contentPrefix != null) {
+            appendField(key, "prefix", contentPrefix);
+        }
+        if (contentPattern != null) {
+            appendField(key, "pattern", contentPattern.pattern());
+        }
+        return key.toString();
+    }
+    
+    private static void appendField(StringBuilder key, String name, String value) {
+        key.append(';').append(name).append('=').append(value.length()).append(':').append(value);
+    }
+}
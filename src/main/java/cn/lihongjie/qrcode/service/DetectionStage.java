@@ -0,0 +1,69 @@
+package cn.lihongjie.qrcode.service;
+
+import java.util.Locale;
+
+/**
+ * 检测请求的处理阶段，用于分阶段计时
+ * 
+ * BoofCV的检测器在一次 process 调用中完成二值化、定位图案查找和解码，没有公开各步骤的边界，
+ * 因此这三步合并为 DETECTION 一个阶段。
+ */
+public enum DetectionStage {
+    
+    /**
+     * 读取上传的图片数据到内存
+     */
+    BODY_READ,
+    
+    /**
+     * 读取图片头检查像素预算
+     */
+    PROBE,
+    
+    /**
+     * 在准入控制队列中等待
+     */
+    ADMISSION_WAIT,
+    
+    /**
+     * 解码为灰度图像（JPEG/PNG直接解码亮度通道，没有单独的灰度转换）
+     */
+    DECODE,
+    
+    /**
+     * 将已解码的BufferedImage转换为灰度图像（只在直接传入BufferedImage时单独存在，其他来源的转换包含在解码中）
+     */
+    GRAY_CONVERSION,
+    
+    /**
+     * 在检测线程池队列中等待
+     */
+    DETECTION_QUEUE,
+    
+    /**
+     * 等待从检测器池借用检测器
+     */
+    DETECTOR_WAIT,
+    
+    /**
+     * coarse 模式下缩小图像
+     */
+    DOWNSCALE,
+    
+    /**
+     * BoofCV检测：二值化、定位图案查找和解码，以及转换为响应模型
+     */
+    DETECTION,
+    
+    /**
+     * 将检测结果序列化为JSON响应
+     */
+    SERIALIZE;
+    
+    // 在每个请求中多次使用，预先计算
+    private final String stageName = name().toLowerCase(Locale.ROOT);
+    
+    public String getName() {
+        return stageName;
+    }
+}
@@ -0,0 +1,110 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.abst.fiducial.QrCodeDetector;
+import boofcv.struct.image.GrayU8;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * QR码检测器池
+ *
+ * BoofCV的QrCodeDetector内部持有检测过程中的状态和结果列表，不能被多个线程同时使用。
+ * 这里按需创建检测器实例，最多创建 maxSize 个，用完归还后供其他请求复用。
+ */
+public class DetectorPool {
+
+    private final String name;
+    private final int maxSize;
+    private final Supplier<QrCodeDetector<GrayU8>> factory;
+    private final BlockingQueue<QrCodeDetector<GrayU8>> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger borrowed = new AtomicInteger();
+
+    public DetectorPool(String name, int maxSize, Supplier<QrCodeDetector<GrayU8>> factory) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("检测器池大小必须大于0: " + maxSize);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.factory = factory;
+    }
+
+    /**
+     * 借用一个检测器，池中没有空闲实例且已达上限时等待归还
+     *
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 检测器实例，使用完毕后必须调用 {@link #release(QrCodeDetector)} 归还
+     * @throws TimeoutException 等待超时
+     * @throws InterruptedException 等待被中断
+     */
+    public QrCodeDetector<GrayU8> borrow(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        QrCodeDetector<GrayU8> detector = idle.poll();
+        if (detector == null) {
+            detector = tryCreate();
+        }
+        if (detector == null) {
+            detector = idle.poll(timeout, unit);
+            if (detector == null) {
+                throw new TimeoutException("等待QR码检测器超时 (pool=" + name + ")");
+            }
+        }
+        borrowed.incrementAndGet();
+        return detector;
+    }
+
+    /**
+     * 归还检测器
+     */
+    public void release(QrCodeDetector<GrayU8> detector) {
+        if (detector == null) {
+            return;
+        }
+        borrowed.decrementAndGet();
+        idle.offer(detector);
+    }
+
+    private QrCodeDetector<GrayU8> tryCreate() {
+        while (true) {
+            int current = created.get();
+            if (current >= maxSize) {
+                return null;
+            }
+            if (created.compareAndSet(current, current + 1)) {
+                try {
+                    return factory.get();
+                } catch (RuntimeException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 已创建的检测器实例数
+     */
+    public int getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * 当前被借出的检测器实例数
+     */
+    public int getBorrowedCount() {
+        return borrowed.get();
+    }
+}
@@ -0,0 +1,124 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.abst.fiducial.QrCodeDetector;
+import boofcv.factory.fiducial.ConfigQrCode;
+import boofcv.factory.fiducial.FactoryFiducial;
+import boofcv.struct.ConfigLength;
+import boofcv.struct.image.GrayU8;
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 命名的检测器配置
+ *
+ * 每个配置对应一个BoofCV ConfigQrCode和一个独立的检测器池，不同配置的请求不会互相占用检测器。
+ * 未指定配置的请求使用 default 配置。
+ */
+@ApplicationScoped
+public class DetectorProfiles {
+
+    private static final Logger LOG = Logger.getLogger(DetectorProfiles.class);
+
+    public static final String DEFAULT = "default";
+
+    @Inject
+    QRCodeConfig config;
+
+    @Inject
+    QRCodeMetricsService metricsService;
+
+    private final Map<String, DetectorPool> pools = new LinkedHashMap<>();
+
+    private final Map<String, Supplier<QrCodeDetector<GrayU8>>> factories = new LinkedHashMap<>();
+
+    @PostConstruct
+    void init() {
+        int defaultSize = config.detector().pool().maxSize();
+        if (defaultSize <= 0) {
+            defaultSize = Runtime.getRuntime().availableProcessors();
+        }
+
+        Map<String, QRCodeConfig.Profile> profiles = config.detector().profiles();
+        if (!profiles.containsKey(DEFAULT)) {
+            factories.put(DEFAULT, () -> FactoryFiducial.qrcode(null, GrayU8.class));
+            pools.put(DEFAULT, new DetectorPool(DEFAULT, defaultSize, factories.get(DEFAULT)));
+        }
+        for (Map.Entry<String, QRCodeConfig.Profile> entry : profiles.entrySet()) {
+            String name = entry.getKey();
+            QRCodeConfig.Profile profile = entry.getValue();
+            int size = profile.poolSize() > 0 ? profile.poolSize() : defaultSize;
+            factories.put(name, () -> FactoryFiducial.qrcode(toConfigQrCode(profile), GrayU8.class));
+            pools.put(name, new DetectorPool(name, size, factories.get(name)));
+        }
+
+        for (DetectorPool pool : pools.values()) {
+            metricsService.registerDetectorPool(pool);
+            LOG.info("QR码检测器池初始化完成, 配置: " + pool.getName() + ", 最大实例数: " + pool.getMaxSize());
+        }
+    }
+
+    /**
+     * 解析请求中的配置名称
+     *
+     * @param name 配置名称，空值表示 default
+     * @return 配置名称
+     * @throws IllegalArgumentException 未定义的配置
+     */
+    public String resolve(String name) {
+        if (name == null || name.isBlank()) {
+            return DEFAULT;
+        }
+        String trimmed = name.trim();
+        if (!pools.containsKey(trimmed)) {
+            throw new IllegalArgumentException("未定义的检测配置: " + name + ", 可选: " + String.join(", ", pools.keySet()));
+        }
+        return trimmed;
+    }
+
+    /**
+     * 获取配置对应的检测器池
+     *
+     * @param name 配置名称，空值表示 default
+     * @throws IllegalArgumentException 未定义的配置
+     */
+    public DetectorPool pool(String name) {
+        return pools.get(resolve(name));
+    }
+
+    /**
+     * 按配置创建一个不属于任何池的检测器，由调用方独占
+     *
+     * @param name 配置名称，空值表示 default
+     * @throws IllegalArgumentException 未定义的配置
+     */
+    public QrCodeDetector<GrayU8> newDetector(String name) {
+        return factories.get(resolve(name)).get();
+    }
+
+    /**
+     * 所有已定义的配置名称
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(pools.keySet());
+    }
+
+    static ConfigQrCode toConfigQrCode(QRCodeConfig.Profile profile) {
+        ConfigQrCode qrConfig = profile.preset() == QRCodeConfig.Profile.Preset.FAST ? ConfigQrCode.fast() : new ConfigQrCode();
+        profile.threshold().ifPresent(type -> qrConfig.threshold.type = type);
+        profile.thresholdWidth().ifPresent(width -> qrConfig.threshold.width = ConfigLength.fixed(width));
+        profile.versionMinimum().ifPresent(version -> qrConfig.versionMinimum = version);
+        profile.versionMaximum().ifPresent(version -> qrConfig.versionMaximum = version);
+        profile.considerTransposed().ifPresent(transposed -> qrConfig.considerTransposed = transposed);
+        qrConfig.checkValidity();
+        return qrConfig;
+    }
+}
@@ -0,0 +1,332 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.abst.fiducial.QrCodeDetector;
+import boofcv.alg.fiducial.qrcode.QrCode;
+import boofcv.struct.image.GrayU8;
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import cn.lihongjie.qrcode.image.GrayImageDecoder;
+import cn.lihongjie.qrcode.image.ImageDimensions;
+import cn.lihongjie.qrcode.model.ProcessingTime;
+import cn.lihongjie.qrcode.model.QRCodeInfo;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.shapes.Polygon2D_F64;
+
+import java.awt.Rectangle;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单个视频帧流的QR码跟踪器
+ *
+ * 每个WebSocket连接持有一个实例，独占一个QrCodeDetector和两块灰度图像缓冲区（当前帧、上一检测帧），
+ * 连续帧之间不再分配图像内存，检测提交到共享的检测线程池执行。每一帧按以下顺序处理：
+ * <ol>
+ *   <li>与上一检测帧做抽样帧差，画面未变化时直接跳过；</li>
+ *   <li>已有跟踪中的QR码时，只在上一帧边界框扩展后的区域内检测，全部找回即视为跟踪成功；</li>
+ *   <li>跟踪丢失、尚无跟踪目标或距上次全帧检测已达到间隔时，做一次全帧检测。</li>
+ * </ol>
+ * 只有解码出的内容集合发生变化时才返回结果，其余情况返回null。
+ *
+ * 帧格式：以 "GRAY" 开头的帧为原始灰度帧，随后是大端序的宽、高（各4字节）和 宽×高 字节的像素；
+ * 其他帧按图片（JPEG/PNG等）解码。
+ */
+public class FrameTracker implements Closeable {
+
+    /**
+     * 原始灰度帧的头部长度："GRAY" + 宽 + 高
+     */
+    public static final int GRAY_HEADER_SIZE = 12;
+
+    private static final int GRAY_MAGIC = ('G' << 24) | ('R' << 16) | ('A' << 8) | 'Y';
+
+    static final String OUTCOME_UNCHANGED = "unchanged";
+    static final String OUTCOME_TRACKED = "tracked";
+    static final String OUTCOME_FULL = "full";
+    static final String OUTCOME_DROPPED = "dropped";
+    static final String OUTCOME_REJECTED = "rejected";
+
+    private final QRCodeTrackingService service;
+    private final QRCodeConfig.Tracking settings;
+    private final QrCodeDetector<GrayU8> detector;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private GrayU8 current = new GrayU8(1, 1);
+    private GrayU8 reference = new GrayU8(1, 1);
+    private boolean hasReference;
+
+    // 跟踪中的QR码，边界框为整帧坐标
+    private List<QrCode> tracked = new ArrayList<>();
+    private Set<String> lastContents = Set.of();
+    private int frameNumber;
+    private int framesSinceFullScan;
+    private boolean closed;
+
+    FrameTracker(QRCodeTrackingService service, QRCodeConfig.Tracking settings, QrCodeDetector<GrayU8> detector) {
+        this.service = service;
+        this.settings = settings;
+        this.detector = detector;
+    }
+
+    /**
+     * 处理一帧
+     *
+     * 上一帧仍在处理时到达的帧直接丢弃：摄像头帧会被后续帧取代，排队处理只会增加延迟。
+     *
+     * @param frame 帧数据，读取范围为 position 到 limit，不会修改其位置
+     * @return 内容集合发生变化时返回检测结果，否则返回null
+     * @throws IllegalArgumentException 帧格式无法识别或尺寸超出限制
+     * @throws IOException 帧数据损坏
+     * @throws InterruptedException 等待检测线程池时被中断
+     */
+    public QRCodeResult process(ByteBuffer frame) throws IOException, InterruptedException {
+        if (!lock.tryLock()) {
+            service.recordFrame(OUTCOME_DROPPED);
+            return null;
+        }
+        try {
+            if (closed) {
+                return null;
+            }
+            long startTime = System.nanoTime();
+            frameNumber++;
+
+            String format;
+            try {
+                format = decodeFrame(frame);
+            } catch (IllegalArgumentException | IOException e) {
+                service.recordFrame(OUTCOME_REJECTED);
+                throw e;
+            }
+            long loadEnd = System.nanoTime();
+
+            if (hasReference && isUnchanged(current, reference)) {
+                service.recordFrame(OUTCOME_UNCHANGED);
+                return null;
+            }
+
+            String outcome;
+            if (!tracked.isEmpty() && framesSinceFullScan < settings.fullScanInterval() && track(current)) {
+                outcome = OUTCOME_TRACKED;
+                framesSinceFullScan++;
+            } else {
+                fullScan(current);
+                outcome = OUTCOME_FULL;
+                framesSinceFullScan = 0;
+            }
+            service.recordFrame(outcome);
+
+            // 本帧成为下一帧帧差的参照，原参照缓冲区留给下一帧解码复用
+            GrayU8 processed = current;
+            current = reference;
+            reference = processed;
+            hasReference = true;
+
+            Set<String> contents = contentsOf(tracked);
+            if (contents.equals(lastContents)) {
+                return null;
+            }
+            lastContents = contents;
+
+            List<QRCodeInfo> qrCodeInfos = service.toQRCodeInfos(tracked);
+            for (QRCodeInfo info : qrCodeInfos) {
+                info.setFrameIndex(frameNumber);
+            }
+            long endTime = System.nanoTime();
+            ProcessingTime processingTime = new ProcessingTime(TimeUnit.NANOSECONDS.toMillis(endTime - startTime),
+                    TimeUnit.NANOSECONDS.toMillis(loadEnd - startTime), TimeUnit.NANOSECONDS.toMillis(endTime - loadEnd));
+            processingTime.addStage(DetectionStage.DECODE.getName(), loadEnd - startTime);
+            processingTime.addStage(DetectionStage.DETECTION.getName(), endTime - loadEnd);
+            processingTime.setFileSizeBytes(frame.remaining());
+            processingTime.setImageFormat(format);
+            processingTime.setImageWidth(processed.width);
+            processingTime.setImageHeight(processed.height);
+            processingTime.setDetectionMode(outcome);
+            service.recordUpdate();
+            return new QRCodeResult(true, qrCodeInfos, processingTime);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 已接收的帧数（包括被跳过的帧，不包括被丢弃的帧）
+     */
+    public int getFrameNumber() {
+        return frameNumber;
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            tracked = List.of();
+            current = null;
+            reference = null;
+        } finally {
+            lock.unlock();
+        }
+        service.closed(this);
+    }
+
+    private String decodeFrame(ByteBuffer frame) throws IOException {
+        if (frame.remaining() >= GRAY_HEADER_SIZE && frame.getInt(frame.position()) == GRAY_MAGIC) {
+            int width = frame.getInt(frame.position() + 4);
+            int height = frame.getInt(frame.position() + 8);
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("灰度帧尺寸无效: " + width + "x" + height);
+            }
+            checkPixels(width, height);
+            long pixels = (long) width * height;
+            if (frame.remaining() - GRAY_HEADER_SIZE < pixels) {
+                throw new IllegalArgumentException("灰度帧数据长度不足: 需要 " + pixels + " 字节");
+            }
+            current.reshape(width, height);
+            frame.get(frame.position() + GRAY_HEADER_SIZE, current.data, 0, (int) pixels);
+            return "gray";
+        }
+
+        ImageDimensions dimensions = GrayImageDecoder.probe(frame);
+        if (dimensions == null) {
+            throw new IllegalArgumentException("无法识别的帧格式");
+        }
+        checkPixels(dimensions.getWidth(), dimensions.getHeight());
+        String format = GrayImageDecoder.decode(frame, current);
+        if (format == null) {
+            throw new IllegalArgumentException("无法识别的帧格式");
+        }
+        return format;
+    }
+
+    private void checkPixels(int width, int height) {
+        long maxPixels = settings.maxFramePixels();
+        if (maxPixels > 0 && (long) width * height > maxPixels) {
+            throw new IllegalArgumentException("帧尺寸 " + width + "x" + height + " 超过像素上限 " + maxPixels);
+        }
+    }
+
+    /**
+     * 抽样比较两帧，变化像素比例低于阈值时视为未变化
+     */
+    private boolean isUnchanged(GrayU8 frame, GrayU8 previous) {
+        if (frame.width != previous.width || frame.height != previous.height) {
+            return false;
+        }
+        int step = Math.max(1, settings.diffSampleStep());
+        int threshold = settings.pixelDiffThreshold();
+        long sampled = 0;
+        long changed = 0;
+        for (int y = 0; y < frame.height; y += step) {
+            int index = frame.startIndex + y * frame.stride;
+            int previousIndex = previous.startIndex + y * previous.stride;
+            for (int x = 0; x < frame.width; x += step) {
+                int diff = (frame.data[index + x] & 0xFF) - (previous.data[previousIndex + x] & 0xFF);
+                if (diff > threshold || diff < -threshold) {
+                    changed++;
+                }
+                sampled++;
+            }
+        }
+        return changed < sampled * settings.minChangedRatio();
+    }
+
+    /**
+     * 在每个跟踪目标上一帧边界框扩展后的区域内重新检测，任一目标丢失即返回false
+     */
+    private boolean track(GrayU8 frame) throws InterruptedException {
+        List<QrCode> updated = new ArrayList<>(tracked.size());
+        for (QrCode previous : tracked) {
+            Rectangle region = searchRegion(previous.bounds, frame.width, frame.height);
+            if (region.isEmpty()) {
+                return false;
+            }
+            GrayU8 roi = frame.subimage(region.x, region.y, region.x + region.width, region.y + region.height);
+            QrCode match = service.detect(() -> {
+                detector.process(roi);
+                for (QrCode candidate : detector.getDetections()) {
+                    if (Objects.equals(candidate.message, previous.message)) {
+                        return copyOf(candidate, region.x, region.y);
+                    }
+                }
+                return null;
+            });
+            if (match == null) {
+                return false;
+            }
+            updated.add(match);
+        }
+        tracked = updated;
+        return true;
+    }
+
+    private void fullScan(GrayU8 frame) throws InterruptedException {
+        tracked = service.detect(() -> {
+            detector.process(frame);
+            List<QrCode> detections = detector.getDetections();
+            List<QrCode> found = new ArrayList<>(detections.size());
+            for (QrCode detection : detections) {
+                found.add(copyOf(detection, 0, 0));
+            }
+            return found;
+        });
+    }
+
+    private Rectangle searchRegion(Polygon2D_F64 bounds, int width, int height) {
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < bounds.size(); i++) {
+            Point2D_F64 corner = bounds.get(i);
+            minX = Math.min(minX, corner.x);
+            minY = Math.min(minY, corner.y);
+            maxX = Math.max(maxX, corner.x);
+            maxY = Math.max(maxY, corner.y);
+        }
+        double margin = Math.max(maxX - minX, maxY - minY) * settings.roiMargin();
+        int x0 = clamp((int) Math.floor(minX - margin), width);
+        int y0 = clamp((int) Math.floor(minY - margin), height);
+        int x1 = clamp((int) Math.ceil(maxX + margin), width);
+        int y1 = clamp((int) Math.ceil(maxY + margin), height);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    /**
+     * 复制检测结果：检测器会在下一次process时复用内部的QrCode对象
+     */
+    private static QrCode copyOf(QrCode detection, int offsetX, int offsetY) {
+        QrCode copy = new QrCode();
+        copy.message = detection.message;
+        copy.bounds.setTo(detection.bounds);
+        for (int i = 0; i < copy.bounds.size(); i++) {
+            Point2D_F64 corner = copy.bounds.get(i);
+            corner.x += offsetX;
+            corner.y += offsetY;
+        }
+        return copy;
+    }
+
+    private static Set<String> contentsOf(List<QrCode> codes) {
+        Set<String> contents = new LinkedHashSet<>();
+        for (QrCode code : codes) {
+            contents.add(code.message);
+        }
+        return contents;
+    }
+}
@@ -0,0 +1,43 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.struct.image.GrayU8;
+
+/**
+ * 单次检测使用的图像缓冲区
+ * 
+ * 解码输出和粗检测的缩小图像都通过 reshape 复用已有的数组，
+ * 只有图片比之前处理过的都大时才重新分配。
+ */
+public class ImageArena {
+    
+    /**
+     * 解码后的全分辨率灰度图像
+     */
+    final GrayU8 image = new GrayU8(1, 1);
+    
+    /**
+     * 粗检测等中间步骤使用的临时图像
+     */
+    final GrayU8 scratch = new GrayU8(1, 1);
+    
+    /**
+     * 当前持有的像素数组总字节数
+     */
+    long retainedBytes() {
+        return (long) image.data.length + scratch.data.length;
+    }
+    
+    /**
+     * 释放超过上限的缓冲区，避免一张超大图片的数组被长期持有
+     */
+    void trim(long maxRetainedPixels) {
+        if (image.data.length > maxRetainedPixels) {
+            image.data = new byte[1];
+            image.reshape(1, 1);
+        }
+        if (scratch.data.length > maxRetainedPixels) {
+            scratch.data = new byte[1];
+            scratch.reshape(1, 1);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package cn.lihongjie.qrcode.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 图像缓冲区池
+ * 
+ * 每个检测请求借用一个 {@link ImageArena}，处理完成后归还。
+ * 池中最多保留 maxPooled 个缓冲区，归还时超过 maxRetainedPixels 的数组会被释放。
+ */
+public class ImageArenaPool {
+    
+    private final BlockingQueue<ImageArena> pooled;
+    private final long maxRetainedPixels;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    
+    public ImageArenaPool(int maxPooled, long maxRetainedPixels) {
+        this.pooled = new ArrayBlockingQueue<>(maxPooled);
+        this.maxRetainedPixels = maxRetainedPixels;
+    }
+    
+    /**
+     * 借用一个缓冲区，池为空时创建新的
+     */
+    public ImageArena borrow() {
+        ImageArena arena = pooled.poll();
+        if (arena == null) {
+            return new ImageArena();
+        }
+        pooledBytes.addAndGet(-arena.retainedBytes());
+        return arena;
+    }
+    
+    /**
+     * 归还缓冲区，池已满时直接丢弃
+     */
+    public void release(ImageArena arena) {
+        if (arena == null) {
+            return;
+        }
+        arena.trim(maxRetainedPixels);
+        long bytes = arena.retainedBytes();
+        if (pooled.offer(arena)) {
+            pooledBytes.addAndGet(bytes);
+        }
+    }
+    
+    /**
+     * 池中空闲的缓冲区数量
+     */
+    public int getPooledCount() {
+        return pooled.size();
+    }
+    
+    /**
+     * 池中空闲缓冲区持有的字节数
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+}
@@ -0,0 +1,18 @@
+package cn.lihongjie.qrcode.service;
+
+/**
+ * 图片句柄不存在、已过期或解码图像缓存未启用
+ */
+public class ImageHandleNotFoundException extends RuntimeException {
+    
+    private final String token;
+    
+    public ImageHandleNotFoundException(String token) {
+        super("图片句柄不存在或已过期: " + token);
+        this.token = token;
+    }
+    
+    public String getToken() {
+        return token;
+    }
+}
@@ -0,0 +1,106 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.struct.image.GrayU8;
+import cn.lihongjie.qrcode.image.GrayImageDecoder;
+import cn.lihongjie.qrcode.image.ImageDimensions;
+import cn.lihongjie.qrcode.image.ImageFrameReader;
+import cn.lihongjie.qrcode.image.RawLuminance;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 待检测的图片来源：内存中的完整图片、多帧图片中的一帧，或未压缩的灰度像素
+ */
+interface ImageSource {
+    
+    /**
+     * 编码后的图片数据，用于结果缓存和记录文件大小；无法单独缓存的来源返回null
+     */
+    ByteBuffer content();
+    
+    /**
+     * 只读取图片头获取尺寸
+     * 
+     * @return 图片尺寸，无法识别时返回null
+     */
+    ImageDimensions probe() throws IOException;
+    
+    /**
+     * 解码为灰度图像
+     * 
+     * @return 图片格式名称，无法识别时返回null
+     */
+    String decode(GrayU8 output, int subsampling) throws IOException;
+    
+    /**
+     * 已是灰度像素的来源直接返回其图像，检测时不经过解码和复制；需要解码的来源返回null
+     */
+    default GrayU8 pixels() {
+        return null;
+    }
+    
+    static ImageSource of(ByteBuffer data) {
+        return new ImageSource() {
+            @Override
+            public ByteBuffer content() {
+                return data;
+            }
+            
+            @Override
+            public ImageDimensions probe() throws IOException {
+                return GrayImageDecoder.probe(data);
+            }
+            
+            @Override
+            public String decode(GrayU8 output, int subsampling) throws IOException {
+                return GrayImageDecoder.decode(data, output, subsampling);
+            }
+        };
+    }
+    
+    static ImageSource frame(ImageFrameReader frames, int index) {
+        return new ImageSource() {
+            @Override
+            public ByteBuffer content() {
+                return null;
+            }
+            
+            @Override
+            public ImageDimensions probe() throws IOException {
+                return frames.frameDimensions(index);
+            }
+            
+            @Override
+            public String decode(GrayU8 output, int subsampling) throws IOException {
+                frames.readFrame(index, output, subsampling);
+                return frames.getFormat();
+            }
+        };
+    }
+    
+    static ImageSource gray(GrayU8 image, String format) {
+        return new ImageSource() {
+            @Override
+            public ByteBuffer content() {
+                return null;
+            }
+            
+            @Override
+            public ImageDimensions probe() {
+                return new ImageDimensions(image.width, image.height, format);
+            }
+            
+            @Override
+            public String decode(GrayU8 output, int subsampling) {
+                RawLuminance.subsample(image, subsampling, output);
+                return format;
+            }
+            
+            @Override
+            public GrayU8 pixels() {
+                return image;
+            }
+        };
+    }
+}
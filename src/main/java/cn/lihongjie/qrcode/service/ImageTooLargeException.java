@@ -0,0 +1,30 @@
+package cn.lihongjie.qrcode.service;
+
+/**
+ * 图片像素数超出预算且策略为拒绝
+ */
+public class ImageTooLargeException extends RuntimeException {
+    
+    private final int width;
+    private final int height;
+    private final long maxPixels;
+    
+    public ImageTooLargeException(int width, int height, long maxPixels) {
+        super("图片尺寸过大: " + width + "x" + height + "，最多允许 " + maxPixels + " 像素");
+        this.width = width;
+        this.height = height;
+        this.maxPixels = maxPixels;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    public long getMaxPixels() {
+        return maxPixels;
+    }
+}
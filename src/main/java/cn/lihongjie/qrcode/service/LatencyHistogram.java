@@ -0,0 +1,130 @@
+package cn.lihongjie.qrcode.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 对数线性分桶的延迟直方图（与HdrHistogram相同的分桶方式）
+ * 
+ * 以微秒记录，32以下的值精确记录，更大的值在每个2的幂区间内再等分为32个子桶，相对误差不超过1/32。
+ * 分桶数固定，记录只做一次数组下标计算和原子自增，可以被多个线程同时记录。
+ */
+public final class LatencyHistogram {
+    
+    // 每个2的幂区间的子桶数为 2^SUB_BUCKET_BITS
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    
+    // 可记录的最大值约19小时（微秒），更大的值计入最后一个桶
+    private static final int MAX_EXPONENT = 36;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    
+    /**
+     * 记录一个值
+     * 
+     * @param micros 延迟（微秒），负数按0记录
+     */
+    public void record(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_VALUE));
+        counts.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+    
+    /**
+     * 清空所有计数
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+    
+    /**
+     * 将计数累加到快照中
+     */
+    public void addTo(Snapshot snapshot) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long bucket = counts.get(i);
+            if (bucket != 0) {
+                snapshot.counts[i] += bucket;
+                snapshot.count += bucket;
+            }
+        }
+        snapshot.max = Math.max(snapshot.max, max.get());
+    }
+    
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+    
+    /**
+     * 桶内的最大值，即落入该桶的值的上界
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+    
+    /**
+     * 一个或多个直方图合并后的只读快照，不是线程安全的
+     */
+    public static final class Snapshot {
+        
+        private final long[] counts = new long[BUCKET_COUNT];
+        private long count;
+        private long max;
+        
+        public long getCount() {
+            return count;
+        }
+        
+        /**
+         * 记录的最大值（微秒）
+         */
+        public long getMax() {
+            return max;
+        }
+        
+        /**
+         * 分位数（微秒）：返回排在该位置的值所在桶的上界，不超过记录的最大值；没有记录时返回0
+         * 
+         * @param quantile 0到1之间的分位，如0.99
+         */
+        public long percentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
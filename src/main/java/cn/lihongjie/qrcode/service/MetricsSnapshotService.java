@@ -0,0 +1,257 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Multi;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 指标快照
+ *
+ * 通过注册表的 onMeterAdded / onMeterRemoved 回调持有 qrcode.* 指标的引用，生成快照时不遍历整个注册表
+ * （JVM、HTTP路由等指标数量远多于qrcode指标）。快照序列化后缓存 snapshot-interval，
+ * 期间所有查询和SSE推送共用同一份字节，打开多个仪表板也只在每个间隔内生成一次。
+ */
+@ApplicationScoped
+public class MetricsSnapshotService {
+
+    static final String PREFIX = "qrcode.";
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    QRCodeConfig config;
+
+    @Inject
+    QRCodeMetricsService metricsService;
+
+    // qrcode.* 指标，键为指标名，带标签的指标附加 {tag=value,...}
+    private final Map<String, Meter> meters = new ConcurrentSkipListMap<>();
+
+    private CachedJson qrcodeSnapshot;
+    private CachedJson streamSnapshot;
+    private CachedJson allSnapshot;
+
+    @PostConstruct
+    void init() {
+        // 先注册回调再扫描已有指标，两者之间注册的指标会被重复放入，按键去重
+        meterRegistry.config().onMeterAdded(this::add);
+        meterRegistry.config().onMeterRemoved(meter -> meters.remove(key(meter.getId())));
+        for (Meter meter : meterRegistry.getMeters()) {
+            add(meter);
+        }
+
+        long intervalNanos = config.metrics().snapshotInterval().toNanos();
+        this.qrcodeSnapshot = new CachedJson(intervalNanos, this::qrcodeMetrics);
+        this.streamSnapshot = new CachedJson(intervalNanos, this::streamPayload);
+        this.allSnapshot = new CachedJson(intervalNanos, this::allMetrics);
+    }
+
+    private void add(Meter meter) {
+        if (meter.getId().getName().startsWith(PREFIX)) {
+            meters.put(key(meter.getId()), meter);
+        }
+    }
+
+    /**
+     * qrcode.* 指标的JSON，格式与 /metrics/qrcode 相同
+     */
+    public byte[] qrcodeJson() {
+        return qrcodeSnapshot.get();
+    }
+
+    /**
+     * 注册表中全部指标的JSON，格式与 /metrics/json 相同
+     */
+    public byte[] allJson() {
+        return allSnapshot.get();
+    }
+
+    /**
+     * 仪表板推送内容：qrcode指标、滑动窗口统计和最近60秒的逐秒数据
+     */
+    public String streamJson() {
+        return new String(streamSnapshot.get(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 按 stream-interval 推送仪表板内容，订阅后立即推送一次；客户端处理不过来时丢弃中间的推送
+     */
+    public Multi<String> stream() {
+        return Multi.createFrom().ticks()
+                .startingAfter(Duration.ZERO)
+                .every(config.metrics().streamInterval())
+                .onOverflow().drop()
+                .map(tick -> streamJson());
+    }
+
+    private Map<String, Object> qrcodeMetrics() {
+        Map<String, Object> qrMetrics = new LinkedHashMap<>();
+        for (Map.Entry<String, Meter> entry : meters.entrySet()) {
+            Object value = value(entry.getValue());
+            if (value != null) {
+                qrMetrics.put(entry.getKey(), value);
+            }
+        }
+        return qrMetrics;
+    }
+
+    private Map<String, Object> streamPayload() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("qrcode", qrcodeMetrics());
+        payload.put("windows", metricsService.getRollingStats().windows());
+        payload.put("series", metricsService.getRollingStats().series());
+        payload.put("timestamp", System.currentTimeMillis());
+        return payload;
+    }
+
+    private Map<String, Object> allMetrics() {
+        Map<String, Double> counters = new HashMap<>();
+        Map<String, Object> timers = new HashMap<>();
+        Map<String, Double> gauges = new HashMap<>();
+        Map<String, Object> summaries = new HashMap<>();
+
+        for (Meter meter : meterRegistry.getMeters()) {
+            String name = meter.getId().getName();
+            if (meter instanceof Counter counter) {
+                counters.put(name, counter.count());
+            } else if (meter instanceof Timer timer) {
+                timers.put(name, timerData(timer));
+            } else if (meter instanceof Gauge gauge) {
+                gauges.put(name, gauge.value());
+            } else if (meter instanceof DistributionSummary summary) {
+                summaries.put(name, summaryData(summary));
+            }
+        }
+
+        Map<String, Object> metricsData = new HashMap<>();
+        metricsData.put("counters", counters);
+        metricsData.put("timers", timers);
+        metricsData.put("gauges", gauges);
+        metricsData.put("summaries", summaries);
+        metricsData.put("timestamp", System.currentTimeMillis());
+        return metricsData;
+    }
+
+    private static Object value(Meter meter) {
+        if (meter instanceof Counter counter) {
+            return counter.count();
+        } else if (meter instanceof Timer timer) {
+            return timerData(timer);
+        } else if (meter instanceof Gauge gauge) {
+            return gauge.value();
+        } else if (meter instanceof DistributionSummary summary) {
+            return summaryData(summary);
+        }
+        return null;
+    }
+
+    private static Map<String, Object> timerData(Timer timer) {
+        Map<String, Object> timerData = new LinkedHashMap<>();
+        timerData.put("count", timer.count());
+        timerData.put("totalTime", timer.totalTime(TimeUnit.MILLISECONDS));
+        timerData.put("mean", timer.mean(TimeUnit.MILLISECONDS));
+        timerData.put("max", timer.max(TimeUnit.MILLISECONDS));
+        return timerData;
+    }
+
+    private static Map<String, Object> summaryData(DistributionSummary summary) {
+        Map<String, Object> summaryData = new LinkedHashMap<>();
+        summaryData.put("count", summary.count());
+        summaryData.put("totalAmount", summary.totalAmount());
+        summaryData.put("mean", summary.mean());
+        summaryData.put("max", summary.max());
+        return summaryData;
+    }
+
+    /**
+     * 快照中的指标键：无标签时为指标名，否则为 name{tag=value,...}（标签按名称排序）
+     */
+    static String key(Meter.Id id) {
+        if (id.getTags().isEmpty()) {
+            return id.getName();
+        }
+        StringBuilder key = new StringBuilder(id.getName()).append('{');
+        boolean first = true;
+        for (Tag tag : id.getTags()) {
+            if (!first) {
+                key.append(',');
+            }
+            key.append(tag.getKey()).append('=').append(tag.getValue());
+            first = false;
+        }
+        return key.append('}').toString();
+    }
+
+    /**
+     * 按间隔缓存的JSON：过期后第一个调用方重新生成，其余调用方等待并共用新结果
+     */
+    private final class CachedJson {
+
+        private final long intervalNanos;
+        private final Supplier<Object> source;
+        private volatile Entry entry;
+
+        CachedJson(long intervalNanos, Supplier<Object> source) {
+            this.intervalNanos = intervalNanos;
+            this.source = source;
+        }
+
+        byte[] get() {
+            Entry current = entry;
+            if (current == null || System.nanoTime() - current.createdNanos >= intervalNanos) {
+                synchronized (this) {
+                    current = entry;
+                    if (current == null || System.nanoTime() - current.createdNanos >= intervalNanos) {
+                        current = new Entry(serialize(source.get()), System.nanoTime());
+                        entry = current;
+                    }
+                }
+            }
+            return current.json;
+        }
+    }
+
+    private static final class Entry {
+
+        final byte[] json;
+        final long createdNanos;
+
+        Entry(byte[] json, long createdNanos) {
+            this.json = json;
+            this.createdNanos = createdNanos;
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.struct.image.GrayU8;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 异步QR码检测服务
+ * 
+ * 返回 {@link Uni}，检测在虚拟线程上执行。订阅被取消时（RESTEasy Reactive 在客户端断开连接时会取消订阅）
+ * 通过 {@link CancellationToken} 通知检测流程：仍在排队的请求直接跳过检测，正在执行的请求在下一个检查点退出。
+ */
+@ApplicationScoped
+public class QRCodeAsyncDetectionService {
+    
+    @Inject
+    QRCodeDetectionService qrCodeDetectionService;
+    
+    private ExecutorService executor;
+    
+    @PostConstruct
+    void init() {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("qrcode-async-", 1).factory());
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * 异步检测QR码
+     * 
+     * @param imageBuffer 图片数据，读取范围为 position 到 limit；在返回的Uni完成前不能修改
+     * @param options 检测选项
+     * @return 检测结果；被准入控制拒绝或图片超出像素预算时以对应异常失败
+     */
+    public Uni<QRCodeResult> detectQRCodes(ByteBuffer imageBuffer, DetectionOptions options) {
+        return detect(token -> qrCodeDetectionService.detectQRCodes(imageBuffer, options, token));
+    }
+    
+    /**
+     * 异步读取图片文件并检测QR码，文件在虚拟线程上读取
+     * 
+     * @param imageFile 图片文件
+     * @param options 检测选项
+     * @return 检测结果；读取文件失败时以 UncheckedIOException 失败
+     */
+    public Uni<QRCodeResult> detectQRCodes(Path imageFile, DetectionOptions options) {
+        return detect(token -> qrCodeDetectionService.detectQRCodes(imageFile, options, token));
+    }
+    
+    /**
+     * 异步检测未压缩的灰度像素
+     * 
+     * @param image 灰度图像；在返回的Uni完成前不能修改其像素数据
+     * @param format 像素格式名称
+     * @param options 检测选项
+     * @return 检测结果；被准入控制拒绝或图片超出像素预算时以对应异常失败
+     */
+    public Uni<QRCodeResult> detectQRCodes(GrayU8 image, String format, DetectionOptions options) {
+        return detect(token -> qrCodeDetectionService.detectQRCodes(image, format, options, token));
+    }
+    
+    /**
+     * 异步检测解码图像缓存中的图像
+     * 
+     * @param imageToken 图片句柄
+     * @param roi 只检测的区域（原图坐标），null表示整幅图像
+     * @param options 检测选项
+     * @return 检测结果；句柄不存在时以 ImageHandleNotFoundException 失败，区域无效时以 IllegalArgumentException 失败
+     */
+    public Uni<QRCodeResult> detectImageHandle(String imageToken, Rectangle roi, DetectionOptions options) {
+        return detect(token -> qrCodeDetectionService.detectImageHandle(imageToken, roi, options, token));
+    }
+    
+    private Uni<QRCodeResult> detect(Detection detection) {
+        return Uni.createFrom().deferred(() -> {
+            CancellationToken token = new CancellationToken();
+            return Uni.createFrom().item(() -> detect(detection, token))
+                    .runSubscriptionOn(executor)
+                    .onCancellation().invoke(token::cancel);
+        });
+    }
+    
+    private QRCodeResult detect(Detection detection, CancellationToken token) {
+        token.bind(Thread.currentThread());
+        try {
+            return detection.run(token);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            token.unbind();
+        }
+    }
+    
+    @FunctionalInterface
+    private interface Detection {
+        QRCodeResult run(CancellationToken token) throws IOException;
+    }
+}
@@ -0,0 +1,225 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import cn.lihongjie.qrcode.model.ProcessingTime;
+import cn.lihongjie.qrcode.model.QRCodeBatchItem;
+import cn.lihongjie.qrcode.model.QRCodeBatchResult;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 批量QR码检测服务
+ * 
+ * 将一个请求中的多张图片分发到固定大小的线程池中并行检测，
+ * 单张图片失败只影响该图片自身的结果。
+ */
+@ApplicationScoped
+public class QRCodeBatchService {
+    
+    private static final Logger LOG = Logger.getLogger(QRCodeBatchService.class);
+    
+    @Inject
+    QRCodeDetectionService qrCodeDetectionService;
+    
+    @Inject
+    QRCodeConfig config;
+    
+    private ExecutorService executor;
+    
+    private int maxItems;
+    private int maxEntryBytes;
+    private long maxArchiveBytes;
+    
+    @PostConstruct
+    void init() {
+        int parallelism = config.batch().parallelism();
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        this.maxItems = config.batch().maxItems();
+        // 数组长度上限略小于Integer.MAX_VALUE
+        this.maxEntryBytes = Math.min(Math.max(0, config.batch().maxEntryBytes()), Integer.MAX_VALUE - 8);
+        this.maxArchiveBytes = Math.max(0, config.batch().maxArchiveBytes());
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "qrcode-batch-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        LOG.info("批量检测线程池初始化完成, 并行度: " + parallelism);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    public int getMaxItems() {
+        return maxItems;
+    }
+    
+    /**
+     * 并行检测多张图片
+     * 
+     * @param sources 图片来源列表
+     * @param options 检测选项，应用于每张图片
+     * @return 批量检测结果，items 顺序与 sources 一致
+     */
+    public QRCodeBatchResult detectBatch(List<? extends BatchImageSource> sources, DetectionOptions options) {
+        long startTime = System.currentTimeMillis();
+        
+        if (sources.size() > maxItems) {
+            return new QRCodeBatchResult(false, "单次最多检测 " + maxItems + " 张图片");
+        }
+        
+        List<Future<QRCodeResult>> futures = new ArrayList<>(sources.size());
+        for (BatchImageSource source : sources) {
+            futures.add(executor.submit(() -> detectSingle(source, options)));
+        }
+        
+        List<QRCodeBatchItem> items = new ArrayList<>(sources.size());
+        for (int i = 0; i < futures.size(); i++) {
+            QRCodeResult result;
+            try {
+                result = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                return new QRCodeBatchResult(false, "批量检测被中断");
+            } catch (ExecutionException e) {
+                LOG.error("批量检测图片时出错: " + sources.get(i).getName(), e.getCause());
+                result = new QRCodeResult(false, "处理图片失败: " + e.getCause().getMessage());
+            }
+            items.add(new QRCodeBatchItem(i, sources.get(i).getName(), result));
+        }
+        
+        return new QRCodeBatchResult(items, aggregate(items, System.currentTimeMillis() - startTime));
+    }
+    
+    /**
+     * 检测zip压缩包中的所有图片
+     * 
+     * 每个文件边解压边计数，超过单个文件或整个压缩包的解压大小上限时不再读取，
+     * 该文件作为失败项返回，防止压缩炸弹在检测开始前耗尽内存。
+     * 
+     * @param zipStream zip数据流
+     * @param options 检测选项，应用于每张图片
+     * @return 批量检测结果
+     * @throws IOException 读取压缩包失败
+     */
+    public QRCodeBatchResult detectZip(InputStream zipStream, DetectionOptions options) throws IOException {
+        List<BatchImageSource> sources = new ArrayList<>();
+        long archiveBytes = 0;
+        try (ZipInputStream zip = new ZipInputStream(zipStream)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || isIgnoredEntry(entry.getName())) {
+                    continue;
+                }
+                if (sources.size() >= maxItems) {
+                    return new QRCodeBatchResult(false, "单次最多检测 " + maxItems + " 张图片");
+                }
+                String name = entry.getName();
+                long archiveRemaining = maxArchiveBytes - archiveBytes;
+                boolean archiveLimited = archiveRemaining < maxEntryBytes;
+                int limit = (int) (archiveLimited ? archiveRemaining : maxEntryBytes);
+                // 多读一个字节用于判断是否超出上限，readNBytes 按实际读取的数据分配内存
+                byte[] bytes = zip.readNBytes(limit + 1);
+                if (bytes.length > limit) {
+                    String message = archiveLimited
+                            ? "压缩包解压后的总大小超过上限 " + maxArchiveBytes + " 字节"
+                            : "文件解压后超过上限 " + maxEntryBytes + " 字节";
+                    LOG.warn("跳过压缩包中的文件 " + name + ": " + message);
+                    if (archiveLimited) {
+                        // 总大小已用完，后续文件均按超过总大小处理
+                        archiveBytes = maxArchiveBytes;
+                    }
+                    sources.add(failedSource(name, message));
+                    continue;
+                }
+                archiveBytes += bytes.length;
+                sources.add(new BatchImageSource() {
+                    @Override
+                    public String getName() {
+                        return name;
+                    }
+                    
+                    @Override
+                    public byte[] read() {
+                        return bytes;
+                    }
+                });
+            }
+        }
+        return detectBatch(sources, options);
+    }
+    
+    private static BatchImageSource failedSource(String name, String message) {
+        return new BatchImageSource() {
+            @Override
+            public String getName() {
+                return name;
+            }
+            
+            @Override
+            public byte[] read() throws IOException {
+                throw new IOException(message);
+            }
+        };
+    }
+    
+    private QRCodeResult detectSingle(BatchImageSource source, DetectionOptions options) {
+        byte[] imageBytes;
+        try {
+            imageBytes = source.read();
+        } catch (IOException e) {
+            LOG.error("读取批量图片失败: " + source.getName(), e);
+            return new QRCodeResult(false, "读取文件失败: " + e.getMessage());
+        }
+        try {
+            return qrCodeDetectionService.detectQRCodes(imageBytes, options);
+        } catch (AdmissionRejectedException | ImageTooLargeException e) {
+            // 批量请求整体已被接受，单张图片被拒绝时只标记该图片失败
+            return new QRCodeResult(false, e.getMessage());
+        }
+    }
+    
+    /**
+     * 汇总各图片的处理时间：总时间为整个批次的耗时，其余字段为各图片之和
+     */
+    private ProcessingTime aggregate(List<QRCodeBatchItem> items, long totalTimeMs) {
+        ProcessingTime processingTime = new ProcessingTime();
+        processingTime.setTotalTimeMs(totalTimeMs);
+        for (QRCodeBatchItem item : items) {
+            ProcessingTime itemTime = item.getResult().getProcessingTime();
+            if (itemTime == null) {
+                continue;
+            }
+            processingTime.setImageLoadTimeMs(processingTime.getImageLoadTimeMs() + itemTime.getImageLoadTimeMs());
+            processingTime.setDetectionTimeMs(processingTime.getDetectionTimeMs() + itemTime.getDetectionTimeMs());
+            processingTime.setFileSizeBytes(processingTime.getFileSizeBytes() + itemTime.getFileSizeBytes());
+        }
+        return processingTime;
+    }
+    
+    private boolean isIgnoredEntry(String name) {
+        String fileName = name.substring(name.lastIndexOf('/') + 1);
+        return name.startsWith("__MACOSX/") || fileName.startsWith(".");
+    }
+}
@@ -2,9 +2,12 @@ package cn.lihongjie.qrcode.service;
 
 import boofcv.abst.fiducial.QrCodeDetector;
 import boofcv.alg.fiducial.qrcode.QrCode;
-import boofcv.factory.fiducial.FactoryFiducial;
 import boofcv.io.image.ConvertBufferedImage;
 import boofcv.struct.image.GrayU8;
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import cn.lihongjie.qrcode.image.GrayImageScaler;
+import cn.lihongjie.qrcode.image.ImageDimensions;
+import cn.lihongjie.qrcode.image.ImageFrameReader;
 import cn.lihongjie.qrcode.model.BoundingBox;
 import cn.lihongjie.qrcode.model.Point;
 import cn.lihongjie.qrcode.model.ProcessingTime;
@@ -13,15 +16,28 @@ import cn.lihongjie.qrcode.model.QRCodeResult;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.shapes.Polygon2D_F64;
 import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
 
-import javax.imageio.ImageIO;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * QR码检测服务
@@ -31,14 +47,87 @@ public class QRCodeDetectionService {
     
     private static final Logger LOG = Logger.getLogger(QRCodeDetectionService.class);
     
-    private final QrCodeDetector<GrayU8> detector;
+    // 发现请求已取消时所处的阶段，用作取消计数的标签
+    static final String STAGE_ADMISSION = "admission";
+    static final String STAGE_DECODE = "decode";
+    static final String STAGE_DETECTION_QUEUE = "detection_queue";
+    static final String STAGE_DETECTION = "detection";
     
     @Inject
     QRCodeMetricsService metricsService;
     
-    public QRCodeDetectionService() {
-        // 创建QR码检测器
-        this.detector = FactoryFiducial.qrcode(null, GrayU8.class);
+    @Inject
+    QRCodeConfig config;
+    
+    @Inject
+    QRCodeResultCache resultCache;
+    
+    @Inject
+    AdmissionController admissionController;
+    
+    @Inject
+    DetectionExecutor detectionExecutor;
+    
+    // 按检测配置划分的检测器池，检测器实例不是线程安全的，每次检测借用一个独占实例
+    @Inject
+    DetectorProfiles detectorProfiles;
+    
+    @Inject
+    TiledDetector tiledDetector;
+    
+    @Inject
+    DecodedImageCache imageCache;
+    
+    @Inject
+    SlowRequestSampler slowRequestSampler;
+    
+    private long borrowTimeoutNanos;
+    
+    // 图像缓冲区池，复用解码输出和中间图像的数组
+    private ImageArenaPool arenaPool;
+    
+    // 单张图片的像素预算，0表示不限制
+    private long maxPixels;
+    
+    private QRCodeConfig.PixelBudget.Policy pixelBudgetPolicy;
+    
+    // 多帧图片单次请求的帧数上限和并行度
+    private int maxFrames;
+    private int frameParallelism;
+    
+    // 多帧图片的逐帧解码任务在虚拟线程上执行，检测阶段仍提交到检测线程池
+    private ExecutorService frameExecutor;
+    
+    @PostConstruct
+    void init() {
+        this.borrowTimeoutNanos = config.detector().pool().borrowTimeout().toNanos();
+        
+        int maxPooled = config.arena().maxPooled();
+        if (maxPooled <= 0) {
+            maxPooled = Runtime.getRuntime().availableProcessors() * 2;
+        }
+        this.arenaPool = new ImageArenaPool(maxPooled, config.arena().maxRetainedPixels());
+        metricsService.registerImageArenaPool(arenaPool);
+        
+        this.maxPixels = config.pixelBudget().maxPixels();
+        this.pixelBudgetPolicy = config.pixelBudget().policy();
+        
+        this.maxFrames = Math.max(1, config.frames().maxFrames());
+        int parallelism = config.frames().parallelism();
+        this.frameParallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.frameExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("qrcode-frame-", 1).factory());
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        frameExecutor.shutdownNow();
+    }
+    
+    /**
+     * 单次请求最多检测的帧数
+     */
+    public int getMaxFrames() {
+        return maxFrames;
     }
     
     /**
@@ -48,219 +137,1028 @@ public class QRCodeDetectionService {
      * @return 检测结果
      */
     public QRCodeResult detectQRCodes(byte[] imageBytes) {
-        long startTime = System.currentTimeMillis();
+        return detectQRCodes(ByteBuffer.wrap(imageBytes), DetectionOptions.defaults());
+    }
+    
+    /**
+     * 从图片字节数组中检测QR码
+     * 
+     * @param imageBytes 图片字节数组
+     * @param options 检测选项
+     * @return 检测结果
+     */
+    public QRCodeResult detectQRCodes(byte[] imageBytes, DetectionOptions options) {
+        return detectQRCodes(ByteBuffer.wrap(imageBytes), options);
+    }
+    
+    /**
+     * 从内存中的图片数据检测QR码，直接读取缓冲区内容，不复制到新的字节数组
+     * 
+     * @param imageBuffer 图片数据，读取范围为 position 到 limit
+     * @param options 检测选项
+     * @return 检测结果
+     */
+    public QRCodeResult detectQRCodes(ByteBuffer imageBuffer, DetectionOptions options) {
+        return detectQRCodes(imageBuffer, options, CancellationToken.NONE);
+    }
+    
+    /**
+     * 从内存中的图片数据检测QR码，支持取消
+     * 
+     * 在等待准入、解码之后、等待检测线程以及由粗到精检测的各候选区域之间检查取消标记，
+     * 已取消的请求跳过剩余工作并返回失败结果。
+     * 
+     * @param imageBuffer 图片数据，读取范围为 position 到 limit
+     * @param options 检测选项
+     * @param token 取消标记
+     * @return 检测结果
+     */
+    public QRCodeResult detectQRCodes(ByteBuffer imageBuffer, DetectionOptions options, CancellationToken token) {
+        return detect(ImageSource.of(imageBuffer), options, token);
+    }
+    
+    /**
+     * 读取图片文件并检测QR码，读取文件的耗时计入 body_read 阶段
+     * 
+     * @param imageFile 图片文件，如multipart上传的临时文件
+     * @param options 检测选项
+     * @param token 取消标记
+     * @return 检测结果
+     * @throws IOException 读取文件失败
+     */
+    public QRCodeResult detectQRCodes(Path imageFile, DetectionOptions options, CancellationToken token) throws IOException {
+        ProcessingTime processingTime = new ProcessingTime();
+        long readStart = System.nanoTime();
+        ByteBuffer imageBuffer = ByteBuffer.wrap(Files.readAllBytes(imageFile));
+        processingTime.addStage(DetectionStage.BODY_READ.getName(), System.nanoTime() - readStart);
+        return detect(ImageSource.of(imageBuffer), options, token, processingTime);
+    }
+    
+    /**
+     * 从未压缩的灰度像素中检测QR码，跳过图片解码
+     * 
+     * 图像不超出像素预算时直接在传入的图像上检测，不复制像素；超出时按预算策略拒绝或抽样复制。
+     * 检测期间调用方不能修改图像数据。
+     * 
+     * @param image 灰度图像，可以是引用外部数组的子图像
+     * @param format 像素格式名称，记录在处理时间信息中
+     * @param options 检测选项
+     * @param token 取消标记
+     * @return 检测结果
+     */
+    public QRCodeResult detectQRCodes(GrayU8 image, String format, DetectionOptions options, CancellationToken token) {
+        return detect(ImageSource.gray(image, format), options, token);
+    }
+    
+    /**
+     * 在解码图像缓存中的图像上再次检测，不重新上传和解码图片
+     * 
+     * 缓存的像素只读，检测直接在其上进行（指定区域时为引用缓存数组的子图像），多个请求可以同时检测同一图像。
+     * 结果坐标和图片尺寸都是原图坐标。
+     * 
+     * @param imageToken 首次请求返回的图片句柄
+     * @param roi 只检测的区域（原图坐标），null表示整幅图像；超出图像的部分被裁掉
+     * @param options 检测选项
+     * @param token 取消标记
+     * @return 检测结果
+     * @throws ImageHandleNotFoundException 句柄不存在、已过期或缓存未启用
+     * @throws IllegalArgumentException 区域与图像没有交集
+     */
+    public QRCodeResult detectImageHandle(String imageToken, Rectangle roi, DetectionOptions options, CancellationToken token) {
+        DecodedImageCache.CachedImage cached = imageCache.get(imageToken);
+        if (cached == null) {
+            throw new ImageHandleNotFoundException(imageToken);
+        }
+        
+        // 区域按缓存图像的抽样倍数换算到缓存图像坐标
+        int scale = cached.getSubsampling();
+        int left = 0;
+        int top = 0;
+        int right = cached.getWidth();
+        int bottom = cached.getHeight();
+        if (roi != null) {
+            left = clamp(roi.x / scale, cached.getWidth());
+            top = clamp(roi.y / scale, cached.getHeight());
+            right = clamp((int) ceilDiv(roi.x + roi.width, scale), cached.getWidth());
+            bottom = clamp((int) ceilDiv(roi.y + roi.height, scale), cached.getHeight());
+            if (right <= left || bottom <= top) {
+                throw new IllegalArgumentException("检测区域与图片没有交集: " + roi.x + "," + roi.y + "," + roi.width + "," + roi.height
+                        + ", 图片尺寸: " + cached.getOriginalWidth() + "x" + cached.getOriginalHeight());
+            }
+        }
+        
+        GrayU8 view = cached.view(left, top, right - left, bottom - top);
+        QRCodeResult result = detect(ImageSource.gray(view, cached.getFormat()), options, token);
+        
+        // 坐标从区域坐标映射回原图：(x + 区域偏移) * 抽样倍数
+        if (result.getQrCodes() != null) {
+            for (QRCodeInfo info : result.getQrCodes()) {
+                List<Point> corners = new ArrayList<>();
+                for (Point corner : info.getBoundingBox().getCorners()) {
+                    corners.add(new Point((corner.getX() + left) * scale, (corner.getY() + top) * scale));
+                }
+                info.setBoundingBox(new BoundingBox(corners));
+            }
+        }
+        ProcessingTime processingTime = result.getProcessingTime();
+        if (processingTime != null) {
+            processingTime.setImageCacheHit(true);
+            processingTime.setImageWidth(cached.getOriginalWidth());
+            processingTime.setImageHeight(cached.getOriginalHeight());
+            processingTime.setSubsampling(scale > 1 ? scale : null);
+        }
+        result.setImageToken(imageToken);
+        return result;
+    }
+    
+    /**
+     * 删除解码图像缓存中的图像
+     * 
+     * @return 句柄是否存在
+     */
+    public boolean releaseImageHandle(String imageToken) {
+        return imageCache.invalidate(imageToken);
+    }
+    
+    /**
+     * 检测多帧图片中的一帧
+     * 
+     * @param frames 多帧图片读取器，调用方负责关闭；同一读取器不能被多个线程同时使用
+     * @param index 帧序号，从0开始
+     * @param options 检测选项
+     * @param token 取消标记
+     * @return 检测结果
+     */
+    public QRCodeResult detectFrame(ImageFrameReader frames, int index, DetectionOptions options, CancellationToken token) {
+        return detect(ImageSource.frame(frames, index), options, token);
+    }
+    
+    private QRCodeResult detect(ImageSource source, DetectionOptions options, CancellationToken token) {
+        return detect(source, options, token, new ProcessingTime());
+    }
+    
+    /**
+     * 检测并把请求耗时和结果记入滑动窗口统计；返回失败结果或抛出异常的请求计为错误。
+     * 耗时超过慢请求阈值时保存样本
+     * 
+     * @param processingTime 处理时间对象，可以已记录调用方完成的阶段（如读取请求体）
+     */
+    private QRCodeResult detect(ImageSource source, DetectionOptions options, CancellationToken token, ProcessingTime processingTime) {
+        long startTime = System.nanoTime();
+        QRCodeResult result = null;
+        try {
+            result = detectSource(source, options, token, processingTime);
+            return result;
+        } finally {
+            long totalNanos = System.nanoTime() - startTime;
+            metricsService.recordRequest(totalNanos, result != null && result.isSuccess());
+            // 结果自带的处理时间优先（如多帧检测汇总的各帧耗时）
+            ProcessingTime recorded = result != null && result.getProcessingTime() != null ? result.getProcessingTime() : processingTime;
+            slowRequestSampler.record(source, options, result, recorded, totalNanos);
+        }
+    }
+    
+    private QRCodeResult detectSource(ImageSource source, DetectionOptions options, CancellationToken token, ProcessingTime processingTime) {
+        long startTime = System.nanoTime();
+        AllocationTracker.Scope allocation = AllocationTracker.begin();
         Timer.Sample totalProcessingSample = metricsService.startTotalProcessingTimer();
         metricsService.incrementDetectionRequest();
+        metricsService.incrementRequestThread(Thread.currentThread().isVirtual());
+        ImageArena arena = arenaPool.borrow();
+        AdmissionController.Permit permit = null;
         
-        ProcessingTime processingTime = new ProcessingTime();
-        processingTime.setFileSizeBytes(imageBytes.length);
+        ByteBuffer imageBuffer = source.content();
         
         try {
             // 记录文件大小
-            metricsService.recordFileSize(imageBytes.length);
+            if (imageBuffer != null) {
+                int fileSize = imageBuffer.remaining();
+                processingTime.setFileSizeBytes(fileSize);
+                metricsService.recordFileSize(fileSize);
+            }
             
-            // 直接从字节数组加载为BoofCV图像 - 优化的加载方式
-            long imageLoadStart = System.currentTimeMillis();
+            // 查询结果缓存，相同内容的图片直接返回之前的检测结果；要求保留图像的请求需要解码，不查询缓存
+            String cacheKey = null;
+            if (imageBuffer != null && resultCache.isEnabled() && !options.isCacheBypass() && !options.isRetainImage()) {
+                cacheKey = resultCache.key(imageBuffer, options);
+                QRCodeResult cached = resultCache.get(cacheKey);
+                if (cached != null) {
+                    // 缓存中的阶段耗时属于原请求，命中时只返回本次的查询耗时和图片信息
+                    ProcessingTime original = cached.getProcessingTime();
+                    if (original != null) {
+                        processingTime.setImageFormat(original.getImageFormat());
+                        processingTime.setImageWidth(original.getImageWidth());
+                        processingTime.setImageHeight(original.getImageHeight());
+                    }
+                    processingTime.setCacheHit(true);
+                    processingTime.setTotalTimeMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                    cached.setProcessingTime(processingTime);
+                    metricsService.incrementSuccessfulDetection();
+                    metricsService.incrementQrCodesDetected(cached.getCount());
+                    return cached;
+                }
+                processingTime.setCacheHit(false);
+            }
+            
+            // 多帧图片（TIFF多页、GIF动画）逐帧并行检测，每一帧单独获取准入许可
+            if (imageBuffer != null && ImageFrameReader.isMultiFrame(imageBuffer)) {
+                checkCancelled(token, STAGE_ADMISSION);
+                QRCodeResult result = detectFrames(imageBuffer, processingTime, options, token);
+                return completeResult(result, processingTime, startTime, cacheKey);
+            }
+            
+            // 解码前只读取图片头检查像素预算，超出时拒绝（ImageTooLargeException）或确定抽样倍数
+            ImageDimensions dimensions = null;
+            int subsampling = 1;
+            if (maxPixels > 0) {
+                long probeStart = System.nanoTime();
+                dimensions = probeImage(source);
+                processingTime.addStage(DetectionStage.PROBE.getName(), System.nanoTime() - probeStart);
+                if (dimensions == null) {
+                    metricsService.incrementFailedDetection();
+                    return new QRCodeResult(false, "无法读取图片文件");
+                }
+                subsampling = pixelBudgetSubsampling(dimensions);
+            }
+            
+            // 准入控制，并发已满时排队，队列满或超时抛出 AdmissionRejectedException
+            checkCancelled(token, STAGE_ADMISSION);
+            permit = acquirePermit(processingTime, token);
+            checkCancelled(token, STAGE_ADMISSION);
+            
+            // 解码为BoofCV灰度图像
+            long imageLoadStart = System.nanoTime();
             Timer.Sample imageLoadSample = metricsService.startImageLoadTimer();
             
             // 直接加载图片为GrayU8，不进行预处理
-            GrayU8 grayImage = loadImageSimpleDirect(imageBytes, processingTime);
+            GrayU8 grayImage = loadImageSimpleDirect(source, arena.image, processingTime, subsampling);
             
-            long imageLoadEnd = System.currentTimeMillis();
+            long imageLoadTime = System.nanoTime() - imageLoadStart;
             metricsService.stopImageLoadTimer(imageLoadSample);
             
-            long imageLoadTime = imageLoadEnd - imageLoadStart;
-            processingTime.setImageLoadTimeMs(imageLoadTime);
+            processingTime.setImageLoadTimeMs(TimeUnit.NANOSECONDS.toMillis(imageLoadTime));
+            processingTime.addStage(DetectionStage.DECODE.getName(), imageLoadTime);
             
             if (grayImage == null) {
                 metricsService.incrementFailedDetection();
                 return new QRCodeResult(false, "无法读取图片文件");
             }
             
-            // 记录图片尺寸
-            metricsService.recordImageDimensions(grayImage.getWidth(), grayImage.getHeight());
-            
-            QRCodeResult result = detectQRCodesFromGrayImage(grayImage, processingTime);
+            // 抽样解码时返回原图尺寸，检测结果坐标也会映射回原图
+            if (subsampling > 1) {
+                processingTime.setSubsampling(subsampling);
+                processingTime.setImageWidth(dimensions.getWidth());
+                processingTime.setImageHeight(dimensions.getHeight());
+            }
             
-            // 计算总时间
-            long totalTime = System.currentTimeMillis() - startTime;
-            processingTime.setTotalTimeMs(totalTime);
-            result.setProcessingTime(processingTime);
+            // 记录图片尺寸
+            metricsService.recordImageDimensions(processingTime.getImageWidth(), processingTime.getImageHeight());
             
-            if (result.isSuccess()) {
-                metricsService.incrementSuccessfulDetection();
-                metricsService.incrementQrCodesDetected(result.getCount());
-            } else {
-                metricsService.incrementFailedDetection();
+            // 保留解码后的图像，后续请求通过图片句柄复用，不再上传和解码
+            String imageToken = null;
+            if (options.isRetainImage() && imageBuffer != null && imageCache.isEnabled()) {
+                imageToken = imageCache.token(imageBuffer);
+                imageCache.put(imageToken, grayImage, processingTime.getImageFormat(), subsampling,
+                        processingTime.getImageWidth(), processingTime.getImageHeight());
             }
             
+            checkCancelled(token, STAGE_DECODE);
+            QRCodeResult result = detectQRCodesFromGrayImage(grayImage, arena.scratch, processingTime, options, subsampling, token);
+            completeResult(result, processingTime, startTime, cacheKey);
+            result.setImageToken(imageToken);
             return result;
             
+        } catch (AdmissionRejectedException | ImageTooLargeException e) {
+            metricsService.incrementFailedDetection();
+            throw e;
+        } catch (DetectionCancelledException e) {
+            LOG.debug("检测请求已取消, 阶段: " + e.getStage());
+            return new QRCodeResult(false, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            metricsService.incrementFailedDetection();
+            return new QRCodeResult(false, "检测被中断");
         } catch (Exception e) {
             LOG.error("处理图片时出错", e);
             metricsService.incrementFailedDetection();
-            long totalTime = System.currentTimeMillis() - startTime;
-            processingTime.setTotalTimeMs(totalTime);
+            processingTime.setTotalTimeMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
             QRCodeResult result = new QRCodeResult(false, "处理图片失败: " + e.getMessage());
             result.setProcessingTime(processingTime);
             return result;
         } finally {
+            admissionController.release(permit);
+            arenaPool.release(arena);
             metricsService.stopTotalProcessingTimer(totalProcessingSample);
+            metricsService.recordStages(processingTime);
+            // 请求线程（平台线程时）、检测线程池和分块线程上的分配量之和
+            long allocated = allocation.close();
+            if (allocated >= 0) {
+                metricsService.recordAllocatedBytes(allocated);
+            }
+        }
+    }
+    
+    /**
+     * 准入控制，并发已满时排队，等待时间计入 admission_wait 阶段
+     */
+    private AdmissionController.Permit acquirePermit(ProcessingTime processingTime, CancellationToken token) throws InterruptedException {
+        long waitStart = System.nanoTime();
+        try {
+            return admissionController.acquire();
+        } catch (InterruptedException e) {
+            checkCancelled(token, STAGE_ADMISSION);
+            throw e;
+        } finally {
+            processingTime.addStage(DetectionStage.ADMISSION_WAIT.getName(), System.nanoTime() - waitStart);
         }
     }
     
     /**
-     * 直接从字节数组加载图片为灰度图像，避免BufferedImage转换
-     * 优化版本：使用更高效的内存操作
+     * 记录总时间和检测结果计数，成功的结果写入缓存
      * 
-     * @param imageBytes 图片字节数据
-     * @param processingTime 处理时间对象，用于记录图片信息
-     * @return 灰度图像，如果加载失败返回null
+     * @param startTime 请求开始时的 System.nanoTime
+     */
+    private QRCodeResult completeResult(QRCodeResult result, ProcessingTime processingTime, long startTime, String cacheKey) {
+        // 计算总时间
+        processingTime.setTotalTimeMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        result.setProcessingTime(processingTime);
+        
+        if (result.isSuccess()) {
+            metricsService.incrementSuccessfulDetection();
+            metricsService.incrementQrCodesDetected(result.getCount());
+            if (cacheKey != null) {
+                resultCache.put(cacheKey, result);
+            }
+        } else {
+            metricsService.incrementFailedDetection();
+        }
+        
+        return result;
+    }
+    
+    /**
+     * 检测多帧图片的所有帧（不超过帧数上限）
+     * 
+     * 每个工作线程持有独立的帧读取器（ImageReader不是线程安全的，读取器共享同一个只读缓冲区），
+     * 按帧序号领取任务：解码一帧到独立的图像缓冲区，然后提交到检测线程池，多帧的检测在多个核上并行。
+     * 每一帧在解码前获取一个准入许可、检测后归还，多帧请求和单帧请求一样受并发上限约束，
+     * 许可的持有时间也只是单帧的耗时。
+     * 请求限制了 maxCodes 时，已找到足够的QR码后不再领取新的帧，结果按帧序号截取前 maxCodes 个。
+     * 
+     * @param imageBuffer 图片数据
+     * @param processingTime 处理时间对象，记录帧数、解码和检测耗时之和
+     * @param options 检测选项
+     * @param token 取消标记
+     * @return 合并后的检测结果，每个QR码带有所在的帧序号
+     */
+    private QRCodeResult detectFrames(ByteBuffer imageBuffer, ProcessingTime processingTime, DetectionOptions options, CancellationToken token)
+            throws IOException, InterruptedException {
+        int frameCount;
+        try (ImageFrameReader frames = ImageFrameReader.open(imageBuffer)) {
+            if (frames == null) {
+                return new QRCodeResult(false, "无法读取图片文件");
+            }
+            frameCount = frames.getFrameCount();
+            processingTime.setImageFormat(frames.getFormat());
+            ImageDimensions first = frames.frameDimensions(0);
+            if (first != null) {
+                processingTime.setImageWidth(first.getWidth());
+                processingTime.setImageHeight(first.getHeight());
+            }
+        }
+        int limit = Math.min(frameCount, maxFrames);
+        processingTime.setFrameCount(frameCount);
+        processingTime.setFramesProcessed(limit);
+        if (frameCount > maxFrames) {
+            LOG.warn("图片共 " + frameCount + " 帧, 超出单次请求上限, 只检测前 " + maxFrames + " 帧");
+        }
+        
+        QRCodeResult[] frameResults = new QRCodeResult[limit];
+        AtomicInteger nextFrame = new AtomicInteger();
+        AtomicInteger found = new AtomicInteger();
+        int workers = Math.min(frameParallelism, limit);
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            // 帧工作线程是虚拟线程，自身的分配量无法统计，但提交到检测线程池的任务仍计入本次请求
+            futures.add(frameExecutor.submit(AllocationTracker.wrap(() -> {
+                try (ImageFrameReader frames = ImageFrameReader.open(imageBuffer)) {
+                    int index;
+                    while (!options.isSatisfied(found.get()) && (index = nextFrame.getAndIncrement()) < limit) {
+                        checkCancelled(token, STAGE_DECODE);
+                        QRCodeResult frameResult = detectSingleFrame(frames, index, options, token);
+                        frameResults[index] = frameResult;
+                        found.addAndGet(frameResult.getCount());
+                    }
+                }
+                return null;
+            })));
+        }
+        
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            // 停止领取新的帧，等待已开始的帧结束后再归还图像缓冲区
+            nextFrame.set(limit);
+            awaitAll(futures);
+            checkCancelled(token, STAGE_DETECTION);
+            throw e;
+        } catch (ExecutionException e) {
+            nextFrame.set(limit);
+            awaitAll(futures);
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("读取图片帧失败: " + e.getCause().getMessage(), e.getCause());
+        }
+        
+        List<QRCodeInfo> qrCodeInfos = new ArrayList<>();
+        int framesProcessed = 0;
+        long frameMicros = 0;
+        for (int index = 0; index < limit; index++) {
+            QRCodeResult frameResult = frameResults[index];
+            if (frameResult == null) {
+                // 已找到足够的QR码，该帧被跳过
+                continue;
+            }
+            framesProcessed++;
+            if (!frameResult.isSuccess()) {
+                return new QRCodeResult(false, "第 " + index + " 帧检测失败: " + frameResult.getMessage());
+            }
+            ProcessingTime frameTime = frameResult.getProcessingTime();
+            processingTime.setImageLoadTimeMs(processingTime.getImageLoadTimeMs() + frameTime.getImageLoadTimeMs());
+            processingTime.setDetectionTimeMs(processingTime.getDetectionTimeMs() + frameTime.getDetectionTimeMs());
+            processingTime.addStages(frameTime);
+            if (frameTime.getStages() != null) {
+                // 排队等待不是帧本身的耗时，不计入跳过帧的估算
+                frameMicros += frameTime.getStages().values().stream().mapToLong(Long::longValue).sum()
+                        - frameTime.getStages().getOrDefault(DetectionStage.ADMISSION_WAIT.getName(), 0L);
+            }
+            if (processingTime.getDetectionMode() == null) {
+                processingTime.setDetectionMode(frameTime.getDetectionMode());
+            }
+            qrCodeInfos.addAll(frameResult.getQrCodes());
+        }
+        if (framesProcessed < limit) {
+            processingTime.setFramesProcessed(framesProcessed);
+            processingTime.setEarlyExit(true);
+            // 跳过的帧按已检测帧的平均耗时估算
+            if (framesProcessed > 0) {
+                setEstimatedSavedTime(processingTime, TimeUnit.MICROSECONDS.toNanos(frameMicros / framesProcessed * (limit - framesProcessed)));
+            }
+        }
+        if (qrCodeInfos.size() > options.remaining(0)) {
+            qrCodeInfos = new ArrayList<>(qrCodeInfos.subList(0, options.getMaxCodes()));
+        }
+        return new QRCodeResult(true, qrCodeInfos, processingTime);
+    }
+    
+    /**
+     * 获取准入许可后解码并检测一帧，QR码标记帧序号
      */
+    private QRCodeResult detectSingleFrame(ImageFrameReader frames, int index, DetectionOptions options, CancellationToken token)
+            throws IOException, InterruptedException {
+        ProcessingTime frameTime = new ProcessingTime();
+        AdmissionController.Permit permit = acquirePermit(frameTime, token);
+        ImageArena arena = null;
+        try {
+            checkCancelled(token, STAGE_ADMISSION);
+            arena = arenaPool.borrow();
+            int subsampling = 1;
+            if (maxPixels > 0) {
+                long probeStart = System.nanoTime();
+                ImageDimensions dimensions = frames.frameDimensions(index);
+                frameTime.addStage(DetectionStage.PROBE.getName(), System.nanoTime() - probeStart);
+                subsampling = dimensions != null ? pixelBudgetSubsampling(dimensions) : 1;
+            }
+            
+            long imageLoadStart = System.nanoTime();
+            frames.readFrame(index, arena.image, subsampling);
+            long imageLoadTime = System.nanoTime() - imageLoadStart;
+            frameTime.setImageLoadTimeMs(TimeUnit.NANOSECONDS.toMillis(imageLoadTime));
+            frameTime.addStage(DetectionStage.DECODE.getName(), imageLoadTime);
+            
+            checkCancelled(token, STAGE_DECODE);
+            QRCodeResult result = detectQRCodesFromGrayImage(arena.image, arena.scratch, frameTime, options, subsampling, token);
+            if (result.isSuccess()) {
+                for (QRCodeInfo qrCodeInfo : result.getQrCodes()) {
+                    qrCodeInfo.setFrameIndex(index);
+                }
+            }
+            result.setProcessingTime(frameTime);
+            return result;
+        } finally {
+            arenaPool.release(arena);
+            admissionController.release(permit);
+        }
+    }
+    
+    private static void awaitAll(List<Future<?>> futures) {
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
     /**
-     * 简化的直接加载方法：只进行必要的BufferedImage到GrayU8转换，不做任何预处理
+     * 请求已取消时记录被跳过的阶段并抛出 DetectionCancelledException
      */
-    private GrayU8 loadImageSimpleDirect(byte[] imageBytes, ProcessingTime processingTime) {
-        BufferedImage bufferedImage = null;
+    private void checkCancelled(CancellationToken token, String stage) {
+        if (token.isCancelled()) {
+            metricsService.incrementDetectionCancelled(stage);
+            throw new DetectionCancelledException(stage);
+        }
+    }
+    
+    /**
+     * 只读取图片头获取尺寸
+     * 
+     * @param source 图片来源
+     * @return 图片尺寸，无法识别或图片头损坏时返回null
+     */
+    private ImageDimensions probeImage(ImageSource source) {
         try {
-            // 从字节数组创建BufferedImage
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(imageBytes);
-            bufferedImage = ImageIO.read(inputStream);
-            inputStream.close();
+            return source.probe();
+        } catch (Exception e) {
+            LOG.warn("读取图片头失败: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 根据像素预算计算解码抽样倍数
+     * 
+     * @param dimensions 图片尺寸
+     * @return 抽样倍数，未超出预算时为1
+     * @throws ImageTooLargeException 超出预算且策略为拒绝
+     */
+    private int pixelBudgetSubsampling(ImageDimensions dimensions) {
+        if (dimensions.getPixels() <= maxPixels) {
+            return 1;
+        }
+        if (pixelBudgetPolicy == QRCodeConfig.PixelBudget.Policy.REJECT) {
+            metricsService.incrementPixelBudgetExceeded("reject");
+            throw new ImageTooLargeException(dimensions.getWidth(), dimensions.getHeight(), maxPixels);
+        }
+        
+        // 抽样后尺寸为 ceil(宽/倍数) x ceil(高/倍数)，从面积比的平方根开始向上取满足预算的最小倍数
+        int factor = Math.max(2, (int) Math.ceil(Math.sqrt((double) dimensions.getPixels() / maxPixels)));
+        while (ceilDiv(dimensions.getWidth(), factor) * ceilDiv(dimensions.getHeight(), factor) > maxPixels) {
+            factor++;
+        }
+        metricsService.incrementPixelBudgetExceeded("downsample");
+        LOG.info("图片尺寸 " + dimensions.getWidth() + "x" + dimensions.getHeight() + " 超出像素预算, 按 1/" + factor + " 抽样解码");
+        return factor;
+    }
+    
+    private static long ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+    
+    /**
+     * 直接从图片来源加载灰度图像
+     * 
+     * JPEG只解码Y通道、PNG按扫描行流式解码，直接得到GrayU8，不创建RGB的BufferedImage；
+     * 其他格式回退到ImageIO；未压缩的灰度像素不抽样时直接返回来源的图像。
+     * 
+     * @param source 图片来源
+     * @param grayImage 输出图像，复用其像素数组
+     * @param processingTime 处理时间对象，用于记录图片信息
+     * @param subsampling 解码抽样倍数，1表示全尺寸
+     * @return 灰度图像，如果加载失败返回null
+     */
+    private GrayU8 loadImageSimpleDirect(ImageSource source, GrayU8 grayImage, ProcessingTime processingTime, int subsampling) {
+        try {
+            // 未压缩的灰度像素无需抽样时直接检测，不复制到缓冲区
+            GrayU8 pixels = subsampling == 1 ? source.pixels() : null;
+            String format;
+            if (pixels != null) {
+                grayImage = pixels;
+                format = source.probe().getFormat();
+            } else {
+                format = source.decode(grayImage, subsampling);
+            }
             
-            if (bufferedImage == null) {
+            if (format == null) {
                 return null;
             }
             
             // 记录图片信息
-            processingTime.setImageWidth(bufferedImage.getWidth());
-            processingTime.setImageHeight(bufferedImage.getHeight());
-            
-            // 直接转换为GrayU8，不做任何预处理
-            GrayU8 grayImage = ConvertBufferedImage.convertFrom(bufferedImage, (GrayU8) null);
+            processingTime.setImageFormat(format);
+            processingTime.setImageWidth(grayImage.getWidth());
+            processingTime.setImageHeight(grayImage.getHeight());
             
             return grayImage;
             
         } catch (Exception e) {
             LOG.error("简化图片加载失败: " + e.getMessage(), e);
             return null;
-        } finally {
-            // 及时释放BufferedImage资源
-            if (bufferedImage != null) {
-                bufferedImage.flush();
-                bufferedImage = null;
-            }
         }
     }
     
     /**
-     * 从灰度图像中检测QR码
+     * 从灰度图像中检测QR码，检测阶段在检测线程池中执行
      * 
      * @param grayImage 灰度图像
+     * @param scratch 中间步骤使用的临时图像
      * @param processingTime 处理时间对象
+     * @param options 检测选项
+     * @param scale 灰度图像相对原图的缩小倍数，结果坐标乘以该倍数映射回原图
+     * @param token 取消标记
      * @return 检测结果
+     * @throws DetectionCancelledException 请求在等待检测线程时被取消
      */
-    private QRCodeResult detectQRCodesFromGrayImage(GrayU8 grayImage, ProcessingTime processingTime) {
+    private QRCodeResult detectQRCodesFromGrayImage(GrayU8 grayImage, GrayU8 scratch, ProcessingTime processingTime, DetectionOptions options, int scale, CancellationToken token) {
+        long submitted = System.nanoTime();
         try {
+            return detectionExecutor.execute(() -> {
+                processingTime.addStage(DetectionStage.DETECTION_QUEUE.getName(), System.nanoTime() - submitted);
+                return runDetection(grayImage, scratch, processingTime, options, scale, token);
+            });
+        } catch (InterruptedException e) {
+            checkCancelled(token, STAGE_DETECTION_QUEUE);
+            Thread.currentThread().interrupt();
+            return new QRCodeResult(false, "检测QR码被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DetectionCancelledException cancelled) {
+                throw cancelled;
+            }
+            LOG.error("检测QR码时出错", e.getCause());
+            return new QRCodeResult(false, "检测QR码失败: " + e.getCause().getMessage());
+        }
+    }
+    
+    /**
+     * 借用检测器并执行检测
+     */
+    private QRCodeResult runDetection(GrayU8 grayImage, GrayU8 scratch, ProcessingTime processingTime, DetectionOptions options, int scale, CancellationToken token) {
+        if (options.getMode() == DetectionMode.TILED && tiledDetector.needsTiling(grayImage)) {
+            return runTiledDetection(grayImage, processingTime, options, scale, token);
+        }
+        DetectorPool detectorPool = detectorProfiles.pool(options.getProfile());
+        QrCodeDetector<GrayU8> detector = null;
+        try {
+            checkCancelled(token, STAGE_DETECTION_QUEUE);
+            
+            // 从请求所选配置的池中借用检测器
+            long borrowStart = System.nanoTime();
+            try {
+                detector = detectorPool.borrow(borrowTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                metricsService.incrementDetectorBorrowTimeout();
+                LOG.warn(e.getMessage());
+                return new QRCodeResult(false, "检测服务繁忙，请稍后重试");
+            } finally {
+                long borrowWait = System.nanoTime() - borrowStart;
+                metricsService.recordDetectorBorrowWait(borrowWait);
+                processingTime.addStage(DetectionStage.DETECTOR_WAIT.getName(), borrowWait);
+            }
+            
             // 检测QR码
-            long detectionStart = System.currentTimeMillis();
+            long detectionStart = System.nanoTime();
             Timer.Sample detectionSample = metricsService.startQrDetectionTimer();
-            detector.process(grayImage);
-            List<QrCode> detections = detector.getDetections();
-            long detectionEnd = System.currentTimeMillis();
-            metricsService.stopQrDetectionTimer(detectionSample);
             
-            long detectionTime = detectionEnd - detectionStart;
-            processingTime.setDetectionTimeMs(detectionTime);
+            List<QRCodeInfo> qrCodeInfos = null;
+            String detectionMode = DetectionMode.FULL.getName();
+            if (options.getMode() == DetectionMode.COARSE) {
+                qrCodeInfos = detectCoarseToFine(detector, grayImage, scratch, processingTime, options, scale, token);
+                detectionMode = qrCodeInfos != null ? DetectionMode.COARSE.getName() : "coarse-fallback";
+            }
+            if (qrCodeInfos == null) {
+                long fullStart = System.nanoTime();
+                detector.process(grayImage);
+                // 检测结果属于检测器实例，必须在归还检测器之前完成转换
+                qrCodeInfos = toQRCodeInfos(detector.getDetections(), 0, 0, scale, options, options.remaining(0));
+                processingTime.addStage(DetectionStage.DETECTION.getName(), System.nanoTime() - fullStart);
+            }
             
-            List<QRCodeInfo> qrCodeInfos = new ArrayList<>();
+            long detectionTime = System.nanoTime() - detectionStart;
+            metricsService.stopQrDetectionTimer(detectionSample);
+            metricsService.recordProfileDetection(detectorPool.getName(), detectionTime);
             
-            for (QrCode qrCode : detections) {
-                // 获取QR码内容
-                String content = qrCode.message;
-                
-                // 获取边界框
-                Polygon2D_F64 bounds = qrCode.bounds;
-                List<Point> corners = new ArrayList<>();
-                
-                for (int i = 0; i < bounds.size(); i++) {
-                    Point2D_F64 corner = bounds.get(i);
-                    corners.add(new Point(corner.x, corner.y));
-                }
-                
-                BoundingBox boundingBox = new BoundingBox(corners);
-                
-                // 计算置信度（基于QR码检测的质量）
-                double confidence = calculateConfidence(qrCode);
-                
-                QRCodeInfo qrCodeInfo = new QRCodeInfo(content, boundingBox, confidence);
-                qrCodeInfos.add(qrCodeInfo);
-                
-                LOG.info("检测到QR码: " + content + ", 位置: " + boundingBox.getX() + "," + boundingBox.getY());
+            processingTime.setDetectionTimeMs(TimeUnit.NANOSECONDS.toMillis(detectionTime));
+            processingTime.setDetectionMode(detectionMode);
+            if (!DetectorProfiles.DEFAULT.equals(detectorPool.getName())) {
+                processingTime.setDetectorProfile(detectorPool.getName());
             }
             
             return new QRCodeResult(true, qrCodeInfos, processingTime);
             
+        } catch (InterruptedException e) {
+            checkCancelled(token, STAGE_DETECTION_QUEUE);
+            Thread.currentThread().interrupt();
+            return new QRCodeResult(false, "检测QR码被中断");
+        } catch (DetectionCancelledException e) {
+            throw e;
         } catch (Exception e) {
             LOG.error("检测QR码时出错", e);
             return new QRCodeResult(false, "检测QR码失败: " + e.getMessage());
+        } finally {
+            detectorPool.release(detector);
         }
     }
     
     /**
-     * 从BufferedImage中检测QR码（内部方法）
-     * 
-     * @param bufferedImage BufferedImage对象
-     * @param processingTime 处理时间对象
-     * @return 检测结果
+     * 分块并行检测，分块分散到空闲的检测线程上，每个线程从请求所选配置的池中借用检测器
      */
-    private QRCodeResult detectQRCodesInternal(BufferedImage bufferedImage, ProcessingTime processingTime) {
+    private QRCodeResult runTiledDetection(GrayU8 grayImage, ProcessingTime processingTime, DetectionOptions options, int scale, CancellationToken token) {
         try {
-            // 转换为灰度图像
-            GrayU8 grayImage = ConvertBufferedImage.convertFrom(bufferedImage, (GrayU8) null);
+            checkCancelled(token, STAGE_DETECTION_QUEUE);
             
-            // 检测QR码
-            long detectionStart = System.currentTimeMillis();
+            long detectionStart = System.nanoTime();
             Timer.Sample detectionSample = metricsService.startQrDetectionTimer();
-            detector.process(grayImage);
-            List<QrCode> detections = detector.getDetections();
-            long detectionEnd = System.currentTimeMillis();
+            
+            TiledDetector.Result tiled = tiledDetector.detect(grayImage, options, token);
+            checkCancelled(token, STAGE_DETECTION);
+            List<QRCodeInfo> qrCodeInfos = toQRCodeInfos(tiled.getCodes(), 0, 0, scale, options, options.remaining(0));
+            
+            long detectionTime = System.nanoTime() - detectionStart;
             metricsService.stopQrDetectionTimer(detectionSample);
+            String profile = options.getProfile() != null ? options.getProfile() : DetectorProfiles.DEFAULT;
+            metricsService.recordProfileDetection(profile, detectionTime);
             
-            long detectionTime = detectionEnd - detectionStart;
-            processingTime.setDetectionTimeMs(detectionTime);
+            processingTime.setDetectionTimeMs(TimeUnit.NANOSECONDS.toMillis(detectionTime));
+            processingTime.addStage(DetectionStage.DETECTION.getName(), detectionTime);
+            processingTime.setDetectionMode(DetectionMode.TILED.getName());
+            processingTime.setTiles(tiled.getTiles());
+            if (options.getProfile() != null) {
+                processingTime.setDetectorProfile(options.getProfile());
+            }
+            if (tiled.getSkippedTiles() > 0) {
+                processingTime.setEarlyExit(true);
+                processingTime.setSkippedRegions(tiled.getSkippedTiles());
+                setEstimatedSavedTime(processingTime, tiled.getEstimatedSkippedNanos());
+            }
             
-            List<QRCodeInfo> qrCodeInfos = new ArrayList<>();
+            return new QRCodeResult(true, qrCodeInfos, processingTime);
             
-            for (QrCode qrCode : detections) {
-                // 获取QR码内容
-                String content = qrCode.message;
-                
-                // 获取边界框
-                Polygon2D_F64 bounds = qrCode.bounds;
-                List<Point> corners = new ArrayList<>();
-                
-                for (int i = 0; i < bounds.size(); i++) {
-                    Point2D_F64 corner = bounds.get(i);
-                    corners.add(new Point(corner.x, corner.y));
+        } catch (TimeoutException e) {
+            metricsService.incrementDetectorBorrowTimeout();
+            LOG.warn(e.getMessage());
+            return new QRCodeResult(false, "检测服务繁忙，请稍后重试");
+        } catch (InterruptedException e) {
+            checkCancelled(token, STAGE_DETECTION);
+            Thread.currentThread().interrupt();
+            return new QRCodeResult(false, "检测QR码被中断");
+        } catch (DetectionCancelledException e) {
+            throw e;
+        } catch (Exception e) {
+            LOG.error("分块检测QR码时出错", e);
+            return new QRCodeResult(false, "检测QR码失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 由粗到精检测：先在缩小的图像上查找候选区域（包括解码成功和失败的候选），
+     * 再只对候选区域做全分辨率检测，并将坐标映射回原图
+     * 
+     * @param detector 已借用的检测器
+     * @param grayImage 全分辨率灰度图像
+     * @param coarseImage 用于保存缩小图像的临时图像
+     * 请求限制了 maxCodes 时，粗检测已解码出足够的QR码则直接返回（坐标为粗检测精度），
+     * 否则在候选区域中找到足够的QR码后跳过剩余区域，并在处理时间中记录提前结束和跳过的区域数。
+     * 
+     * @param scale 灰度图像相对原图的缩小倍数
+     * @param processingTime 处理时间对象，记录提前结束信息
+     * @param options 检测选项，用于内容过滤和数量限制
+     * @param token 取消标记，每个候选区域检测前检查
+     * @return 检测到的QR码；图像太小、没有候选区域或候选区域中没有解码出QR码时返回null，由调用方回退到全分辨率检测
+     */
+    private List<QRCodeInfo> detectCoarseToFine(QrCodeDetector<GrayU8> detector, GrayU8 grayImage, GrayU8 coarseImage,
+                                                ProcessingTime processingTime, DetectionOptions options, int scale, CancellationToken token) {
+        int longSide = Math.max(grayImage.width, grayImage.height);
+        int factor = longSide / config.coarse().targetSize();
+        if (factor < 2) {
+            return null;
+        }
+        
+        long downscaleStart = System.nanoTime();
+        GrayImageScaler.downsample(grayImage, factor, coarseImage);
+        long detectionStart = System.nanoTime();
+        processingTime.addStage(DetectionStage.DOWNSCALE.getName(), detectionStart - downscaleStart);
+        try {
+            return detectCandidates(detector, grayImage, coarseImage, factor, processingTime, options, scale, token);
+        } finally {
+            processingTime.addStage(DetectionStage.DETECTION.getName(), System.nanoTime() - detectionStart);
+        }
+    }
+    
+    /**
+     * 在缩小的图像上检测，再对候选区域做全分辨率检测
+     */
+    private List<QRCodeInfo> detectCandidates(QrCodeDetector<GrayU8> detector, GrayU8 grayImage, GrayU8 coarseImage, int factor,
+                                              ProcessingTime processingTime, DetectionOptions options, int scale, CancellationToken token) {
+        long coarseStart = System.nanoTime();
+        detector.process(coarseImage);
+        long coarseNanos = System.nanoTime() - coarseStart;
+        
+        List<Rectangle> regions = new ArrayList<>();
+        collectCandidateRegions(detector.getDetections(), factor, grayImage, regions);
+        collectCandidateRegions(detector.getFailures(), factor, grayImage, regions);
+        List<Rectangle> merged = mergeOverlapping(regions);
+        
+        // 只需要少量QR码时，粗检测图像上已解码出的内容是准确的，足够则不再做全分辨率检测
+        if (options.getMaxCodes() > 0) {
+            List<QRCodeInfo> coarseInfos = toQRCodeInfos(detector.getDetections(), 0, 0, (double) factor * scale,
+                    options, options.getMaxCodes());
+            if (options.isSatisfied(coarseInfos.size())) {
+                processingTime.setEarlyExit(true);
+                if (!merged.isEmpty()) {
+                    processingTime.setSkippedRegions(merged.size());
+                    // 跳过的候选区域按粗检测的每像素耗时估算
+                    long coarsePixels = (long) coarseImage.width * coarseImage.height;
+                    setEstimatedSavedTime(processingTime, estimateNanos(coarseNanos, coarsePixels, pixels(merged, 0)));
+                }
+                return coarseInfos;
+            }
+        }
+        
+        if (merged.isEmpty()) {
+            return null;
+        }
+        
+        List<QRCodeInfo> qrCodeInfos = new ArrayList<>();
+        long regionNanos = 0;
+        long regionPixels = 0;
+        for (int i = 0; i < merged.size(); i++) {
+            if (options.isSatisfied(qrCodeInfos.size())) {
+                processingTime.setEarlyExit(true);
+                processingTime.setSkippedRegions(merged.size() - i);
+                // 跳过的候选区域按已检测区域的每像素耗时估算
+                setEstimatedSavedTime(processingTime, estimateNanos(regionNanos, regionPixels, pixels(merged, i)));
+                break;
+            }
+            checkCancelled(token, STAGE_DETECTION);
+            Rectangle region = merged.get(i);
+            GrayU8 roi = grayImage.subimage(region.x, region.y, region.x + region.width, region.y + region.height);
+            long regionStart = System.nanoTime();
+            detector.process(roi);
+            regionNanos += System.nanoTime() - regionStart;
+            regionPixels += (long) region.width * region.height;
+            qrCodeInfos.addAll(toQRCodeInfos(detector.getDetections(), (double) region.x * scale, (double) region.y * scale, scale,
+                    options, options.remaining(qrCodeInfos.size())));
+        }
+        return qrCodeInfos.isEmpty() ? null : qrCodeInfos;
+    }
+    
+    private static long pixels(List<Rectangle> regions, int from) {
+        long pixels = 0;
+        for (int i = from; i < regions.size(); i++) {
+            pixels += (long) regions.get(i).width * regions.get(i).height;
+        }
+        return pixels;
+    }
+    
+    /**
+     * 按已执行检测的每像素耗时估算跳过部分的耗时
+     */
+    private static long estimateNanos(long measuredNanos, long measuredPixels, long skippedPixels) {
+        return measuredPixels > 0 ? (long) ((double) measuredNanos / measuredPixels * skippedPixels) : 0;
+    }
+    
+    private static void setEstimatedSavedTime(ProcessingTime processingTime, long nanos) {
+        processingTime.setEstimatedSavedTimeMs(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+    
+    /**
+     * 将粗检测图像中的候选QR码边界映射为原图中扩展后的矩形区域
+     */
+    private void collectCandidateRegions(List<QrCode> candidates, int factor, GrayU8 grayImage, List<Rectangle> regions) {
+        double marginRatio = config.coarse().roiMargin();
+        for (QrCode candidate : candidates) {
+            Polygon2D_F64 bounds = candidate.bounds;
+            if (bounds == null || bounds.size() < 4) {
+                continue;
+            }
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < bounds.size(); i++) {
+                Point2D_F64 corner = bounds.get(i);
+                minX = Math.min(minX, corner.x);
+                minY = Math.min(minY, corner.y);
+                maxX = Math.max(maxX, corner.x);
+                maxY = Math.max(maxY, corner.y);
+            }
+            double margin = Math.max(maxX - minX, maxY - minY) * marginRatio + 2;
+            int x0 = clamp((int) Math.floor((minX - margin) * factor), grayImage.width);
+            int y0 = clamp((int) Math.floor((minY - margin) * factor), grayImage.height);
+            int x1 = clamp((int) Math.ceil((maxX + margin) * factor), grayImage.width);
+            int y1 = clamp((int) Math.ceil((maxY + margin) * factor), grayImage.height);
+            if (x1 > x0 && y1 > y0) {
+                regions.add(new Rectangle(x0, y0, x1 - x0, y1 - y0));
+            }
+        }
+    }
+    
+    /**
+     * 合并相互重叠的区域，避免同一个QR码被重复检测
+     */
+    private static List<Rectangle> mergeOverlapping(List<Rectangle> regions) {
+        List<Rectangle> merged = new ArrayList<>(regions);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            outer:
+            for (int i = 0; i < merged.size(); i++) {
+                for (int j = i + 1; j < merged.size(); j++) {
+                    if (merged.get(i).intersects(merged.get(j))) {
+                        merged.set(i, merged.get(i).union(merged.remove(j)));
+                        changed = true;
+                        break outer;
+                    }
                 }
-                
-                BoundingBox boundingBox = new BoundingBox(corners);
-                
-                // 计算置信度（基于QR码检测的质量）
-                double confidence = calculateConfidence(qrCode);
-                
-                QRCodeInfo qrCodeInfo = new QRCodeInfo(content, boundingBox, confidence);
-                qrCodeInfos.add(qrCodeInfo);
-                
-                LOG.info("检测到QR码: " + content + ", 位置: " + boundingBox.getX() + "," + boundingBox.getY());
+            }
+        }
+        return merged;
+    }
+    
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+    
+    /**
+     * 将BoofCV检测结果转换为响应模型，角点坐标按 (x * scale + offsetX, y * scale + offsetY) 映射到原图
+     */
+    List<QRCodeInfo> toQRCodeInfos(List<QrCode> detections, double offsetX, double offsetY, double scale) {
+        return toQRCodeInfos(detections, offsetX, offsetY, scale, DetectionOptions.defaults(), Integer.MAX_VALUE);
+    }
+    
+    /**
+     * 转换满足内容过滤条件的检测结果，最多转换 limit 个，其余的不构建边界框
+     */
+    private List<QRCodeInfo> toQRCodeInfos(List<QrCode> detections, double offsetX, double offsetY, double scale,
+                                           DetectionOptions options, int limit) {
+        List<QRCodeInfo> qrCodeInfos = new ArrayList<>(Math.min(detections.size(), limit));
+        
+        for (QrCode qrCode : detections) {
+            if (qrCodeInfos.size() >= limit) {
+                break;
             }
             
-            return new QRCodeResult(true, qrCodeInfos, processingTime);
+            // 获取QR码内容
+            String content = qrCode.message;
+            if (!options.accepts(content)) {
+                continue;
+            }
+            
+            // 获取边界框
+            Polygon2D_F64 bounds = qrCode.bounds;
+            List<Point> corners = new ArrayList<>(bounds.size());
+            
+            for (int i = 0; i < bounds.size(); i++) {
+                Point2D_F64 corner = bounds.get(i);
+                corners.add(new Point(corner.x * scale + offsetX, corner.y * scale + offsetY));
+            }
+            
+            BoundingBox boundingBox = new BoundingBox(corners);
+            
+            // 计算置信度（基于QR码检测的质量）
+            double confidence = calculateConfidence(qrCode);
+            
+            QRCodeInfo qrCodeInfo = new QRCodeInfo(content, boundingBox, confidence);
+            qrCodeInfos.add(qrCodeInfo);
+            
+            LOG.info("检测到QR码: " + content + ", 位置: " + boundingBox.getX() + "," + boundingBox.getY());
+        }
+        
+        return qrCodeInfos;
+    }
+    
+    /**
+     * 从BufferedImage中检测QR码（内部方法）
+     * 
+     * @param bufferedImage BufferedImage对象
+     * @param processingTime 处理时间对象
+     * @return 检测结果
+     */
+    private QRCodeResult detectQRCodesInternal(BufferedImage bufferedImage, ProcessingTime processingTime) {
+        ImageArena arena = arenaPool.borrow();
+        try {
+            // 转换为灰度图像
+            long convertStart = System.nanoTime();
+            GrayU8 grayImage = ConvertBufferedImage.convertFrom(bufferedImage, arena.image);
+            processingTime.addStage(DetectionStage.GRAY_CONVERSION.getName(), System.nanoTime() - convertStart);
+            
+            return detectQRCodesFromGrayImage(grayImage, arena.scratch, processingTime, DetectionOptions.defaults(), 1, CancellationToken.NONE);
             
         } catch (Exception e) {
             LOG.error("检测QR码时出错", e);
             return new QRCodeResult(false, "检测QR码失败: " + e.getMessage());
+        } finally {
+            arenaPool.release(arena);
         }
     }
     
@@ -275,10 +1173,9 @@ public class QRCodeDetectionService {
         processingTime.setImageWidth(bufferedImage.getWidth());
         processingTime.setImageHeight(bufferedImage.getHeight());
         
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
         QRCodeResult result = detectQRCodesInternal(bufferedImage, processingTime);
-        long totalTime = System.currentTimeMillis() - startTime;
-        processingTime.setTotalTimeMs(totalTime);
+        processingTime.setTotalTimeMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
         result.setProcessingTime(processingTime);
         
         return result;
@@ -1,17 +1,45 @@
 package cn.lihongjie.qrcode.service;
 
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import cn.lihongjie.qrcode.model.ProcessingTime;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 /**
  * QR码检测指标服务
+ * 
+ * 所有指标在启动时注册，带标签的指标按已知的标签值预先注册。请求处理中只更新已持有的指标实例，
+ * 不查询注册表，也不分配对象；未预先注册的标签值（如运行时新增的检测配置）在第一次使用时注册一次。
  */
+@Startup
 @ApplicationScoped
 public class QRCodeMetricsService {
     
+    // 图片大小分布的SLO分桶（字节）：64KB、256KB、1MB、4MB、16MB
+    private static final double[] FILE_SIZE_SLOS = {64 * 1024, 256 * 1024, 1024 * 1024, 4 * 1024 * 1024, 16 * 1024 * 1024};
+    
+    // 图片像素数分布的SLO分桶（百万像素）：VGA、1MP、1080p、5MP、12MP、24MP、48MP
+    private static final double[] MEGAPIXELS_SLOS = {0.3, 1, 2, 5, 12, 24, 48};
+    
+    // 单张图片QR码数量分布的SLO分桶
+    private static final double[] CODES_PER_IMAGE_SLOS = {0, 1, 2, 5, 10, 50};
+    
+    // 分阶段耗时按原图像素数划分的尺寸等级，下标与 sizeClass 的返回值对应
+    static final String[] SIZE_CLASSES = {"unknown", "under_1mp", "1_to_5mp", "5_to_12mp", "over_12mp"};
+    
     @Inject
     MeterRegistry meterRegistry;
     
@@ -20,13 +48,41 @@ public class QRCodeMetricsService {
     private Counter successfulDetectionCounter;
     private Counter failedDetectionCounter;
     private Counter totalQrCodesDetectedCounter;
+    private Counter detectorBorrowTimeoutCounter;
+    private Counter virtualThreadRequestCounter;
+    private Counter platformThreadRequestCounter;
+    private Counter admissionQueueFullCounter;
+    private Counter admissionTimeoutCounter;
     
     // 计时器
     private Timer imageLoadTimer;
     private Timer qrDetectionTimer;
     private Timer totalProcessingTimer;
+    private Timer detectorBorrowWaitTimer;
+    private Timer admissionWaitTimer;
+    private Timer detectionQueueWaitTimer;
+    
+    // 分布统计
+    private DistributionSummary allocationSummary;
+    private DistributionSummary fileSizeSummary;
+    private DistributionSummary megapixelsSummary;
+    private DistributionSummary codesPerImageSummary;
+    
+    // 带标签的指标，按标签值索引
+    private final Map<String, Timer> profileDetectionTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> cancelledCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> pixelBudgetCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> trackingFrameCounters = new ConcurrentHashMap<>();
+    private Counter trackingUpdateCounter;
+    
+    // 分阶段耗时，按阶段名称索引，数组下标为尺寸等级
+    private final Map<String, Timer[]> stageTimers = new ConcurrentHashMap<>();
     
-    // 初始化方法
+    // 最近10秒到1小时的滑动窗口统计，与累计的Micrometer指标相互独立，可单独重置
+    private final RollingStats rollingStats = new RollingStats(System::currentTimeMillis);
+    
+    // 初始化方法，启动时执行；不经过CDI创建的实例（如基准测试）需要手动调用
+    @PostConstruct
     public void init() {
         // 初始化计数器
         detectionRequestCounter = Counter.builder("qrcode.detection.requests.total")
@@ -44,6 +100,10 @@ public class QRCodeMetricsService {
         totalQrCodesDetectedCounter = Counter.builder("qrcode.detected.total")
                 .description("Total number of QR codes detected")
                 .register(meterRegistry);
+                
+        detectorBorrowTimeoutCounter = Counter.builder("qrcode.detector.pool.timeout.total")
+                .description("Total number of detector borrow attempts that timed out")
+                .register(meterRegistry);
         
         // 初始化计时器
         imageLoadTimer = Timer.builder("qrcode.image.load.duration")
@@ -57,72 +117,366 @@ public class QRCodeMetricsService {
         totalProcessingTimer = Timer.builder("qrcode.processing.total.duration")
                 .description("Total time taken to process QR code detection request")
                 .register(meterRegistry);
+                
+        detectorBorrowWaitTimer = Timer.builder("qrcode.detector.pool.wait.duration")
+                .description("Time spent waiting to borrow a QR code detector from the pool")
+                .register(meterRegistry);
+        
+        admissionWaitTimer = Timer.builder("qrcode.admission.wait.duration")
+                .description("Time spent waiting in the admission queue before detection")
+                .register(meterRegistry);
+                
+        virtualThreadRequestCounter = Counter.builder("qrcode.detection.requests.thread")
+                .description("Detection requests by the kind of thread that handled decoding")
+                .tag("type", "virtual")
+                .register(meterRegistry);
+                
+        platformThreadRequestCounter = Counter.builder("qrcode.detection.requests.thread")
+                .description("Detection requests by the kind of thread that handled decoding")
+                .tag("type", "platform")
+                .register(meterRegistry);
+                
+        detectionQueueWaitTimer = Timer.builder("qrcode.detection.executor.queue.duration")
+                .description("Time detection tasks spend queued before a detection thread picks them up")
+                .register(meterRegistry);
+                
+        admissionQueueFullCounter = Counter.builder("qrcode.admission.rejected.total")
+                .description("Total number of detection requests rejected by admission control")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+                
+        admissionTimeoutCounter = Counter.builder("qrcode.admission.rejected.total")
+                .description("Total number of detection requests rejected by admission control")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+        
+        // 初始化分布统计
+        allocationSummary = DistributionSummary.builder("qrcode.allocation.bytes")
+                .description("Heap bytes allocated per QR code detection request across the request, detection pool and tile threads (virtual threads excluded)")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        
+        fileSizeSummary = DistributionSummary.builder("qrcode.image.size.bytes")
+                .description("Size of uploaded images")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(FILE_SIZE_SLOS)
+                .register(meterRegistry);
+        
+        megapixelsSummary = DistributionSummary.builder("qrcode.image.megapixels")
+                .description("Pixel count of decoded images, in megapixels of the original image")
+                .baseUnit("megapixels")
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(MEGAPIXELS_SLOS)
+                .register(meterRegistry);
+        
+        codesPerImageSummary = DistributionSummary.builder("qrcode.image.codes")
+                .description("Number of QR codes returned per successfully processed image")
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(CODES_PER_IMAGE_SLOS)
+                .register(meterRegistry);
+        
+        // 预先注册已知标签值的指标
+        for (String stage : new String[] {QRCodeDetectionService.STAGE_ADMISSION, QRCodeDetectionService.STAGE_DECODE,
+                QRCodeDetectionService.STAGE_DETECTION_QUEUE, QRCodeDetectionService.STAGE_DETECTION}) {
+            cancelledCounters.put(stage, cancelledCounter(stage));
+        }
+        for (QRCodeConfig.PixelBudget.Policy policy : QRCodeConfig.PixelBudget.Policy.values()) {
+            String name = policy.name().toLowerCase(Locale.ROOT);
+            pixelBudgetCounters.put(name, pixelBudgetCounter(name));
+        }
+        for (String outcome : new String[] {FrameTracker.OUTCOME_UNCHANGED, FrameTracker.OUTCOME_TRACKED,
+                FrameTracker.OUTCOME_FULL, FrameTracker.OUTCOME_DROPPED, FrameTracker.OUTCOME_REJECTED}) {
+            trackingFrameCounters.put(outcome, trackingFrameCounter(outcome));
+        }
+        trackingUpdateCounter = Counter.builder("qrcode.tracking.updates.total")
+                .description("Total number of results pushed because the set of decoded contents changed")
+                .register(meterRegistry);
+        for (DetectionStage stage : DetectionStage.values()) {
+            stageTimers.put(stage.getName(), stageTimers(stage.getName()));
+        }
+    }
+    
+    private Timer[] stageTimers(String stage) {
+        Timer[] timers = new Timer[SIZE_CLASSES.length];
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            timers[i] = Timer.builder("qrcode.stage.duration")
+                    .description("Time spent in each processing stage of a detection request, by image size class")
+                    .tag("stage", stage)
+                    .tag("size", SIZE_CLASSES[i])
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(10_000))
+                    .maximumExpectedValue(Duration.ofSeconds(60))
+                    .register(meterRegistry);
+        }
+        return timers;
+    }
+    
+    private Timer profileDetectionTimer(String profile) {
+        return Timer.builder("qrcode.detection.profile.duration")
+                .description("Time spent detecting QR codes, by detector profile")
+                .tag("profile", profile)
+                .register(meterRegistry);
+    }
+    
+    private Counter cancelledCounter(String stage) {
+        return Counter.builder("qrcode.detection.cancelled.total")
+                .description("Total number of detection requests cancelled by client disconnect, by the stage at which remaining work was skipped")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+    
+    private Counter pixelBudgetCounter(String policy) {
+        return Counter.builder("qrcode.pixel.budget.exceeded.total")
+                .description("Total number of images exceeding the pixel budget")
+                .tag("policy", policy)
+                .register(meterRegistry);
+    }
+    
+    private Counter trackingFrameCounter(String outcome) {
+        return Counter.builder("qrcode.tracking.frames.total")
+                .description("Total number of frames received over frame-stream connections, by how each frame was handled")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
     
     // 计数器方法
     public void incrementDetectionRequest() {
-        if (detectionRequestCounter == null) init();
         detectionRequestCounter.increment();
     }
     
     public void incrementSuccessfulDetection() {
-        if (successfulDetectionCounter == null) init();
         successfulDetectionCounter.increment();
     }
     
     public void incrementFailedDetection() {
-        if (failedDetectionCounter == null) init();
         failedDetectionCounter.increment();
     }
     
+    /**
+     * 记录一张图片返回的QR码数量：累加总数，并计入单张图片QR码数量分布
+     */
     public void incrementQrCodesDetected(int count) {
-        if (totalQrCodesDetectedCounter == null) init();
         totalQrCodesDetectedCounter.increment(count);
+        codesPerImageSummary.record(count);
     }
     
     // 计时器方法
     public Timer.Sample startImageLoadTimer() {
-        if (imageLoadTimer == null) init();
         return Timer.start(meterRegistry);
     }
     
     public void stopImageLoadTimer(Timer.Sample sample) {
-        if (imageLoadTimer == null) init();
         sample.stop(imageLoadTimer);
     }
     
     public Timer.Sample startQrDetectionTimer() {
-        if (qrDetectionTimer == null) init();
         return Timer.start(meterRegistry);
     }
     
     public void stopQrDetectionTimer(Timer.Sample sample) {
-        if (qrDetectionTimer == null) init();
         sample.stop(qrDetectionTimer);
     }
     
     public Timer.Sample startTotalProcessingTimer() {
-        if (totalProcessingTimer == null) init();
         return Timer.start(meterRegistry);
     }
     
     public void stopTotalProcessingTimer(Timer.Sample sample) {
-        if (totalProcessingTimer == null) init();
         sample.stop(totalProcessingTimer);
     }
     
+    // 检测器池方法
+    public void recordDetectorBorrowWait(long waitNanos) {
+        detectorBorrowWaitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void incrementDetectorBorrowTimeout() {
+        detectorBorrowTimeoutCounter.increment();
+    }
+    
+    // 按检测配置记录检测耗时
+    public void recordProfileDetection(String profile, long nanos) {
+        Timer timer = profileDetectionTimers.get(profile);
+        if (timer == null) {
+            timer = profileDetectionTimers.computeIfAbsent(profile, this::profileDetectionTimer);
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    // 注册检测器池状态指标，同时预先注册该检测配置的耗时指标
+    public void registerDetectorPool(DetectorPool pool) {
+        profileDetectionTimers.computeIfAbsent(pool.getName(), this::profileDetectionTimer);
+        Gauge.builder("qrcode.detector.pool.size", pool, DetectorPool::getCreatedCount)
+                .description("Number of QR code detector instances created in the pool")
+                .tag("pool", pool.getName())
+                .register(meterRegistry);
+        Gauge.builder("qrcode.detector.pool.active", pool, DetectorPool::getBorrowedCount)
+                .description("Number of QR code detector instances currently borrowed")
+                .tag("pool", pool.getName())
+                .register(meterRegistry);
+        Gauge.builder("qrcode.detector.pool.max", pool, DetectorPool::getMaxSize)
+                .description("Maximum number of QR code detector instances in the pool")
+                .tag("pool", pool.getName())
+                .register(meterRegistry);
+    }
+    
+    // 准入控制方法
+    public void recordAdmissionWait(long waitNanos) {
+        admissionWaitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void incrementAdmissionRejected(String reason) {
+        if ("timeout".equals(reason)) {
+            admissionTimeoutCounter.increment();
+        } else {
+            admissionQueueFullCounter.increment();
+        }
+    }
+    
+    // 检测线程池方法
+    public void incrementRequestThread(boolean virtual) {
+        (virtual ? virtualThreadRequestCounter : platformThreadRequestCounter).increment();
+    }
+    
+    public void recordDetectionQueueWait(long waitNanos) {
+        detectionQueueWaitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    // 注册检测线程池状态指标
+    public void registerDetectionExecutor(DetectionExecutor executor) {
+        Gauge.builder("qrcode.detection.executor.threads", executor, DetectionExecutor::getPoolSize)
+                .description("Number of platform threads dedicated to QR code detection")
+                .register(meterRegistry);
+        Gauge.builder("qrcode.detection.executor.active", executor, DetectionExecutor::getActiveCount)
+                .description("Number of detection threads currently running a detection")
+                .register(meterRegistry);
+        Gauge.builder("qrcode.detection.executor.queued", executor, DetectionExecutor::getQueueSize)
+                .description("Number of detection tasks waiting for a detection thread")
+                .register(meterRegistry);
+    }
+    
+    // 取消检测方法
+    public void incrementDetectionCancelled(String stage) {
+        Counter counter = cancelledCounters.get(stage);
+        if (counter == null) {
+            counter = cancelledCounters.computeIfAbsent(stage, this::cancelledCounter);
+        }
+        counter.increment();
+    }
+    
+    // 像素预算方法
+    public void incrementPixelBudgetExceeded(String policy) {
+        Counter counter = pixelBudgetCounters.get(policy);
+        if (counter == null) {
+            counter = pixelBudgetCounters.computeIfAbsent(policy, this::pixelBudgetCounter);
+        }
+        counter.increment();
+    }
+    
+    // 注册准入控制状态指标
+    public void registerAdmissionController(AdmissionController controller) {
+        Gauge.builder("qrcode.admission.queue.depth", controller, AdmissionController::getQueueDepth)
+                .description("Number of detection requests waiting in the admission queue")
+                .register(meterRegistry);
+        Gauge.builder("qrcode.admission.inflight", controller, AdmissionController::getInFlight)
+                .description("Number of detection requests currently admitted")
+                .register(meterRegistry);
+        Gauge.builder("qrcode.admission.limit", controller, AdmissionController::getLimit)
+                .description("Current admission concurrency limit")
+                .register(meterRegistry);
+    }
+    
+    // 视频帧跟踪方法
+    public void incrementTrackingFrame(String outcome) {
+        Counter counter = trackingFrameCounters.get(outcome);
+        if (counter == null) {
+            counter = trackingFrameCounters.computeIfAbsent(outcome, this::trackingFrameCounter);
+        }
+        counter.increment();
+    }
+    
+    public void incrementTrackingUpdate() {
+        trackingUpdateCounter.increment();
+    }
+    
+    // 注册视频帧跟踪状态指标
+    public void registerTrackingService(QRCodeTrackingService service) {
+        Gauge.builder("qrcode.tracking.sessions", service, QRCodeTrackingService::getActiveSessions)
+                .description("Number of open frame-stream tracking sessions")
+                .register(meterRegistry);
+    }
+    
+    // 注册图像缓冲区池状态指标
+    public void registerImageArenaPool(ImageArenaPool pool) {
+        Gauge.builder("qrcode.arena.pooled", pool, ImageArenaPool::getPooledCount)
+                .description("Number of idle image arenas in the pool")
+                .register(meterRegistry);
+        Gauge.builder("qrcode.arena.pooled.bytes", pool, ImageArenaPool::getPooledBytes)
+                .description("Bytes retained by idle image arenas in the pool")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 按原图像素数划分尺寸等级，尺寸未知时为0
+     */
+    static int sizeClass(int width, int height) {
+        long pixels = (long) width * height;
+        if (pixels <= 0) {
+            return 0;
+        }
+        if (pixels < 1_000_000) {
+            return 1;
+        }
+        if (pixels < 5_000_000) {
+            return 2;
+        }
+        return pixels < 12_000_000 ? 3 : 4;
+    }
+    
+    // 记录单个阶段的耗时
+    public void recordStage(DetectionStage stage, long nanos, int width, int height) {
+        stageTimers.get(stage.getName())[sizeClass(width, height)].record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    // 记录一次请求各阶段的耗时，尺寸等级取自处理时间中的原图尺寸
+    public void recordStages(ProcessingTime processingTime) {
+        Map<String, Long> stages = processingTime.getStages();
+        if (stages == null) {
+            return;
+        }
+        int sizeClass = sizeClass(processingTime.getImageWidth(), processingTime.getImageHeight());
+        for (Map.Entry<String, Long> entry : stages.entrySet()) {
+            Timer[] timers = stageTimers.get(entry.getKey());
+            if (timers == null) {
+                timers = stageTimers.computeIfAbsent(entry.getKey(), this::stageTimers);
+            }
+            timers[sizeClass].record(entry.getValue(), TimeUnit.MICROSECONDS);
+        }
+    }
+    
+    // 记录单次请求的内存分配量
+    public void recordAllocatedBytes(long bytes) {
+        allocationSummary.record(bytes);
+    }
+    
     // 记录文件大小分布
     public void recordFileSize(long fileSizeBytes) {
-        if (meterRegistry != null) {
-            meterRegistry.gauge("qrcode.image.size.bytes", fileSizeBytes);
-        }
+        fileSizeSummary.record(fileSizeBytes);
     }
     
-    // 记录图片尺寸
+    // 记录图片像素数分布（原图尺寸，单位为百万像素）
     public void recordImageDimensions(int width, int height) {
-        if (meterRegistry != null) {
-            meterRegistry.gauge("qrcode.image.width.pixels", width);
-            meterRegistry.gauge("qrcode.image.height.pixels", height);
-        }
+        megapixelsSummary.record((double) width * height / 1_000_000);
+    }
+    
+    // 记录一次检测请求的总耗时和结果到滑动窗口
+    public void recordRequest(long nanos, boolean success) {
+        rollingStats.record(nanos, !success);
+    }
+    
+    public RollingStats getRollingStats() {
+        return rollingStats;
     }
 }
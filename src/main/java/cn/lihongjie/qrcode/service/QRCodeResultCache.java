@@ -0,0 +1,117 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.nio.ByteBuffer;
+
+/**
+ * QR码检测结果缓存
+ * 
+ * 以图片内容哈希和检测选项作为键，缓存序列化后的检测结果。
+ * 按总字节数和写入后存活时间淘汰，命中时反序列化出新的结果对象，调用方可以自由修改。
+ */
+@ApplicationScoped
+public class QRCodeResultCache {
+    
+    private static final Logger LOG = Logger.getLogger(QRCodeResultCache.class);
+    
+    @Inject
+    QRCodeConfig config;
+    
+    @Inject
+    ObjectMapper objectMapper;
+    
+    @Inject
+    MeterRegistry meterRegistry;
+    
+    private Cache<String, byte[]> cache;
+    
+    private ContentHasher hasher;
+    
+    // 响应模型中有只读的派生属性（如formattedFileSize），反序列化时忽略
+    private ObjectReader resultReader;
+    
+    @PostConstruct
+    void init() {
+        QRCodeConfig.Cache cacheConfig = config.cache();
+        if (!cacheConfig.enabled()) {
+            return;
+        }
+        this.hasher = ContentHasher.parse(cacheConfig.hash());
+        this.resultReader = objectMapper.readerFor(QRCodeResult.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(cacheConfig.maxBytes())
+                .weigher((String key, byte[] value) -> key.length() + value.length)
+                .expireAfterWrite(cacheConfig.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "qrcode.result");
+        LOG.info("检测结果缓存已启用, 哈希算法: " + hasher + ", 最大字节数: " + cacheConfig.maxBytes() + ", TTL: " + cacheConfig.ttl());
+    }
+    
+    public boolean isEnabled() {
+        return cache != null;
+    }
+    
+    /**
+     * 计算缓存键
+     * 
+     * @param imageBuffer 图片数据，不会修改其位置
+     * @param options 检测选项，不同选项的结果分别缓存
+     */
+    public String key(ByteBuffer imageBuffer, DetectionOptions options) {
+        return hasher.hash(imageBuffer) + ":" + imageBuffer.remaining() + ":" + options.cacheKey();
+    }
+    
+    /**
+     * 查询缓存
+     * 
+     * @return 缓存的检测结果，未命中返回null
+     */
+    public QRCodeResult get(String key) {
+        byte[] serialized = cache.getIfPresent(key);
+        if (serialized == null) {
+            return null;
+        }
+        try {
+            return resultReader.readValue(serialized);
+        } catch (Exception e) {
+            LOG.warn("反序列化缓存结果失败: " + e.getMessage());
+            cache.invalidate(key);
+            return null;
+        }
+    }
+    
+    /**
+     * 缓存检测结果
+     */
+    public void put(String key, QRCodeResult result) {
+        try {
+            cache.put(key, objectMapper.writeValueAsBytes(result));
+        } catch (Exception e) {
+            LOG.warn("序列化检测结果失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+}
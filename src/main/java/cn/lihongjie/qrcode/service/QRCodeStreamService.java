@@ -0,0 +1,164 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import cn.lihongjie.qrcode.image.ImageFrameReader;
+import cn.lihongjie.qrcode.model.QRCodeBatchItem;
+import cn.lihongjie.qrcode.model.QRCodeInfo;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 流式QR码检测服务
+ * 
+ * 多张图片或多帧图片（TIFF多页、GIF动画）的检测结果逐条输出，每张图片/每一帧检测完成后立即发出，
+ * 不等待整个批次。图片在虚拟线程上按需读取，同时处理的图片数有上限，帧逐个解码，
+ * 内存占用与批次大小无关。
+ */
+@ApplicationScoped
+public class QRCodeStreamService {
+    
+    private static final Logger LOG = Logger.getLogger(QRCodeStreamService.class);
+    
+    @Inject
+    QRCodeDetectionService qrCodeDetectionService;
+    
+    @Inject
+    QRCodeConfig config;
+    
+    private ExecutorService executor;
+    
+    private int concurrency;
+    
+    @PostConstruct
+    void init() {
+        int parallelism = config.batch().parallelism();
+        this.concurrency = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("qrcode-stream-", 1).factory());
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * 流式检测多张图片，结果按完成顺序输出
+     * 
+     * @param sources 图片来源列表，每个来源可以是单帧或多帧图片
+     * @param options 检测选项，应用于每张图片
+     * @param splitCodes 为true时每个QR码单独输出一条（没有检测到QR码的图片不输出），否则每张图片/每一帧输出一条
+     * @return 检测结果流，index 为图片在 sources 中的位置
+     */
+    public Multi<QRCodeBatchItem> detectStream(List<? extends BatchImageSource> sources, DetectionOptions options, boolean splitCodes) {
+        Multi<QRCodeBatchItem> items = Multi.createFrom().range(0, sources.size())
+                .onItem().transformToMulti(index -> detectSource(index, sources.get(index), options))
+                .merge(concurrency);
+        return splitCodes ? items.onItem().transformToIterable(QRCodeStreamService::splitByCode) : items;
+    }
+    
+    /**
+     * 在虚拟线程上读取并检测一个图片来源，订阅被取消（客户端断开连接）时取消正在进行的检测
+     */
+    private Multi<QRCodeBatchItem> detectSource(int index, BatchImageSource source, DetectionOptions options) {
+        return Multi.createFrom().<QRCodeBatchItem>emitter(emitter -> {
+            CancellationToken token = new CancellationToken();
+            emitter.onTermination(token::cancel);
+            token.bind(Thread.currentThread());
+            RuntimeException failure = null;
+            try {
+                emitSource(index, source, options, token, emitter);
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                token.unbind();
+            }
+            if (failure != null) {
+                emitter.fail(failure);
+            } else {
+                emitter.complete();
+            }
+        }).runSubscriptionOn(executor);
+    }
+    
+    private void emitSource(int index, BatchImageSource source, DetectionOptions options, CancellationToken token,
+                            MultiEmitter<? super QRCodeBatchItem> emitter) {
+        ByteBuffer data;
+        try {
+            data = ByteBuffer.wrap(source.read());
+        } catch (IOException e) {
+            LOG.error("读取流式检测图片失败: " + source.getName(), e);
+            emitter.emit(new QRCodeBatchItem(index, source.getName(), new QRCodeResult(false, "读取文件失败: " + e.getMessage())));
+            return;
+        }
+        
+        if (!ImageFrameReader.isMultiFrame(data)) {
+            emitter.emit(new QRCodeBatchItem(index, source.getName(), detect(data, options, token)));
+            return;
+        }
+        
+        try (ImageFrameReader frames = ImageFrameReader.open(data)) {
+            if (frames == null) {
+                emitter.emit(new QRCodeBatchItem(index, source.getName(), new QRCodeResult(false, "无法读取图片文件")));
+                return;
+            }
+            // 请求限制了 maxCodes 时，同一图片已找到足够的QR码后不再检测后续帧
+            int maxFrames = qrCodeDetectionService.getMaxFrames();
+            int found = 0;
+            for (int frame = 0; frame < maxFrames && !token.isCancelled() && !options.isSatisfied(found)
+                    && frames.frameDimensions(frame) != null; frame++) {
+                QRCodeResult result = detectFrame(frames, frame, options, token);
+                found += result.getCount();
+                emitter.emit(new QRCodeBatchItem(index, source.getName(), frame, result));
+            }
+        } catch (IOException e) {
+            LOG.error("读取多帧图片失败: " + source.getName(), e);
+            emitter.emit(new QRCodeBatchItem(index, source.getName(), new QRCodeResult(false, "读取图片失败: " + e.getMessage())));
+        }
+    }
+    
+    private QRCodeResult detect(ByteBuffer data, DetectionOptions options, CancellationToken token) {
+        try {
+            return qrCodeDetectionService.detectQRCodes(data, options, token);
+        } catch (AdmissionRejectedException | ImageTooLargeException e) {
+            // 流已经开始输出，单张图片被拒绝时只标记该图片失败
+            return new QRCodeResult(false, e.getMessage());
+        }
+    }
+    
+    private QRCodeResult detectFrame(ImageFrameReader frames, int frame, DetectionOptions options, CancellationToken token) {
+        try {
+            return qrCodeDetectionService.detectFrame(frames, frame, options, token);
+        } catch (AdmissionRejectedException | ImageTooLargeException e) {
+            return new QRCodeResult(false, e.getMessage());
+        }
+    }
+    
+    /**
+     * 将一张图片的结果拆分为每个QR码一条；失败的结果原样保留
+     */
+    private static List<QRCodeBatchItem> splitByCode(QRCodeBatchItem item) {
+        QRCodeResult result = item.getResult();
+        if (!result.isSuccess()) {
+            return List.of(item);
+        }
+        List<QRCodeBatchItem> items = new ArrayList<>(result.getCount());
+        for (QRCodeInfo qrCode : result.getQrCodes()) {
+            QRCodeResult single = new QRCodeResult(true, List.of(qrCode), result.getProcessingTime());
+            items.add(new QRCodeBatchItem(item.getIndex(), item.getFileName(), item.getFrameIndex(), single));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,100 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.alg.fiducial.qrcode.QrCode;
+import boofcv.factory.fiducial.FactoryFiducial;
+import boofcv.struct.image.GrayU8;
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import cn.lihongjie.qrcode.model.QRCodeInfo;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 视频帧流跟踪检测服务
+ *
+ * 为每个帧流创建独立的 {@link FrameTracker}。跟踪器独占自己的检测器和图像缓冲区，
+ * 不占用共享检测器池，也不经过准入控制：每个连接同一时刻最多处理一帧，处理期间到达的帧被丢弃。
+ * 同时打开的跟踪器数量受 qrcode.tracking.max-sessions 限制；检测提交到 {@link DetectionExecutor}，
+ * 与普通检测请求共享同一组检测线程。
+ */
+@ApplicationScoped
+public class QRCodeTrackingService {
+
+    @Inject
+    QRCodeConfig config;
+
+    @Inject
+    QRCodeMetricsService metricsService;
+
+    @Inject
+    QRCodeDetectionService qrCodeDetectionService;
+
+    @Inject
+    DetectionExecutor detectionExecutor;
+
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        metricsService.registerTrackingService(this);
+    }
+
+    /**
+     * 为一个新的帧流创建跟踪器，使用完毕后必须调用 {@link FrameTracker#close()}
+     *
+     * @return 跟踪器，打开的跟踪器数量已达到上限时返回null
+     */
+    public FrameTracker open() {
+        int maxSessions = config.tracking().maxSessions();
+        int sessions;
+        do {
+            sessions = activeSessions.get();
+            if (maxSessions > 0 && sessions >= maxSessions) {
+                return null;
+            }
+        } while (!activeSessions.compareAndSet(sessions, sessions + 1));
+        return new FrameTracker(this, config.tracking(), FactoryFiducial.qrcode(null, GrayU8.class));
+    }
+
+    /**
+     * 当前打开的跟踪器数量
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    void closed(FrameTracker tracker) {
+        activeSessions.decrementAndGet();
+    }
+
+    /**
+     * 在检测线程池上执行跟踪器的检测
+     */
+    <T> T detect(Callable<T> task) throws InterruptedException {
+        try {
+            return detectionExecutor.execute(task);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("帧检测失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    void recordFrame(String outcome) {
+        metricsService.incrementTrackingFrame(outcome);
+    }
+
+    void recordUpdate() {
+        metricsService.incrementTrackingUpdate();
+    }
+
+    List<QRCodeInfo> toQRCodeInfos(List<QrCode> codes) {
+        return qrCodeDetectionService.toQRCodeInfos(codes, 0, 0, 1);
+    }
+}
@@ -0,0 +1,197 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.WindowPoint;
+import cn.lihongjie.qrcode.model.WindowStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 滑动时间窗口的请求统计
+ *
+ * 三个环形缓冲区分别按1秒、10秒、1分钟分桶，每个桶记录请求数、失败数和延迟直方图。
+ * 每个请求同时记入三个环形缓冲区的当前桶；查询时合并窗口覆盖的桶，得到每秒请求数、错误率和延迟分位数。
+ * 桶在时间走到它时才被清空复用，没有后台线程。
+ */
+public final class RollingStats {
+
+    private final LongSupplier clock;
+
+    // 1秒 x 60（最近1分钟）、10秒 x 30（最近5分钟）、1分钟 x 60（最近1小时）
+    private final Ring seconds = new Ring(1_000, 60);
+    private final Ring tenSeconds = new Ring(10_000, 30);
+    private final Ring minutes = new Ring(60_000, 60);
+
+    // 开始统计（启动或重置）的时间，窗口不会覆盖到它之前
+    private volatile long startMillis;
+
+    /**
+     * @param clock 当前时间（毫秒）
+     */
+    public RollingStats(LongSupplier clock) {
+        this.clock = clock;
+        this.startMillis = clock.getAsLong();
+    }
+
+    /**
+     * 记录一个请求
+     *
+     * @param latencyNanos 请求耗时（纳秒）
+     * @param error 请求是否失败
+     */
+    public void record(long latencyNanos, boolean error) {
+        long now = clock.getAsLong();
+        long micros = latencyNanos / 1000;
+        seconds.record(now, micros, error);
+        tenSeconds.record(now, micros, error);
+        minutes.record(now, micros, error);
+    }
+
+    /**
+     * 清空所有窗口，之后的统计从当前时间开始
+     */
+    public void reset() {
+        seconds.reset();
+        tenSeconds.reset();
+        minutes.reset();
+        startMillis = clock.getAsLong();
+    }
+
+    /**
+     * 各窗口的统计：10s、1m（1秒桶），5m（10秒桶），1h（1分钟桶）
+     */
+    public List<WindowStats> windows() {
+        long now = clock.getAsLong();
+        List<WindowStats> windows = new ArrayList<>(4);
+        windows.add(seconds.window("10s", 10, now, startMillis));
+        windows.add(seconds.window("1m", 60, now, startMillis));
+        windows.add(tenSeconds.window("5m", 30, now, startMillis));
+        windows.add(minutes.window("1h", 60, now, startMillis));
+        return windows;
+    }
+
+    /**
+     * 最近60秒的逐秒数据，按时间先后排列，最后一个点是当前尚未结束的一秒
+     */
+    public List<WindowPoint> series() {
+        return seconds.points(clock.getAsLong());
+    }
+
+    private static final class Ring {
+
+        private final long width;
+        private final Slot[] slots;
+
+        Ring(long width, int size) {
+            this.width = width;
+            this.slots = new Slot[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = new Slot();
+            }
+        }
+
+        void record(long now, long micros, boolean error) {
+            long epoch = now / width;
+            Slot slot = slots[(int) Math.floorMod(epoch, (long) slots.length)];
+            if (slot.epoch != epoch) {
+                synchronized (slot) {
+                    if (slot.epoch != epoch) {
+                        slot.clear();
+                        slot.epoch = epoch;
+                    }
+                }
+            }
+            slot.requests.increment();
+            if (error) {
+                slot.errors.increment();
+            }
+            slot.histogram.record(micros);
+        }
+
+        void reset() {
+            for (Slot slot : slots) {
+                synchronized (slot) {
+                    slot.clear();
+                    slot.epoch = -1;
+                }
+            }
+        }
+
+        /**
+         * 合并最近 buckets 个桶（包括当前桶）
+         */
+        WindowStats window(String name, int buckets, long now, long startMillis) {
+            long current = now / width;
+            LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+            long requests = 0;
+            long errors = 0;
+            for (int i = 0; i < buckets; i++) {
+                long epoch = current - i;
+                Slot slot = slots[(int) Math.floorMod(epoch, (long) slots.length)];
+                if (slot.epoch == epoch) {
+                    requests += slot.requests.sum();
+                    errors += slot.errors.sum();
+                    slot.histogram.addTo(snapshot);
+                }
+            }
+
+            // 窗口从最早的桶的开始时间到现在，但不早于开始统计的时间
+            long windowStart = Math.max((current - buckets + 1) * width, startMillis);
+            double spanSeconds = Math.max(1, now - windowStart) / 1000.0;
+
+            WindowStats stats = new WindowStats();
+            stats.setWindow(name);
+            stats.setSpanSeconds(spanSeconds);
+            stats.setRequests(requests);
+            stats.setErrors(errors);
+            stats.setRps(requests / spanSeconds);
+            stats.setErrorRate(requests > 0 ? (double) errors / requests : 0);
+            stats.setP50Ms(toMillis(snapshot.percentile(0.50)));
+            stats.setP95Ms(toMillis(snapshot.percentile(0.95)));
+            stats.setP99Ms(toMillis(snapshot.percentile(0.99)));
+            stats.setP999Ms(toMillis(snapshot.percentile(0.999)));
+            stats.setMaxMs(toMillis(snapshot.getMax()));
+            return stats;
+        }
+
+        List<WindowPoint> points(long now) {
+            long current = now / width;
+            List<WindowPoint> points = new ArrayList<>(slots.length);
+            for (long epoch = current - slots.length + 1; epoch <= current; epoch++) {
+                Slot slot = slots[(int) Math.floorMod(epoch, (long) slots.length)];
+                WindowPoint point = new WindowPoint();
+                point.setTime(epoch * width);
+                if (slot.epoch == epoch) {
+                    LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+                    slot.histogram.addTo(snapshot);
+                    point.setRequests(slot.requests.sum());
+                    point.setErrors(slot.errors.sum());
+                    point.setP99Ms(toMillis(snapshot.percentile(0.99)));
+                }
+                points.add(point);
+            }
+            return points;
+        }
+
+        private static double toMillis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+
+    private static final class Slot {
+
+        // 该桶对应的时间段序号（时间 / 桶宽度），-1表示空桶
+        volatile long epoch = -1;
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        void clear() {
+            requests.reset();
+            errors.reset();
+            histogram.reset();
+        }
+    }
+}
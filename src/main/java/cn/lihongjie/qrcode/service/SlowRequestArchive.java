@@ -0,0 +1,87 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.SlowRequestSample;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 慢请求样本的导出格式
+ *
+ * ZIP文件，每个样本两个条目：{id}.json 为元数据（SlowRequestSample），{id}.image 为图片原始数据（未保存图片的样本没有）。
+ * 由 /admin/slow-requests/export 导出，重放测试（SlowRequestReplayTest）和基准测试（SlowRequestReplayBenchmark）读取。
+ */
+public final class SlowRequestArchive {
+
+    private static final String METADATA_SUFFIX = ".json";
+    private static final String IMAGE_SUFFIX = ".image";
+
+    private SlowRequestArchive() {
+    }
+
+    /**
+     * 写出样本，不关闭 out
+     */
+    public static void write(List<SlowRequestSampler.Sample> samples, ObjectMapper objectMapper, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        for (SlowRequestSampler.Sample sample : samples) {
+            long id = sample.getMetadata().getId();
+            zip.putNextEntry(new ZipEntry(id + METADATA_SUFFIX));
+            // 直接写入会被ObjectMapper关闭ZIP流，先序列化为字节
+            zip.write(objectMapper.writeValueAsBytes(sample.getMetadata()));
+            zip.closeEntry();
+            if (sample.getImage() != null) {
+                zip.putNextEntry(new ZipEntry(id + IMAGE_SUFFIX));
+                zip.write(sample.getImage());
+                zip.closeEntry();
+            }
+        }
+        zip.finish();
+    }
+
+    /**
+     * 读取导出的样本，按序号排序
+     */
+    public static List<SlowRequestSampler.Sample> read(Path path, ObjectMapper objectMapper) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in, objectMapper);
+        }
+    }
+
+    /**
+     * 读取导出的样本，按序号排序，不关闭 in
+     */
+    public static List<SlowRequestSampler.Sample> read(InputStream in, ObjectMapper objectMapper) throws IOException {
+        Map<String, SlowRequestSample> metadata = new HashMap<>();
+        Map<String, byte[]> images = new HashMap<>();
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            String name = entry.getName();
+            if (name.endsWith(METADATA_SUFFIX)) {
+                String id = name.substring(0, name.length() - METADATA_SUFFIX.length());
+                metadata.put(id, objectMapper.readValue(zip.readAllBytes(), SlowRequestSample.class));
+            } else if (name.endsWith(IMAGE_SUFFIX)) {
+                images.put(name.substring(0, name.length() - IMAGE_SUFFIX.length()), zip.readAllBytes());
+            }
+        }
+
+        List<SlowRequestSampler.Sample> samples = new ArrayList<>(metadata.size());
+        for (Map.Entry<String, SlowRequestSample> item : metadata.entrySet()) {
+            samples.add(new SlowRequestSampler.Sample(item.getValue(), images.get(item.getKey())));
+        }
+        samples.sort((a, b) -> Long.compare(a.getMetadata().getId(), b.getMetadata().getId()));
+        return samples;
+    }
+}
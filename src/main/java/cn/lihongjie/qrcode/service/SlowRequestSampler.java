@@ -0,0 +1,213 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import cn.lihongjie.qrcode.model.ProcessingTime;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import cn.lihongjie.qrcode.model.SlowRequestSample;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * 慢请求采样
+ *
+ * 检测总耗时超过阈值的请求连同图片原始数据、各阶段耗时和检测选项保存在固定容量的环形缓冲区中，
+ * 用于离线重放（见 SlowRequestArchive）。写入只做一次序号自增和数组元素替换，不加锁；
+ * 缓冲区满后覆盖最早的样本。未超过阈值的请求只比较一次耗时，不产生其他开销。
+ */
+@ApplicationScoped
+public class SlowRequestSampler {
+
+    private static final Logger LOG = Logger.getLogger(SlowRequestSampler.class);
+
+    @Inject
+    QRCodeConfig config;
+
+    private boolean enabled;
+    private long thresholdNanos;
+    private boolean captureImages;
+    private int maxImageBytes;
+
+    private AtomicReferenceArray<Sample> samples;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        QRCodeConfig.SlowRequests slowConfig = config.slowRequests();
+        this.enabled = slowConfig.enabled();
+        this.thresholdNanos = slowConfig.threshold().toNanos();
+        this.captureImages = slowConfig.captureImages();
+        this.maxImageBytes = slowConfig.maxImageBytes();
+        this.samples = new AtomicReferenceArray<>(Math.max(1, slowConfig.capacity()));
+        if (enabled) {
+            LOG.info("慢请求采样已启用, 阈值: " + slowConfig.threshold().toMillis() + "ms, 容量: " + samples.length());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 请求耗时超过阈值时保存样本
+     *
+     * @param source 图片来源，图片原始数据在返回前被复制
+     * @param options 检测选项
+     * @param result 检测结果，检测抛出异常时为null
+     * @param processingTime 处理时间（各阶段耗时、图片尺寸）
+     * @param totalNanos 检测总耗时
+     */
+    public void record(ImageSource source, DetectionOptions options, QRCodeResult result,
+                       ProcessingTime processingTime, long totalNanos) {
+        if (!enabled || totalNanos < thresholdNanos) {
+            return;
+        }
+
+        SlowRequestSample metadata = new SlowRequestSample();
+        metadata.setTimestamp(System.currentTimeMillis());
+        metadata.setTotalTimeMs(totalNanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        metadata.setSuccess(result != null && result.isSuccess());
+        if (result != null) {
+            metadata.setCount(result.getCount());
+            if (!result.isSuccess()) {
+                metadata.setMessage(result.getMessage());
+            }
+        } else {
+            metadata.setMessage("检测抛出异常");
+        }
+        metadata.setMode(options.getMode().getName());
+        metadata.setProfile(options.getProfile());
+        metadata.setMaxCodes(options.getMaxCodes());
+        metadata.setContentPrefix(options.getContentPrefix());
+        if (options.getContentPattern() != null) {
+            metadata.setContentPattern(options.getContentPattern().pattern());
+        }
+        if (processingTime != null) {
+            metadata.setImageFormat(processingTime.getImageFormat());
+            metadata.setImageWidth(processingTime.getImageWidth());
+            metadata.setImageHeight(processingTime.getImageHeight());
+            metadata.setFileSizeBytes(processingTime.getFileSizeBytes());
+            if (processingTime.getStages() != null) {
+                metadata.setStages(new LinkedHashMap<>(processingTime.getStages()));
+            }
+        }
+
+        // 只有慢请求才计算哈希和复制图片，调用方的缓冲区在检测返回前仍然有效
+        byte[] image = null;
+        ByteBuffer content = source.content();
+        if (content != null) {
+            metadata.setImageSha256(ContentHasher.SHA256.hash(content));
+            if (captureImages && content.remaining() <= maxImageBytes) {
+                image = new byte[content.remaining()];
+                content.duplicate().get(image);
+            }
+        }
+        metadata.setImageCaptured(image != null);
+
+        long id = sequence.incrementAndGet();
+        metadata.setId(id);
+        samples.set((int) (id % samples.length()), new Sample(metadata, image));
+        LOG.debug("采样慢请求 #" + id + ", 耗时: " + Math.round(metadata.getTotalTimeMs()) + "ms");
+    }
+
+    /**
+     * 当前保留的样本元数据，最新的在前
+     */
+    public List<SlowRequestSample> list() {
+        List<SlowRequestSample> list = new ArrayList<>();
+        for (Sample sample : snapshot()) {
+            list.add(sample.getMetadata());
+        }
+        return list;
+    }
+
+    /**
+     * 当前保留的样本，最新的在前
+     */
+    public List<Sample> snapshot() {
+        List<Sample> list = new ArrayList<>(samples.length());
+        for (int i = 0; i < samples.length(); i++) {
+            Sample sample = samples.get(i);
+            if (sample != null) {
+                list.add(sample);
+            }
+        }
+        list.sort(Comparator.comparingLong((Sample sample) -> sample.getMetadata().getId()).reversed());
+        return list;
+    }
+
+    /**
+     * 按序号获取样本
+     *
+     * @return 样本，不存在或已被覆盖时返回null
+     */
+    public Sample get(long id) {
+        if (id <= 0) {
+            return null;
+        }
+        Sample sample = samples.get((int) (id % samples.length()));
+        return sample != null && sample.getMetadata().getId() == id ? sample : null;
+    }
+
+    /**
+     * 清空所有样本，序号继续递增
+     */
+    public void clear() {
+        for (int i = 0; i < samples.length(); i++) {
+            samples.set(i, null);
+        }
+    }
+
+    /**
+     * 按样本记录的选项重建检测选项，用于重放
+     */
+    public static DetectionOptions options(SlowRequestSample metadata) {
+        DetectionOptions options = new DetectionOptions();
+        options.setMode(DetectionMode.parse(metadata.getMode()));
+        options.setProfile(metadata.getProfile());
+        options.setMaxCodes(metadata.getMaxCodes());
+        options.setContentPrefix(metadata.getContentPrefix());
+        if (metadata.getContentPattern() != null) {
+            options.setContentPattern(Pattern.compile(metadata.getContentPattern()));
+        }
+        // 重放是为了复现检测耗时，不能命中结果缓存
+        options.setCacheBypass(true);
+        return options;
+    }
+
+    /**
+     * 一个慢请求样本：元数据和图片原始数据（未保存时为null）
+     */
+    public static final class Sample {
+
+        private final SlowRequestSample metadata;
+        private final byte[] image;
+
+        public Sample(SlowRequestSample metadata, byte[] image) {
+            this.metadata = metadata;
+            this.image = image;
+        }
+
+        public SlowRequestSample getMetadata() {
+            return metadata;
+        }
+
+        /**
+         * 图片原始数据，调用方不应修改
+         */
+        public byte[] getImage() {
+            return image;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.abst.fiducial.QrCodeDetector;
+import boofcv.alg.fiducial.qrcode.QrCode;
+import boofcv.struct.image.GrayU8;
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.shapes.Polygon2D_F64;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 分块并行QR码检测
+ *
+ * 将一张大图切分为相互重叠的分块（GrayU8子图像，共享原图数组，不复制像素），
+ * 并行检测后再按内容和位置去除重叠区域中被重复检测到的QR码。
+ *
+ * 分块在 {@link DetectionExecutor} 的检测线程上执行，与普通请求共用同一组线程，CPU密集的线程数不会超过检测线程数。
+ * 调用线程本身就是检测线程：它向线程池提交辅助任务，自己也领取分块；辅助任务在调用线程完成前仍在排队时不再执行，
+ * 因此所有检测线程都在做分块请求时也不会死锁。每个参与的线程从请求所选配置的检测器池借用一个检测器，
+ * 辅助任务借不到检测器时直接退出，剩余分块由调用线程完成。
+ */
+@ApplicationScoped
+public class TiledDetector {
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int CANCELLED = 2;
+
+    @Inject
+    QRCodeConfig config;
+
+    @Inject
+    DetectorProfiles detectorProfiles;
+
+    @Inject
+    DetectionExecutor detectionExecutor;
+
+    private int tileSize;
+    private int overlap;
+    private int parallelism;
+    private long borrowTimeoutNanos;
+
+    @PostConstruct
+    void init() {
+        this.tileSize = Math.max(64, config.tiled().tileSize());
+        this.overlap = Math.max(0, Math.min(config.tiled().overlap(), tileSize / 2));
+        int parallelism = config.tiled().parallelism();
+        if (parallelism <= 0) {
+            parallelism = detectionExecutor.getPoolSize();
+        }
+        this.parallelism = Math.max(1, parallelism);
+        this.borrowTimeoutNanos = config.detector().pool().borrowTimeout().toNanos();
+    }
+
+    /**
+     * 图像是否大到需要分块
+     */
+    public boolean needsTiling(GrayU8 image) {
+        return image.width > tileSize || image.height > tileSize;
+    }
+
+    /**
+     * 分块检测，应在检测线程上调用
+     *
+     * 已找到满足过滤条件的QR码数量达到 maxCodes 后，尚未开始的分块被跳过。
+     * 方法返回前所有分块任务都已结束，调用方随后可以安全地复用图像缓冲区。
+     *
+     * @param image 灰度图像
+     * @param options 检测选项，使用其中的检测配置、内容过滤和数量限制
+     * @param token 取消标记，每个分块开始前检查，已取消时跳过剩余分块
+     * @return 去重后的检测结果，坐标为整幅图像坐标
+     * @throws InterruptedException 等待检测器时被中断（仍会等待已开始的分块结束后才抛出）
+     * @throws TimeoutException 调用线程等待检测器超时
+     */
+    public Result detect(GrayU8 image, DetectionOptions options, CancellationToken token) throws InterruptedException, TimeoutException {
+        List<Rectangle> tiles = layout(image.width, image.height, tileSize, overlap);
+        DetectorPool detectorPool = detectorProfiles.pool(options.getProfile());
+        Tiling tiling = new Tiling(image, tiles, options, token);
+
+        int helperCount = Math.min(tiles.size(), parallelism) - 1;
+        List<Helper> helpers = new ArrayList<>(Math.max(0, helperCount));
+        for (int i = 0; i < helperCount; i++) {
+            Helper helper = new Helper();
+            helper.future = detectionExecutor.submitHelper(() -> {
+                helper.run(tiling, detectorPool);
+                return null;
+            });
+            if (helper.future == null) {
+                break;
+            }
+            helpers.add(helper);
+        }
+
+        try {
+            QrCodeDetector<GrayU8> detector = detectorPool.borrow(borrowTimeoutNanos, TimeUnit.NANOSECONDS);
+            try {
+                tiling.work(detector);
+            } finally {
+                detectorPool.release(detector);
+            }
+        } finally {
+            // 调用线程退出时不再领取新的分块；等待已开始的辅助任务结束后再返回：分块引用的是调用方的图像缓冲区
+            tiling.stop();
+            boolean interrupted = false;
+            for (Helper helper : helpers) {
+                interrupted |= helper.await(tiling);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return tiling.result();
+    }
+
+    private static List<QrCode> detectTile(QrCodeDetector<GrayU8> detector, GrayU8 image, Rectangle tile) {
+        GrayU8 sub = image.subimage(tile.x, tile.y, tile.x + tile.width, tile.y + tile.height);
+        detector.process(sub);
+
+        // 检测器会在下一次process时复用内部的QrCode对象，返回前复制并平移到整幅图像坐标
+        List<QrCode> detections = detector.getDetections();
+        List<QrCode> codes = new ArrayList<>(detections.size());
+        for (QrCode detection : detections) {
+            QrCode copy = new QrCode();
+            copy.message = detection.message;
+            copy.bounds.setTo(detection.bounds);
+            for (int i = 0; i < copy.bounds.size(); i++) {
+                Point2D_F64 corner = copy.bounds.get(i);
+                corner.x += tile.x;
+                corner.y += tile.y;
+            }
+            codes.add(copy);
+        }
+        return codes;
+    }
+
+    /**
+     * 一次分块检测中各线程共享的状态，线程按分块序号领取任务
+     */
+    private static final class Tiling {
+
+        private final GrayU8 image;
+        private final List<Rectangle> tiles;
+        private final DetectionOptions options;
+        private final CancellationToken token;
+        private final List<QrCode>[] results;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger found = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicLong detectedNanos = new AtomicLong();
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        @SuppressWarnings("unchecked")
+        Tiling(GrayU8 image, List<Rectangle> tiles, DetectionOptions options, CancellationToken token) {
+            this.image = image;
+            this.tiles = tiles;
+            this.options = options;
+            this.token = token;
+            this.results = new List[tiles.size()];
+        }
+
+        void work(QrCodeDetector<GrayU8> detector) {
+            int index;
+            while ((index = next.getAndIncrement()) < tiles.size()) {
+                if (token.isCancelled() || options.isSatisfied(found.get())) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                try {
+                    long tileStart = System.nanoTime();
+                    List<QrCode> codes = detectTile(detector, image, tiles.get(index));
+                    detectedNanos.addAndGet(System.nanoTime() - tileStart);
+                    for (QrCode code : codes) {
+                        if (options.accepts(code.message)) {
+                            found.incrementAndGet();
+                        }
+                    }
+                    results[index] = codes;
+                } catch (RuntimeException e) {
+                    fail(e);
+                    return;
+                }
+            }
+        }
+
+        void stop() {
+            next.set(tiles.size());
+        }
+
+        void fail(RuntimeException e) {
+            failure.compareAndSet(null, e);
+            stop();
+        }
+
+        Result result() {
+            RuntimeException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+            List<QrCode> merged = new ArrayList<>();
+            for (List<QrCode> codes : results) {
+                if (codes != null) {
+                    merged.addAll(codes);
+                }
+            }
+            return new Result(deduplicate(merged), tiles.size(), skipped.get(), detectedNanos.get());
+        }
+    }
+
+    /**
+     * 提交到检测线程池的辅助任务，开始执行前可以被调用线程取消
+     */
+    private static final class Helper {
+
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private Future<?> future;
+
+        void run(Tiling tiling, DetectorPool detectorPool) {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return;
+            }
+            QrCodeDetector<GrayU8> detector;
+            try {
+                detector = detectorPool.borrow(0, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                tiling.work(detector);
+            } finally {
+                detectorPool.release(detector);
+            }
+        }
+
+        /**
+         * 取消尚未开始的任务，等待已开始的任务结束
+         *
+         * @return 等待期间是否被中断
+         */
+        boolean await(Tiling tiling) {
+            if (state.compareAndSet(QUEUED, CANCELLED)) {
+                future.cancel(false);
+                return false;
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    future.get();
+                    return interrupted;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    tiling.fail(e.getCause() instanceof RuntimeException runtime
+                            ? runtime : new IllegalStateException(e.getCause()));
+                    return interrupted;
+                }
+            }
+        }
+    }
+
+    /**
+     * 计算分块：步长为 tileSize - overlap，最后一块与图像边缘对齐
+     */
+    static List<Rectangle> layout(int width, int height, int tileSize, int overlap) {
+        List<Rectangle> tiles = new ArrayList<>();
+        for (int y : starts(height, tileSize, overlap)) {
+            for (int x : starts(width, tileSize, overlap)) {
+                tiles.add(new Rectangle(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y)));
+            }
+        }
+        return tiles;
+    }
+
+    private static List<Integer> starts(int length, int tileSize, int overlap) {
+        List<Integer> starts = new ArrayList<>();
+        if (length <= tileSize) {
+            starts.add(0);
+            return starts;
+        }
+        int step = tileSize - overlap;
+        for (int start = 0; ; start += step) {
+            if (start + tileSize >= length) {
+                starts.add(length - tileSize);
+                return starts;
+            }
+            starts.add(start);
+        }
+    }
+
+    /**
+     * 去除重叠区域中被多个分块检测到的同一个QR码：内容相同且中心距离小于QR码边长一半的视为同一个
+     */
+    static List<QrCode> deduplicate(List<QrCode> codes) {
+        List<QrCode> unique = new ArrayList<>(codes.size());
+        outer:
+        for (QrCode code : codes) {
+            for (QrCode kept : unique) {
+                if (sameCode(kept, code)) {
+                    continue outer;
+                }
+            }
+            unique.add(code);
+        }
+        return unique;
+    }
+
+    private static boolean sameCode(QrCode a, QrCode b) {
+        if (a.message == null ? b.message != null : !a.message.equals(b.message)) {
+            return false;
+        }
+        Point2D_F64 centerA = center(a.bounds);
+        Point2D_F64 centerB = center(b.bounds);
+        double size = Math.max(extent(a.bounds), extent(b.bounds));
+        return centerA.distance(centerB) < size / 2;
+    }
+
+    private static Point2D_F64 center(Polygon2D_F64 bounds) {
+        double x = 0;
+        double y = 0;
+        for (int i = 0; i < bounds.size(); i++) {
+            x += bounds.get(i).x;
+            y += bounds.get(i).y;
+        }
+        int n = Math.max(1, bounds.size());
+        return new Point2D_F64(x / n, y / n);
+    }
+
+    private static double extent(Polygon2D_F64 bounds) {
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < bounds.size(); i++) {
+            Point2D_F64 corner = bounds.get(i);
+            minX = Math.min(minX, corner.x);
+            minY = Math.min(minY, corner.y);
+            maxX = Math.max(maxX, corner.x);
+            maxY = Math.max(maxY, corner.y);
+        }
+        return Math.max(maxX - minX, maxY - minY);
+    }
+
+    /**
+     * 分块检测结果
+     */
+    public static final class Result {
+
+        private final List<QrCode> codes;
+        private final int tiles;
+        private final int skippedTiles;
+        private final long detectedNanos;
+
+        Result(List<QrCode> codes, int tiles, int skippedTiles, long detectedNanos) {
+            this.codes = codes;
+            this.tiles = tiles;
+            this.skippedTiles = skippedTiles;
+            this.detectedNanos = detectedNanos;
+        }
+
+        /**
+         * 去重后的QR码，坐标为整幅图像坐标
+         */
+        public List<QrCode> getCodes() {
+            return codes;
+        }
+
+        public int getTiles() {
+            return tiles;
+        }
+
+        /**
+         * 因已找到足够的QR码或请求取消而跳过的分块数
+         */
+        public int getSkippedTiles() {
+            return skippedTiles;
+        }
+
+        /**
+         * 按已检测分块的平均耗时估算跳过的分块耗时（纳秒，各线程之和）
+         */
+        public long getEstimatedSkippedNanos() {
+            int detected = tiles - skippedTiles;
+            return detected > 0 ? detectedNanos / detected * skippedTiles : 0;
+        }
+    }
+}
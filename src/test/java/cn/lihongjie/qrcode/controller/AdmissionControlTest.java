@@ -0,0 +1,68 @@
+package cn.lihongjie.qrcode.controller;
+
+import cn.lihongjie.qrcode.service.AdmissionController;
+import cn.lihongjie.qrcode.service.QRCodeTestImages;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * 并发上限用满后检测请求排队超时，返回 503 和 Retry-After
+ */
+@QuarkusTest
+@TestProfile(AdmissionControlTest.SmallLimit.class)
+public class AdmissionControlTest {
+
+    public static class SmallLimit implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "qrcode.admission.enabled", "true",
+                    "qrcode.admission.adaptive", "false",
+                    "qrcode.admission.initial-limit", "1",
+                    "qrcode.admission.max-queue", "1",
+                    "qrcode.admission.queue-timeout", "200ms",
+                    "qrcode.admission.retry-after", "7s");
+        }
+    }
+
+    @Inject
+    AdmissionController admissionController;
+
+    @Test
+    public void testSaturatedLimitReturnsServiceUnavailable() throws Exception {
+        byte[] image = QRCodeTestImages.encode("admission", "png");
+
+        // 占用唯一的执行许可，请求只能排队直到超时
+        AdmissionController.Permit permit = admissionController.acquire();
+        try {
+            given()
+              .contentType("application/octet-stream")
+              .body(image)
+              .when().post("/api/qrcode/detect")
+              .then()
+                 .statusCode(503)
+                 .header("Retry-After", "7")
+                 .body("success", is(false))
+                 .body("message", containsString("排队超时"));
+        } finally {
+            admissionController.release(permit);
+        }
+
+        given()
+          .contentType("application/octet-stream")
+          .body(image)
+          .when().post("/api/qrcode/detect")
+          .then()
+             .statusCode(200)
+             .body("qrCodes[0].content", is("admission"));
+    }
+}
@@ -0,0 +1,147 @@
+package cn.lihongjie.qrcode.controller;
+
+import cn.lihongjie.qrcode.service.QRCodeTestImages;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.restassured.path.json.JsonPath;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 保留解码图像（retainImage）并通过图片句柄再次检测
+ */
+@QuarkusTest
+@TestProfile(ImageHandleControllerTest.RetainImages.class)
+public class ImageHandleControllerTest {
+
+    public static class RetainImages implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            // 640x480 的图片全尺寸解码，1200x800 的图片超出像素预算，按 1/2 抽样解码
+            return Map.of(
+                    "qrcode.image-cache.enabled", "true",
+                    "qrcode.pixel-budget.max-pixels", "500000",
+                    "qrcode.pixel-budget.policy", "downsample");
+        }
+    }
+
+    @Test
+    public void testRoiOnRetainedImageUsesOriginalCoordinates() {
+        assertRoiDetection(image(640, 480, 380, 240), 1, 380, 240);
+    }
+
+    @Test
+    public void testRoiOnSubsampledRetainedImageUsesOriginalCoordinates() {
+        assertRoiDetection(image(1200, 800, 760, 420), 2, 760, 420);
+    }
+
+    @Test
+    public void testDeleteInvalidatesToken() {
+        String token = retain(image(640, 480, 380, 240));
+
+        given()
+          .when().post("/api/qrcode/detect/image/" + token)
+          .then()
+             .statusCode(200);
+
+        given()
+          .when().delete("/api/qrcode/detect/image/" + token)
+          .then()
+             .statusCode(204);
+
+        given()
+          .when().post("/api/qrcode/detect/image/" + token)
+          .then()
+             .statusCode(404)
+             .body("success", is(false));
+
+        given()
+          .when().delete("/api/qrcode/detect/image/" + token)
+          .then()
+             .statusCode(404);
+    }
+
+    /**
+     * 首次检测返回两个QR码和图片句柄；换用 fast 配置只检测右下角区域，结果坐标应为原图坐标
+     */
+    private static void assertRoiDetection(byte[] image, int expectedSubsampling, int rightX, int rightY) {
+        JsonPath first = given()
+          .contentType("application/octet-stream")
+          .queryParam("retainImage", true)
+          .body(image)
+          .when().post("/api/qrcode/detect")
+          .then()
+             .statusCode(200)
+             .body("count", is(2))
+             .body("imageToken", notNullValue())
+             .extract().jsonPath();
+        Integer subsampling = first.get("processingTime.subsampling");
+        assertEquals(expectedSubsampling, subsampling == null ? 1 : subsampling);
+        String token = first.getString("imageToken");
+
+        // 区域只包含右下角的QR码
+        String roi = (rightX - 20) + "," + (rightY - 20) + ",240,240";
+        JsonPath second = given()
+          .queryParam("profile", "fast")
+          .queryParam("roi", roi)
+          .when().post("/api/qrcode/detect/image/" + token)
+          .then()
+             .statusCode(200)
+             .body("count", is(1))
+             .body("imageToken", is(token))
+             .body("qrCodes[0].content", is("roi-right"))
+             .body("processingTime.imageCacheHit", is(true))
+             .extract().jsonPath();
+
+        // 与首次整幅检测得到的原图坐标一致，并且位于检测区域内
+        String original = "qrCodes.find { it.content == 'roi-right' }.boundingBox.";
+        double tolerance = 2.0 * expectedSubsampling + 1;
+        for (String field : new String[]{"x", "y", "width", "height"}) {
+            double expected = first.getDouble(original + field);
+            double actual = second.getDouble("qrCodes[0].boundingBox." + field);
+            assertTrue(Math.abs(expected - actual) <= tolerance, field + ": " + actual + ", 首次检测: " + expected);
+        }
+        assertTrue(second.getDouble("qrCodes[0].boundingBox.x") > rightX);
+        assertTrue(second.getDouble("qrCodes[0].boundingBox.y") > rightY);
+        assertEquals(first.getInt("processingTime.imageWidth"), second.getInt("processingTime.imageWidth"));
+    }
+
+    private static String retain(byte[] image) {
+        return given()
+          .contentType("application/octet-stream")
+          .queryParam("retainImage", true)
+          .body(image)
+          .when().post("/api/qrcode/detect")
+          .then()
+             .statusCode(200)
+             .extract().path("imageToken");
+    }
+
+    /**
+     * 左上角和指定位置各放一个QR码
+     */
+    private static byte[] image(int width, int height, int rightX, int rightY) {
+        BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = canvas.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(QRCodeTestImages.render("roi-left"), 0, 0, null);
+            graphics.drawImage(QRCodeTestImages.render("roi-right"), rightX, rightY, null);
+        } finally {
+            graphics.dispose();
+        }
+        return QRCodeTestImages.toBytes(canvas, "png");
+    }
+}
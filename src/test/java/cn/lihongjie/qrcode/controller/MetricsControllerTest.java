@@ -0,0 +1,34 @@
+package cn.lihongjie.qrcode.controller;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
+
+@QuarkusTest
+public class MetricsControllerTest {
+
+    @Test
+    public void testQRCodeMetricsSnapshot() {
+        given()
+          .when().get("/metrics/qrcode")
+          .then()
+             .statusCode(200)
+             .contentType(startsWith("application/json"))
+             .body("'qrcode.detection.requests.total'", notNullValue())
+             .body("'qrcode.processing.total.duration'.count", notNullValue());
+    }
+
+    @Test
+    public void testAllMetricsSnapshot() {
+        given()
+          .when().get("/metrics/json")
+          .then()
+             .statusCode(200)
+             .body("counters", notNullValue())
+             .body("timestamp", notNullValue());
+    }
+
+}
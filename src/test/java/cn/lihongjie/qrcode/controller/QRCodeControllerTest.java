@@ -1,8 +1,14 @@
 package cn.lihongjie.qrcode.controller;
 
+import cn.lihongjie.qrcode.service.QRCodeTestImages;
 import io.quarkus.test.junit.QuarkusTest;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.is;
 
@@ -18,4 +24,109 @@ public class QRCodeControllerTest {
              .body("service", is("QR Code Detection Service"));
     }
 
+    @Test
+    public void testUnknownProfileIsRejected() {
+        given()
+          .contentType("application/octet-stream")
+          .body(new byte[] {1, 2, 3})
+          .queryParam("profile", "no-such-profile")
+          .when().post("/api/qrcode/detect")
+          .then()
+             .statusCode(400)
+             .body("success", is(false));
+    }
+
+    @Test
+    public void testBacktrackingMatchPatternIsRejected() {
+        given()
+          .contentType("application/octet-stream")
+          .body(QRCodeTestImages.encode("PAY:12345", "png"))
+          .queryParam("match", "(a+)+$")
+          .when().post("/api/qrcode/detect")
+          .then()
+             .statusCode(400)
+             .body("success", is(false));
+    }
+
+    @Test
+    public void testMultipartTiffIsDetectedPerPage() {
+        byte[] tiff = QRCodeTestImages.encodeFrames("tiff", "scan-page-0", "scan-page-1");
+
+        given()
+          .multiPart("file", "scan.tiff", tiff, "image/tiff")
+          .when().post("/api/qrcode/detect")
+          .then()
+             .statusCode(200)
+             .body("success", is(true))
+             .body("count", is(2))
+             .body("qrCodes[0].frameIndex", is(0))
+             .body("qrCodes[1].frameIndex", is(1));
+    }
+
+    @Test
+    public void testMultipartBatchFailsOnlyTheBadImage() {
+        given()
+          .multiPart("file", "first.png", QRCodeTestImages.encode("batch-first", "png"), "image/png")
+          .multiPart("file", "broken.png", new byte[] {1, 2, 3, 4}, "image/png")
+          .multiPart("file", "third.png", QRCodeTestImages.encode("batch-third", "png"), "image/png")
+          .when().post("/api/qrcode/detect/batch")
+          .then()
+             .statusCode(200)
+             .body("total", is(3))
+             .body("succeeded", is(2))
+             .body("failed", is(1))
+             .body("items[0].result.qrCodes[0].content", is("batch-first"))
+             .body("items[1].fileName", is("broken.png"))
+             .body("items[1].result.success", is(false))
+             .body("items[2].result.qrCodes[0].content", is("batch-third"));
+    }
+
+    @Test
+    public void testZipBatchFailsOnlyTheBadImage() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("labels/first.png"));
+            zip.write(QRCodeTestImages.encode("zip-first", "png"));
+            zip.putNextEntry(new ZipEntry("labels/broken.png"));
+            zip.write(new byte[] {1, 2, 3, 4});
+            zip.putNextEntry(new ZipEntry("__MACOSX/labels/._first.png"));
+            zip.write(new byte[] {0});
+            zip.putNextEntry(new ZipEntry("labels/third.jpg"));
+            zip.write(QRCodeTestImages.encode("zip-third", "jpeg"));
+        }
+
+        given()
+          .contentType("application/zip")
+          .body(out.toByteArray())
+          .when().post("/api/qrcode/detect/batch")
+          .then()
+             .statusCode(200)
+             .body("total", is(3))
+             .body("succeeded", is(2))
+             .body("items[0].fileName", is("labels/first.png"))
+             .body("items[0].result.qrCodes[0].content", is("zip-first"))
+             .body("items[1].fileName", is("labels/broken.png"))
+             .body("items[1].result.success", is(false))
+             .body("items[2].result.qrCodes[0].content", is("zip-third"));
+    }
+
+    @Test
+    public void testUnknownImageTokenReturnsNotFound() {
+        given()
+          .when().post("/api/qrcode/detect/image/no-such-token")
+          .then()
+             .statusCode(404)
+             .body("success", is(false));
+    }
+
+    @Test
+    public void testMalformedRoiIsRejected() {
+        given()
+          .queryParam("roi", "10,20,abc")
+          .when().post("/api/qrcode/detect/image/no-such-token")
+          .then()
+             .statusCode(400)
+             .body("success", is(false));
+    }
+
 }
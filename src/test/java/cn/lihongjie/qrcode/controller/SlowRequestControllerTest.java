@@ -0,0 +1,48 @@
+package cn.lihongjie.qrcode.controller;
+
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
+
+@QuarkusTest
+public class SlowRequestControllerTest {
+
+    @TestHTTPResource(value = "/admin/slow-requests", management = true)
+    URL slowRequests;
+
+    @TestHTTPResource(value = "/admin/slow-requests/abc", management = true)
+    URL unknownSample;
+
+    @Test
+    public void testSamplesAreServedOnManagementPort() {
+        given()
+          .when().get(slowRequests)
+          .then()
+             .statusCode(200)
+             .contentType(startsWith("application/json"))
+             .body("enabled", is(false))
+             .body("samples", notNullValue());
+
+        given()
+          .when().get(unknownSample)
+          .then()
+             .statusCode(404)
+             .body("message", notNullValue());
+    }
+
+    @Test
+    public void testSamplesAreNotServedOnPublicPort() {
+        given()
+          .when().get("/admin/slow-requests")
+          .then()
+             .statusCode(404);
+    }
+
+}
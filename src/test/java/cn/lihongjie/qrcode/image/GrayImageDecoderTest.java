@@ -0,0 +1,151 @@
+package cn.lihongjie.qrcode.image;
+
+import boofcv.struct.image.GrayU8;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GrayImageDecoderTest {
+
+    @Test
+    public void testPngDecodingMatchesImageIO() throws Exception {
+        int[] types = {
+            BufferedImage.TYPE_BYTE_GRAY,
+            BufferedImage.TYPE_USHORT_GRAY,
+            BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_BYTE_INDEXED,
+            BufferedImage.TYPE_BYTE_BINARY
+        };
+        for (int type : types) {
+            byte[] bytes = encode(randomImage(type), "png");
+            BufferedImage reference = ImageIO.read(new ByteArrayInputStream(bytes));
+
+            GrayU8 gray = new GrayU8(1, 1);
+            assertEquals(GrayImageDecoder.FORMAT_PNG, GrayImageDecoder.decode(ByteBuffer.wrap(bytes), gray));
+            assertEquals(reference.getWidth(), gray.width);
+            assertEquals(reference.getHeight(), gray.height);
+            assertTrue(maxDifference(reference, gray) == 0, "PNG type " + type);
+        }
+    }
+
+    @Test
+    public void testJpegDecodingUsesLuminanceChannel() throws Exception {
+        byte[] bytes = encode(randomImage(BufferedImage.TYPE_BYTE_GRAY), "jpeg");
+        BufferedImage reference = ImageIO.read(new ByteArrayInputStream(bytes));
+
+        GrayU8 gray = new GrayU8(1, 1);
+        assertEquals(GrayImageDecoder.FORMAT_JPEG, GrayImageDecoder.decode(ByteBuffer.wrap(bytes), gray));
+        assertEquals(0, maxDifference(reference, gray));
+    }
+
+    @Test
+    public void testColorJpegDecodingReadsYPlane() throws Exception {
+        byte[] bytes = encode(randomImage(BufferedImage.TYPE_3BYTE_BGR), "jpeg");
+        Raster ycc;
+        ImageReader reader = ImageIO.getImageReadersByFormatName("jpeg").next();
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            reader.setInput(input);
+            ycc = reader.readRaster(0, null);
+        } finally {
+            reader.dispose();
+        }
+
+        GrayU8 gray = new GrayU8(1, 1);
+        assertEquals(GrayImageDecoder.FORMAT_JPEG, GrayImageDecoder.decode(ByteBuffer.wrap(bytes), gray));
+        for (int y = 0; y < gray.height; y++) {
+            for (int x = 0; x < gray.width; x++) {
+                assertEquals(ycc.getSample(x, y, 0), gray.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testOtherFormatsFallBackToImageIO() throws Exception {
+        byte[] bytes = encode(randomImage(BufferedImage.TYPE_BYTE_INDEXED), "gif");
+        GrayU8 gray = new GrayU8(1, 1);
+        assertEquals("gif", GrayImageDecoder.decode(ByteBuffer.wrap(bytes), gray));
+
+        assertNull(GrayImageDecoder.decode(ByteBuffer.wrap(new byte[]{1, 2, 3}), gray));
+    }
+
+    @Test
+    public void testSubsampledDecodingPicksEveryNthPixel() throws Exception {
+        int[] types = {BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_BINARY};
+        for (int type : types) {
+            for (String format : new String[]{"png", "jpeg", "gif"}) {
+                byte[] bytes = encode(randomImage(type), format);
+                GrayU8 full = new GrayU8(1, 1);
+                GrayU8 subsampled = new GrayU8(1, 1);
+                GrayImageDecoder.decode(ByteBuffer.wrap(bytes), full);
+                GrayImageDecoder.decode(ByteBuffer.wrap(bytes), subsampled, 3);
+
+                assertEquals((full.width + 2) / 3, subsampled.width);
+                assertEquals((full.height + 2) / 3, subsampled.height);
+                for (int y = 0; y < subsampled.height; y++) {
+                    for (int x = 0; x < subsampled.width; x++) {
+                        assertEquals(full.get(x * 3, y * 3), subsampled.get(x, y), format + " type " + type);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProbeReadsDimensionsFromHeader() throws Exception {
+        for (String format : new String[]{"png", "jpeg", "gif"}) {
+            ImageDimensions dimensions = GrayImageDecoder.probe(ByteBuffer.wrap(encode(randomImage(BufferedImage.TYPE_BYTE_GRAY), format)));
+            assertEquals(101, dimensions.getWidth());
+            assertEquals(67, dimensions.getHeight());
+        }
+        assertNull(GrayImageDecoder.probe(ByteBuffer.wrap(new byte[]{1, 2, 3})));
+    }
+
+    private static BufferedImage randomImage(int type) {
+        Random random = new Random(type);
+        BufferedImage image = new BufferedImage(101, 67, type);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, 0xFF000000 | random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static int maxDifference(BufferedImage reference, GrayU8 gray) {
+        boolean grayscale = reference.getRaster().getNumBands() == 1 && reference.getColorModel().getNumComponents() == 1;
+        int shift = reference.getColorModel().getComponentSize(0) - 8;
+        int max = 0;
+        for (int y = 0; y < reference.getHeight(); y++) {
+            for (int x = 0; x < reference.getWidth(); x++) {
+                int expected;
+                if (grayscale) {
+                    expected = reference.getRaster().getSample(x, y, 0) >> shift;
+                } else {
+                    int rgb = reference.getRGB(x, y);
+                    expected = PngLuminanceDecoder.luminance((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+                }
+                max = Math.max(max, Math.abs(expected - gray.get(x, y)));
+            }
+        }
+        return max;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,65 @@
+package cn.lihongjie.qrcode.image;
+
+import boofcv.struct.image.GrayU8;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RawLuminanceTest {
+
+    @Test
+    public void testWrapReferencesBufferWithoutCopy() {
+        int width = 5;
+        int height = 3;
+        int stride = 8;
+        // 前2字节为偏移，随后是带行填充的Y平面，末尾是NV21色度平面
+        byte[] bytes = new byte[2 + stride * height + stride * 2];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                bytes[2 + y * stride + x] = (byte) (y * 10 + x);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(2);
+
+        GrayU8 image = RawLuminance.wrap(buffer, width, height, stride);
+
+        assertSame(bytes, image.data);
+        assertEquals(2, buffer.position());
+        assertEquals(width, image.width);
+        assertEquals(height, image.height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(y * 10 + x, image.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testSubsamplePicksEveryNthPixel() {
+        byte[] bytes = new byte[7 * 5];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        GrayU8 image = RawLuminance.wrap(ByteBuffer.wrap(bytes), 7, 5, 0);
+
+        GrayU8 output = new GrayU8(1, 1);
+        RawLuminance.subsample(image, 3, output);
+
+        assertEquals(3, output.width);
+        assertEquals(2, output.height);
+        assertEquals(3 * 7 + 6, output.get(2, 1));
+    }
+
+    @Test
+    public void testRejectsShortBufferAndUnknownFormat() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RawLuminance.wrap(ByteBuffer.allocate(10), 4, 4, 0));
+        assertThrows(IllegalArgumentException.class, () -> RawLuminance.parseFormat("rgb24"));
+        assertEquals(RawLuminance.FORMAT_YUV420, RawLuminance.parseFormat("I420"));
+    }
+}
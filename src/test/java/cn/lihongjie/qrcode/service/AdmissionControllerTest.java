@@ -0,0 +1,129 @@
+package cn.lihongjie.qrcode.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionControllerTest {
+
+    @Test
+    public void testSaturatedLimitRejectsWhenQueueIsFullOrTimesOut() throws Exception {
+        AdmissionController admission = admission(Map.of(
+                "qrcode.admission.adaptive", "false",
+                "qrcode.admission.initial-limit", "1",
+                "qrcode.admission.max-queue", "1",
+                "qrcode.admission.queue-timeout", "PT0.5S",
+                "qrcode.admission.retry-after", "PT3S"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AdmissionController.Permit permit = admission.acquire();
+            assertEquals(1, admission.getInFlight());
+
+            // 第二个请求进入等待队列，排队超时后被拒绝
+            Future<AdmissionController.Permit> queued = executor.submit(admission::acquire);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (admission.getQueueDepth() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, admission.getQueueDepth());
+
+            // 队列已满，第三个请求立即被拒绝
+            AdmissionRejectedException queueFull = assertThrows(AdmissionRejectedException.class, admission::acquire);
+            assertTrue(queueFull.getMessage().contains("队列已满"));
+            assertEquals(3, queueFull.getRetryAfterSeconds());
+
+            ExecutionException timeout = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+            AdmissionRejectedException rejected = assertInstanceOf(AdmissionRejectedException.class, timeout.getCause());
+            assertTrue(rejected.getMessage().contains("排队超时"));
+            assertEquals(3, rejected.getRetryAfterSeconds());
+            assertEquals(0, admission.getQueueDepth());
+
+            // 归还许可后新请求可以立即执行
+            admission.release(permit);
+            admission.release(admission.acquire());
+            assertEquals(0, admission.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAdaptiveLimitDecreasesOnHighLatency() throws Exception {
+        AdmissionController admission = admission(Map.of(
+                "qrcode.admission.initial-limit", "8",
+                "qrcode.admission.min-limit", "2",
+                "qrcode.admission.max-limit", "16",
+                "qrcode.admission.latency-threshold", "PT0.001S"));
+
+        for (int i = 0; i < 3; i++) {
+            AdmissionController.Permit permit = admission.acquire();
+            Thread.sleep(10);
+            admission.release(permit);
+        }
+        // 8 -> 7.2 -> 6.48 -> 5.83
+        assertEquals(5, admission.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            AdmissionController.Permit permit = admission.acquire();
+            Thread.sleep(2);
+            admission.release(permit);
+        }
+        assertEquals(2, admission.getLimit());
+    }
+
+    @Test
+    public void testConcurrentSlowCompletionsDecreaseLimitOnce() throws Exception {
+        AdmissionController admission = admission(Map.of(
+                "qrcode.admission.initial-limit", "16",
+                "qrcode.admission.max-limit", "16",
+                "qrcode.admission.latency-threshold", "PT0.05S"));
+
+        // 16个同时执行的慢请求（例如一批大图片）只让上限减小一次
+        AdmissionController.Permit[] permits = new AdmissionController.Permit[16];
+        for (int i = 0; i < permits.length; i++) {
+            permits[i] = admission.acquire();
+        }
+        Thread.sleep(100);
+        for (AdmissionController.Permit permit : permits) {
+            admission.release(permit);
+        }
+        // 16 -> 14.4
+        assertEquals(14, admission.getLimit());
+
+        // 上次减小之后开始的慢请求仍会继续减小上限
+        AdmissionController.Permit permit = admission.acquire();
+        Thread.sleep(100);
+        admission.release(permit);
+        // 14.4 -> 12.96
+        assertEquals(12, admission.getLimit());
+    }
+
+    @Test
+    public void testAdaptiveLimitGrowsWhenSaturatedAndFast() throws Exception {
+        AdmissionController admission = admission(Map.of(
+                "qrcode.admission.initial-limit", "1",
+                "qrcode.admission.max-limit", "4",
+                "qrcode.admission.latency-threshold", "PT1H"));
+
+        // 并发已用满且耗时正常时加性增大
+        admission.release(admission.acquire());
+        assertEquals(2, admission.getLimit());
+    }
+
+    private static AdmissionController admission(Map<String, String> overrides) {
+        Map<String, String> properties = new HashMap<>(overrides);
+        properties.putIfAbsent("qrcode.admission.enabled", "true");
+        return BenchmarkServices.admissionController(BenchmarkServices.config(properties), BenchmarkServices.metricsService());
+    }
+}
@@ -0,0 +1,115 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.config.SmallRyeConfig;
+import io.smallrye.config.SmallRyeConfigBuilder;
+
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * 不启动Quarkus，直接组装单元测试和基准测试需要的服务实例
+ *
+ * 位于测试源码中，benchmark profile 把 src/jmh/java 加入测试源码后同样可以使用。
+ */
+final class BenchmarkServices {
+    
+    private BenchmarkServices() {
+    }
+    
+    /**
+     * 使用默认配置（可被 overrides 覆盖）创建配置对象
+     */
+    static QRCodeConfig config(Map<String, String> overrides) {
+        SmallRyeConfig config = new SmallRyeConfigBuilder()
+                .addDiscoveredConverters()
+                .withMapping(QRCodeConfig.class)
+                .withDefaultValues(overrides)
+                .build();
+        return config.getConfigMapping(QRCodeConfig.class);
+    }
+    
+    static QRCodeMetricsService metricsService() {
+        QRCodeMetricsService metricsService = new QRCodeMetricsService();
+        metricsService.meterRegistry = new SimpleMeterRegistry();
+        metricsService.init();
+        return metricsService;
+    }
+    
+    static QRCodeResultCache resultCache(QRCodeConfig config) {
+        QRCodeResultCache resultCache = new QRCodeResultCache();
+        resultCache.config = config;
+        resultCache.objectMapper = new ObjectMapper();
+        resultCache.meterRegistry = new SimpleMeterRegistry();
+        resultCache.init();
+        return resultCache;
+    }
+    
+    static DecodedImageCache imageCache(QRCodeConfig config) {
+        DecodedImageCache imageCache = new DecodedImageCache();
+        imageCache.config = config;
+        imageCache.meterRegistry = new SimpleMeterRegistry();
+        imageCache.init();
+        return imageCache;
+    }
+    
+    static AdmissionController admissionController(QRCodeConfig config, QRCodeMetricsService metricsService) {
+        AdmissionController admissionController = new AdmissionController();
+        admissionController.config = config;
+        admissionController.metricsService = metricsService;
+        admissionController.init();
+        return admissionController;
+    }
+    
+    static DetectionExecutor detectionExecutor(QRCodeConfig config, QRCodeMetricsService metricsService) {
+        DetectionExecutor detectionExecutor = new DetectionExecutor();
+        detectionExecutor.config = config;
+        detectionExecutor.metricsService = metricsService;
+        detectionExecutor.init();
+        return detectionExecutor;
+    }
+    
+    static DetectorProfiles detectorProfiles(QRCodeConfig config, QRCodeMetricsService metricsService) {
+        DetectorProfiles detectorProfiles = new DetectorProfiles();
+        detectorProfiles.config = config;
+        detectorProfiles.metricsService = metricsService;
+        detectorProfiles.init();
+        return detectorProfiles;
+    }
+    
+    static TiledDetector tiledDetector(QRCodeConfig config, DetectorProfiles detectorProfiles, DetectionExecutor detectionExecutor) {
+        TiledDetector tiledDetector = new TiledDetector();
+        tiledDetector.config = config;
+        tiledDetector.detectorProfiles = detectorProfiles;
+        tiledDetector.detectionExecutor = detectionExecutor;
+        tiledDetector.init();
+        return tiledDetector;
+    }
+    
+    static SlowRequestSampler slowRequestSampler(QRCodeConfig config) {
+        SlowRequestSampler sampler = new SlowRequestSampler();
+        sampler.config = config;
+        sampler.init();
+        return sampler;
+    }
+    
+    static QRCodeDetectionService detectionService(Map<String, String> overrides) {
+        // 每检测到一个QR码都会输出INFO日志，基准测试中关闭以免干扰结果
+        java.util.logging.Logger.getLogger("cn.lihongjie").setLevel(Level.WARNING);
+        
+        QRCodeDetectionService service = new QRCodeDetectionService();
+        service.metricsService = metricsService();
+        service.config = config(overrides);
+        service.resultCache = resultCache(service.config);
+        service.admissionController = admissionController(service.config, service.metricsService);
+        service.detectionExecutor = detectionExecutor(service.config, service.metricsService);
+        service.detectorProfiles = detectorProfiles(service.config, service.metricsService);
+        service.tiledDetector = tiledDetector(service.config, service.detectorProfiles, service.detectionExecutor);
+        service.imageCache = imageCache(service.config);
+        service.slowRequestSampler = slowRequestSampler(service.config);
+        service.init();
+        return service;
+    }
+}
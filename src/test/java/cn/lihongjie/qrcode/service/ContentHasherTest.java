@@ -0,0 +1,36 @@
+package cn.lihongjie.qrcode.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ContentHasherTest {
+
+    @Test
+    public void testXxHash64MatchesReferenceVectors() {
+        // xxHash 参考实现 XXH64(seed=0) 的结果
+        assertEquals(0xEF46DB3751D8E999L, ContentHasher.xxHash64(bytes(""), 0));
+        assertEquals(0xD24EC4F1A98C6E5BL, ContentHasher.xxHash64(bytes("a"), 0));
+        assertEquals(0x44BC2CF5AD770999L, ContentHasher.xxHash64(bytes("abc"), 0));
+        // 超过32字节，覆盖4路并行的主循环和8/4/1字节的尾部处理
+        assertEquals(0xFBCEA83C8A378BF1L, ContentHasher.xxHash64(bytes("Nobody inspects the spammish repetition"), 0));
+        assertEquals("fbcea83c8a378bf1", ContentHasher.XXHASH64.hash(bytes("Nobody inspects the spammish repetition")));
+    }
+
+    @Test
+    public void testHashCoversOnlyRemainingBytesWithoutMovingPosition() {
+        ByteBuffer buffer = bytes("xxNobody inspects the spammish repetitionyy");
+        buffer.position(2).limit(buffer.limit() - 2);
+
+        assertEquals("fbcea83c8a378bf1", ContentHasher.XXHASH64.hash(buffer));
+        assertEquals(2, buffer.position());
+        assertEquals(ContentHasher.SHA256.hash(bytes("Nobody inspects the spammish repetition")), ContentHasher.SHA256.hash(buffer));
+    }
+
+    private static ByteBuffer bytes(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
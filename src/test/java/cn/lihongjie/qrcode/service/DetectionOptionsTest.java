@@ -0,0 +1,85 @@
+package cn.lihongjie.qrcode.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DetectionOptionsTest {
+
+    @Test
+    public void testContentFilterCombinesPrefixAndPattern() {
+        DetectionOptions options = new DetectionOptions();
+        options.setContentPrefix("PAY:");
+        options.setContentPattern(Pattern.compile("PAY:\\d+"));
+
+        assertTrue(options.accepts("PAY:12345"));
+        assertFalse(options.accepts("PAY:abc"));
+        assertFalse(options.accepts("SHIP:12345"));
+        assertFalse(options.accepts(null));
+        assertTrue(DetectionOptions.defaults().accepts("anything"));
+    }
+
+    @Test
+    public void testMaxCodesLimitsRemaining() {
+        DetectionOptions options = new DetectionOptions();
+        assertFalse(options.isSatisfied(100));
+        assertEquals(Integer.MAX_VALUE, options.remaining(5));
+
+        options.setMaxCodes(1);
+        assertFalse(options.isSatisfied(0));
+        assertTrue(options.isSatisfied(1));
+        assertEquals(0, options.remaining(3));
+    }
+
+    @Test
+    public void testFilterIsPartOfCacheKey() {
+        DetectionOptions options = new DetectionOptions();
+        String unfiltered = options.cacheKey();
+        options.setMaxCodes(1);
+        options.setContentPrefix("PAY:");
+
+        assertEquals("mode=full", unfiltered);
+        assertEquals("mode=full;max=1;prefix=4:PAY:", options.cacheKey());
+    }
+
+    @Test
+    public void testCacheKeyCannotBeForgedThroughFilterValues() {
+        DetectionOptions forged = new DetectionOptions();
+        forged.setContentPrefix("a;pattern=b");
+
+        DetectionOptions filtered = new DetectionOptions();
+        filtered.setContentPrefix("a");
+        filtered.setContentPattern(Pattern.compile("b"));
+
+        assertNotEquals(filtered.cacheKey(), forged.cacheKey());
+    }
+
+    @Test
+    public void testUnsafeContentPatternsAreRejected() {
+        assertEquals("PAY:\\d+", DetectionOptions.compileContentPattern("PAY:\\d+").pattern());
+        DetectionOptions.compileContentPattern("(?:PAY|SHIP):(\\d{3}-)+\\d{4}");
+        DetectionOptions.compileContentPattern("(a+)?");
+
+        assertThrows(IllegalArgumentException.class, () -> DetectionOptions.compileContentPattern("(a+)+$"));
+        assertThrows(IllegalArgumentException.class, () -> DetectionOptions.compileContentPattern("(a|ab)*c"));
+        assertThrows(IllegalArgumentException.class, () -> DetectionOptions.compileContentPattern("(x)\\1"));
+        assertThrows(IllegalArgumentException.class, () -> DetectionOptions.compileContentPattern("[a-"));
+        assertThrows(IllegalArgumentException.class,
+                () -> DetectionOptions.compileContentPattern("a".repeat(DetectionOptions.MAX_PATTERN_LENGTH + 1)));
+    }
+
+    @Test
+    public void testOverlongContentIsNotMatchedAgainstPattern() {
+        DetectionOptions options = new DetectionOptions();
+        options.setContentPattern(DetectionOptions.compileContentPattern("a*"));
+
+        assertTrue(options.accepts("a".repeat(DetectionOptions.MAX_MATCH_CONTENT_LENGTH)));
+        assertFalse(options.accepts("a".repeat(DetectionOptions.MAX_MATCH_CONTENT_LENGTH + 1)));
+    }
+}
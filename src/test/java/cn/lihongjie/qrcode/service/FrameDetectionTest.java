@@ -0,0 +1,98 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.QRCodeInfo;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FrameDetectionTest {
+
+    @Test
+    public void testEachTiffPageIsDetectedWithItsFrameIndex() {
+        QRCodeDetectionService service = BenchmarkServices.detectionService(Map.of());
+        byte[] tiff = QRCodeTestImages.encodeFrames("tiff", "page-0", "page-1");
+
+        QRCodeResult result = service.detectQRCodes(tiff, DetectionOptions.defaults());
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        List<QRCodeInfo> codes = result.getQrCodes();
+        assertEquals(2, codes.size());
+        assertEquals("page-0", codes.get(0).getContent());
+        assertEquals(0, codes.get(0).getFrameIndex());
+        assertEquals("page-1", codes.get(1).getContent());
+        assertEquals(1, codes.get(1).getFrameIndex());
+        assertEquals("tiff", result.getProcessingTime().getImageFormat());
+        assertEquals(2, result.getProcessingTime().getFrameCount());
+        assertEquals(2, result.getProcessingTime().getFramesProcessed());
+    }
+
+    @Test
+    public void testGifFramesAreDetected() {
+        QRCodeDetectionService service = BenchmarkServices.detectionService(Map.of());
+        byte[] gif = QRCodeTestImages.encodeFrames("gif", "frame-0", "frame-1");
+
+        QRCodeResult result = service.detectQRCodes(gif, DetectionOptions.defaults());
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals(2, result.getCount());
+        assertEquals(0, result.getQrCodes().get(0).getFrameIndex());
+        assertEquals(1, result.getQrCodes().get(1).getFrameIndex());
+    }
+
+    @Test
+    public void testFramesBeyondMaxFramesAreIgnored() {
+        QRCodeDetectionService service = BenchmarkServices.detectionService(Map.of("qrcode.frames.max-frames", "1"));
+        byte[] tiff = QRCodeTestImages.encodeFrames("tiff", "page-0", "page-1");
+
+        QRCodeResult result = service.detectQRCodes(tiff, DetectionOptions.defaults());
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals(1, result.getCount());
+        assertEquals("page-0", result.getQrCodes().get(0).getContent());
+        assertEquals(0, result.getQrCodes().get(0).getFrameIndex());
+        assertEquals(2, result.getProcessingTime().getFrameCount());
+        assertEquals(1, result.getProcessingTime().getFramesProcessed());
+    }
+
+    @Test
+    public void testEarlyExitReportsEstimatedSavedTime() {
+        // 逐帧顺序检测，第一帧找到QR码后第二帧被跳过
+        QRCodeDetectionService service = BenchmarkServices.detectionService(Map.of("qrcode.frames.parallelism", "1"));
+        byte[] tiff = QRCodeTestImages.encodeFrames("tiff", "page-0", "page-1");
+        DetectionOptions options = new DetectionOptions();
+        options.setMaxCodes(1);
+
+        QRCodeResult result = service.detectQRCodes(tiff, options);
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals(1, result.getCount());
+        assertEquals(Boolean.TRUE, result.getProcessingTime().getEarlyExit());
+        assertEquals(1, result.getProcessingTime().getFramesProcessed());
+        assertNotNull(result.getProcessingTime().getEstimatedSavedTimeMs());
+        assertTrue(result.getProcessingTime().getEstimatedSavedTimeMs() >= 0);
+    }
+
+    @Test
+    public void testFramesTakeAdmissionPermitsOneAtATime() {
+        // 并发上限为1时，两个帧工作线程依次获取许可，请求结束后许可全部归还
+        QRCodeDetectionService service = BenchmarkServices.detectionService(Map.of(
+                "qrcode.admission.enabled", "true",
+                "qrcode.admission.adaptive", "false",
+                "qrcode.admission.initial-limit", "1",
+                "qrcode.frames.parallelism", "2"));
+        byte[] tiff = QRCodeTestImages.encodeFrames("tiff", "page-0", "page-1");
+
+        QRCodeResult result = service.detectQRCodes(tiff, DetectionOptions.defaults());
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals(2, result.getCount());
+        assertEquals(0, service.admissionController.getInFlight());
+        assertNotNull(result.getProcessingTime().getStages().get(DetectionStage.ADMISSION_WAIT.getName()));
+    }
+}
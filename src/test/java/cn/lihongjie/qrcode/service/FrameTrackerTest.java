@@ -0,0 +1,85 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+public class FrameTrackerTest {
+
+    @Inject
+    QRCodeTrackingService trackingService;
+
+    @Test
+    public void testPushesOnlyWhenContentsChange() throws Exception {
+        BufferedImage first = QRCodeTestImages.render("frame-one");
+        try (FrameTracker tracker = trackingService.open()) {
+            QRCodeResult result = tracker.process(grayFrame(first));
+            assertNotNull(result);
+            assertTrue(result.isSuccess(), result.getMessage());
+            assertEquals("frame-one", result.getQrCodes().get(0).getContent());
+            assertEquals(1, result.getQrCodes().get(0).getFrameIndex());
+
+            // 画面未变化，不推送
+            assertNull(tracker.process(grayFrame(first)));
+
+            // 图片帧与灰度帧混用，内容相同也不推送
+            assertNull(tracker.process(ByteBuffer.wrap(QRCodeTestImages.toBytes(first, "png"))));
+
+            BufferedImage second = QRCodeTestImages.render("frame-two");
+            QRCodeResult changed = tracker.process(grayFrame(second));
+            assertNotNull(changed);
+            assertEquals("frame-two", changed.getQrCodes().get(0).getContent());
+        }
+    }
+
+    @Test
+    public void testRejectsTruncatedGrayFrame() {
+        ByteBuffer frame = ByteBuffer.allocate(FrameTracker.GRAY_HEADER_SIZE + 10);
+        frame.put("GRAY".getBytes(StandardCharsets.US_ASCII)).putInt(100).putInt(100).rewind();
+        try (FrameTracker tracker = trackingService.open()) {
+            assertThrows(IllegalArgumentException.class, () -> tracker.process(frame));
+        }
+    }
+
+    @Test
+    public void testRejectsSessionsBeyondLimit() {
+        QRCodeTrackingService limited = new QRCodeTrackingService();
+        limited.config = BenchmarkServices.config(Map.of("qrcode.tracking.max-sessions", "1"));
+
+        FrameTracker first = limited.open();
+        assertNotNull(first);
+        assertNull(limited.open());
+        assertEquals(1, limited.getActiveSessions());
+
+        first.close();
+        try (FrameTracker reopened = limited.open()) {
+            assertNotNull(reopened);
+        }
+    }
+
+    private static ByteBuffer grayFrame(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        ByteBuffer frame = ByteBuffer.allocate(FrameTracker.GRAY_HEADER_SIZE + width * height);
+        frame.put("GRAY".getBytes(StandardCharsets.US_ASCII)).putInt(width).putInt(height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                frame.put((byte) image.getRaster().getSample(x, y, 0));
+            }
+        }
+        return frame.rewind();
+    }
+}
@@ -0,0 +1,59 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+public class QRCodeAsyncDetectionServiceTest {
+
+    @Inject
+    QRCodeAsyncDetectionService qrCodeAsyncDetectionService;
+
+    @Inject
+    QRCodeDetectionService qrCodeDetectionService;
+
+    @Test
+    public void testAsyncDetectionReturnsContent() throws Exception {
+        byte[] image = QRCodeTestImages.encode("async-detection", "png");
+
+        QRCodeResult result = qrCodeAsyncDetectionService.detectQRCodes(ByteBuffer.wrap(image), DetectionOptions.defaults())
+                .await().atMost(Duration.ofMinutes(1));
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals("async-detection", result.getQrCodes().get(0).getContent());
+    }
+
+    @Test
+    public void testProfileUsesItsOwnDetector() {
+        byte[] image = QRCodeTestImages.encode("fast-profile", "png");
+        DetectionOptions options = new DetectionOptions();
+        options.setProfile("fast");
+
+        QRCodeResult result = qrCodeDetectionService.detectQRCodes(image, options);
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals("fast-profile", result.getQrCodes().get(0).getContent());
+        assertEquals("fast", result.getProcessingTime().getDetectorProfile());
+    }
+
+    @Test
+    public void testCancelledRequestSkipsDetection() throws Exception {
+        byte[] image = QRCodeTestImages.encode("cancelled", "png");
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        QRCodeResult result = qrCodeDetectionService.detectQRCodes(ByteBuffer.wrap(image), DetectionOptions.defaults(), token);
+
+        assertFalse(result.isSuccess());
+        assertEquals("检测已取消", result.getMessage());
+    }
+}
@@ -0,0 +1,76 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.QRCodeBatchResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QRCodeBatchServiceTest {
+
+    @Test
+    public void testOversizedZipEntryFailsOnlyItself() throws IOException {
+        byte[] image = QRCodeTestImages.encode("zip-entry", "png");
+        QRCodeBatchService service = batchService(Map.of(
+                "qrcode.batch.max-entry-bytes", String.valueOf(image.length + 1024),
+                "qrcode.batch.max-archive-bytes", "1073741824"));
+
+        // 高度可压缩的数据：压缩后很小，解压后远超单个文件上限
+        byte[] zip = zip(Map.of(
+                "1.png", image,
+                "2-bomb.png", new byte[16 * 1024 * 1024],
+                "3.png", image));
+        QRCodeBatchResult result = service.detectZip(new ByteArrayInputStream(zip), DetectionOptions.defaults());
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals(3, result.getTotal());
+        assertEquals(2, result.getSucceeded());
+        assertFalse(result.getItems().get(1).getResult().isSuccess());
+        assertTrue(result.getItems().get(1).getResult().getMessage().contains("文件解压后超过上限"));
+        assertEquals("zip-entry", result.getItems().get(2).getResult().getQrCodes().get(0).getContent());
+    }
+
+    @Test
+    public void testArchiveLimitFailsRemainingEntries() throws IOException {
+        byte[] image = QRCodeTestImages.encode("zip-archive", "png");
+        QRCodeBatchService service = batchService(Map.of(
+                "qrcode.batch.max-archive-bytes", String.valueOf(image.length * 2 - 1)));
+
+        byte[] zip = zip(Map.of("1.png", image, "2.png", image, "3.png", image));
+        QRCodeBatchResult result = service.detectZip(new ByteArrayInputStream(zip), DetectionOptions.defaults());
+
+        assertEquals(3, result.getTotal());
+        assertEquals(1, result.getSucceeded());
+        assertTrue(result.getItems().get(0).getResult().isSuccess());
+        assertTrue(result.getItems().get(1).getResult().getMessage().contains("压缩包解压后的总大小超过上限"));
+        assertTrue(result.getItems().get(2).getResult().getMessage().contains("压缩包解压后的总大小超过上限"));
+    }
+
+    private static QRCodeBatchService batchService(Map<String, String> overrides) {
+        QRCodeDetectionService detectionService = BenchmarkServices.detectionService(overrides);
+        QRCodeBatchService service = new QRCodeBatchService();
+        service.qrCodeDetectionService = detectionService;
+        service.config = detectionService.config;
+        service.init();
+        return service;
+    }
+
+    private static byte[] zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (String name : entries.keySet().stream().sorted().toList()) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(entries.get(name));
+            }
+        }
+        return out.toByteArray();
+    }
+}
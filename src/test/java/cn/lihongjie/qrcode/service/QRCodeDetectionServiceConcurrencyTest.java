@@ -0,0 +1,64 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+public class QRCodeDetectionServiceConcurrencyTest {
+
+    private static final int IMAGE_COUNT = 8;
+    private static final int ITERATIONS_PER_THREAD = 12;
+
+    @Inject
+    QRCodeDetectionService qrCodeDetectionService;
+
+    @Test
+    public void testConcurrentDetectionReturnsMatchingContent() throws Exception {
+        String[] contents = new String[IMAGE_COUNT];
+        byte[][] images = new byte[IMAGE_COUNT][];
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            contents[i] = "https://example.com/label/" + i + "?payload=" + "x".repeat(i * 7);
+            images[i] = QRCodeTestImages.encode(contents[i], "png");
+        }
+
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ITERATIONS_PER_THREAD; i++) {
+                        int index = (offset + i) % IMAGE_COUNT;
+                        QRCodeResult result = qrCodeDetectionService.detectQRCodes(images[index]);
+                        assertTrue(result.isSuccess(), result.getMessage());
+                        assertEquals(1, result.getCount());
+                        assertEquals(contents[index], result.getQrCodes().get(0).getContent());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
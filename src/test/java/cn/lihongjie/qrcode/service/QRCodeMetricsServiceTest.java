@@ -0,0 +1,125 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.ProcessingTime;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class QRCodeMetricsServiceTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS_PER_THREAD = 10_000;
+
+    @Test
+    public void testConcurrentRecordingIsExact() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QRCodeMetricsService metricsService = new QRCodeMetricsService();
+        metricsService.meterRegistry = registry;
+        metricsService.init();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ITERATIONS_PER_THREAD; i++) {
+                        metricsService.recordFileSize(1000);
+                        metricsService.recordImageDimensions(1000, 1000);
+                        metricsService.incrementQrCodesDetected(2);
+                        metricsService.incrementDetectionCancelled(QRCodeDetectionService.STAGE_DECODE);
+                        // 未预先注册的检测配置在并发的第一次使用时只注册一次
+                        metricsService.recordProfileDetection("unregistered", 1000);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long total = (long) THREADS * ITERATIONS_PER_THREAD;
+
+        DistributionSummary fileSize = registry.get("qrcode.image.size.bytes").summary();
+        assertEquals(total, fileSize.count());
+        assertEquals(total * 1000.0, fileSize.totalAmount());
+
+        DistributionSummary megapixels = registry.get("qrcode.image.megapixels").summary();
+        assertEquals(total, megapixels.count());
+        assertEquals((double) total, megapixels.totalAmount());
+
+        DistributionSummary codes = registry.get("qrcode.image.codes").summary();
+        assertEquals(total, codes.count());
+        assertEquals(total * 2.0, codes.totalAmount());
+        assertEquals(total, bucketCount(codes, 2), "SLO分桶 le=2 应包含全部记录");
+        assertEquals(0, bucketCount(codes, 1));
+
+        assertEquals(total * 2.0, registry.get("qrcode.detected.total").counter().count());
+        assertEquals((double) total, registry.get("qrcode.detection.cancelled.total").tag("stage", "decode").counter().count());
+        assertEquals(total, registry.get("qrcode.detection.profile.duration").tag("profile", "unregistered").timer().count());
+    }
+
+    @Test
+    public void testTaggedMetersArePreRegistered() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QRCodeMetricsService metricsService = new QRCodeMetricsService();
+        metricsService.meterRegistry = registry;
+        metricsService.init();
+
+        assertEquals(4, registry.get("qrcode.detection.cancelled.total").counters().size());
+        assertEquals(2, registry.get("qrcode.pixel.budget.exceeded.total").counters().size());
+        assertEquals(5, registry.get("qrcode.tracking.frames.total").counters().size());
+        assertNotNull(registry.find("qrcode.pixel.budget.exceeded.total").tag("policy", "downsample").counter());
+    }
+
+    @Test
+    public void testStagesAreRecordedInMicrosecondsBySizeClass() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QRCodeMetricsService metricsService = new QRCodeMetricsService();
+        metricsService.meterRegistry = registry;
+        metricsService.init();
+
+        ProcessingTime processingTime = new ProcessingTime();
+        processingTime.setImageWidth(4000);
+        processingTime.setImageHeight(3000);
+        processingTime.addStage(DetectionStage.DECODE.getName(), 2_500_000);
+        processingTime.addStage(DetectionStage.DECODE.getName(), 2_500_000);
+        processingTime.addStage(DetectionStage.DETECTION.getName(), 40_000);
+        metricsService.recordStages(processingTime);
+
+        assertEquals(5_000L, processingTime.getStages().get("decode"));
+        assertEquals(40L, processingTime.getStages().get("detection"));
+
+        Timer decode = registry.get("qrcode.stage.duration").tag("stage", "decode").tag("size", "over_12mp").timer();
+        assertEquals(1, decode.count());
+        assertEquals(5.0, decode.totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(0, registry.get("qrcode.stage.duration").tag("stage", "decode").tag("size", "under_1mp").timer().count());
+    }
+
+    private static double bucketCount(DistributionSummary summary, double bound) {
+        for (CountAtBucket bucket : summary.takeSnapshot().histogramCounts()) {
+            if (bucket.bucket() == bound) {
+                return bucket.count();
+            }
+        }
+        throw new AssertionError("没有上界为 " + bound + " 的分桶");
+    }
+}
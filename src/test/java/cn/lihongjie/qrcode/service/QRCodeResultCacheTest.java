@@ -0,0 +1,69 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.ProcessingTime;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QRCodeResultCacheTest {
+
+    @Test
+    public void testHitMissAndBypass() {
+        QRCodeDetectionService service = BenchmarkServices.detectionService(Map.of("qrcode.cache.enabled", "true"));
+        byte[] image = QRCodeTestImages.encode("cached-label", "png");
+
+        QRCodeResult miss = service.detectQRCodes(image, DetectionOptions.defaults());
+        assertTrue(miss.isSuccess(), miss.getMessage());
+        assertEquals(Boolean.FALSE, miss.getProcessingTime().getCacheHit());
+        assertFalse(miss.getProcessingTime().getStages().isEmpty());
+
+        // 命中时不返回原请求的阶段耗时，只保留图片信息
+        QRCodeResult hit = service.detectQRCodes(image, DetectionOptions.defaults());
+        ProcessingTime hitTime = hit.getProcessingTime();
+        assertEquals(Boolean.TRUE, hitTime.getCacheHit());
+        assertEquals("cached-label", hit.getQrCodes().get(0).getContent());
+        assertNull(hitTime.getStages());
+        assertEquals(0, hitTime.getImageLoadTimeMs());
+        assertEquals(0, hitTime.getDetectionTimeMs());
+        assertEquals("png", hitTime.getImageFormat());
+        assertEquals(miss.getProcessingTime().getImageWidth(), hitTime.getImageWidth());
+        assertEquals(image.length, hitTime.getFileSizeBytes());
+
+        // 检测选项是缓存键的一部分：相同图片、不同选项不会命中
+        DetectionOptions coarse = new DetectionOptions();
+        coarse.setMode(DetectionMode.COARSE);
+        assertEquals(Boolean.FALSE, service.detectQRCodes(image, coarse).getProcessingTime().getCacheHit());
+        assertEquals(Boolean.TRUE, service.detectQRCodes(image, coarse).getProcessingTime().getCacheHit());
+
+        DetectionOptions limited = new DetectionOptions();
+        limited.setMaxCodes(1);
+        assertEquals(Boolean.FALSE, service.detectQRCodes(image, limited).getProcessingTime().getCacheHit());
+
+        // 绕过缓存时既不查询也不标记
+        DetectionOptions bypass = new DetectionOptions();
+        bypass.setCacheBypass(true);
+        QRCodeResult bypassed = service.detectQRCodes(image, bypass);
+        assertTrue(bypassed.isSuccess());
+        assertNull(bypassed.getProcessingTime().getCacheHit());
+        assertNotNull(bypassed.getProcessingTime().getStages());
+    }
+
+    @Test
+    public void testKeyIncludesOptions() {
+        QRCodeResultCache cache = BenchmarkServices.resultCache(BenchmarkServices.config(Map.of("qrcode.cache.enabled", "true")));
+        ByteBuffer image = ByteBuffer.wrap(QRCodeTestImages.encode("cache-key", "png"));
+
+        DetectionOptions fast = new DetectionOptions();
+        fast.setProfile("fast");
+        assertEquals(cache.key(image, DetectionOptions.defaults()), cache.key(image, new DetectionOptions()));
+        assertFalse(cache.key(image, DetectionOptions.defaults()).equals(cache.key(image, fast)));
+    }
+}
@@ -0,0 +1,98 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.alg.fiducial.qrcode.QrCode;
+import boofcv.alg.fiducial.qrcode.QrCodeEncoder;
+import boofcv.alg.fiducial.qrcode.QrCodeGeneratorImage;
+import boofcv.struct.image.GrayU8;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * 测试用QR码图片生成工具
+ */
+public final class QRCodeTestImages {
+
+    private static final int PIXELS_PER_MODULE = 6;
+    private static final int MARGIN = 40;
+
+    private QRCodeTestImages() {
+    }
+
+    /**
+     * 生成包含单个QR码的灰度图片
+     */
+    public static BufferedImage render(String content) {
+        QrCode qr = new QrCodeEncoder().addAutomatic(content).fixate();
+        QrCodeGeneratorImage generator = new QrCodeGeneratorImage(PIXELS_PER_MODULE);
+        generator.render(qr);
+        GrayU8 gray = generator.getGray();
+
+        BufferedImage image = new BufferedImage(gray.width + MARGIN * 2, gray.height + MARGIN * 2,
+                BufferedImage.TYPE_BYTE_GRAY);
+        WritableRaster raster = image.getRaster();
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                raster.setSample(x, y, 0, 255);
+            }
+        }
+        for (int y = 0; y < gray.height; y++) {
+            for (int x = 0; x < gray.width; x++) {
+                raster.setSample(x + MARGIN, y + MARGIN, 0, gray.get(x, y));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * 生成包含单个QR码的图片文件字节
+     */
+    public static byte[] encode(String content, String format) {
+        return toBytes(render(content), format);
+    }
+
+    /**
+     * 生成多帧图片（TIFF多页、GIF动画），每一帧包含一个QR码
+     */
+    public static byte[] encodeFrames(String format, String... contents) {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IllegalArgumentException("不支持的图片格式: " + format);
+        }
+        ImageWriter writer = writers.next();
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+                writer.setOutput(stream);
+                writer.prepareWriteSequence(null);
+                for (String content : contents) {
+                    writer.writeToSequence(new IIOImage(render(content), null, null), null);
+                }
+                writer.endWriteSequence();
+            } finally {
+                writer.dispose();
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static byte[] toBytes(BufferedImage image, String format) {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            if (!ImageIO.write(image, format, out)) {
+                throw new IllegalArgumentException("不支持的图片格式: " + format);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
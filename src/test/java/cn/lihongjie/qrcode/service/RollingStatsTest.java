@@ -0,0 +1,110 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.WindowPoint;
+import cn.lihongjie.qrcode.model.WindowStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RollingStatsTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void testWindowsExpireOldBuckets() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        RollingStats stats = new RollingStats(now::get);
+
+        // 第1秒：100个请求，其中10个失败；20秒后：50个请求
+        for (int i = 0; i < 100; i++) {
+            stats.record((i + 1) * MS, i < 10);
+        }
+        now.addAndGet(20_000);
+        for (int i = 0; i < 50; i++) {
+            stats.record(5 * MS, false);
+        }
+
+        List<WindowStats> windows = stats.windows();
+        WindowStats tenSeconds = windows.get(0);
+        WindowStats oneMinute = windows.get(1);
+        assertEquals("10s", tenSeconds.getWindow());
+        assertEquals(50, tenSeconds.getRequests());
+        assertEquals(0, tenSeconds.getErrors());
+        assertEquals(5.0, tenSeconds.getP99Ms(), 0.001);
+
+        // 1分钟窗口包含两批请求，时长从开始统计算起（20秒）
+        assertEquals(150, oneMinute.getRequests());
+        assertEquals(10, oneMinute.getErrors());
+        assertEquals(20.0, oneMinute.getSpanSeconds(), 0.001);
+        assertEquals(7.5, oneMinute.getRps(), 0.001);
+        assertEquals(10.0 / 150, oneMinute.getErrorRate(), 1e-9);
+        assertEquals(100.0, oneMinute.getMaxMs(), 0.001);
+
+        // 2分钟后1分钟窗口已清空，5分钟窗口仍保留
+        now.addAndGet(120_000);
+        windows = stats.windows();
+        assertEquals(0, windows.get(1).getRequests());
+        assertEquals(0.0, windows.get(1).getP99Ms());
+        assertEquals(150, windows.get(2).getRequests());
+        assertEquals(150, windows.get(3).getRequests());
+    }
+
+    @Test
+    public void testResetClearsWindows() {
+        AtomicLong now = new AtomicLong(5_000);
+        RollingStats stats = new RollingStats(now::get);
+        stats.record(10 * MS, true);
+
+        stats.reset();
+
+        for (WindowStats window : stats.windows()) {
+            assertEquals(0, window.getRequests());
+            assertEquals(0, window.getErrors());
+        }
+        now.addAndGet(500);
+        stats.record(10 * MS, false);
+        assertEquals(1, stats.windows().get(3).getRequests());
+    }
+
+    @Test
+    public void testSeriesHasOnePointPerSecond() {
+        AtomicLong now = new AtomicLong(100_000);
+        RollingStats stats = new RollingStats(now::get);
+        stats.record(2 * MS, false);
+        now.addAndGet(3_000);
+        stats.record(4 * MS, false);
+        stats.record(4 * MS, true);
+
+        List<WindowPoint> series = stats.series();
+        assertEquals(60, series.size());
+        WindowPoint last = series.get(59);
+        assertEquals(103_000, last.getTime());
+        assertEquals(2, last.getRequests());
+        assertEquals(1, last.getErrors());
+        assertEquals(1, series.get(56).getRequests());
+        assertEquals(0, series.get(57).getRequests());
+    }
+
+    @Test
+    public void testHistogramPercentileRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros);
+        }
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+        histogram.addTo(snapshot);
+
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000, snapshot.getMax());
+        for (double quantile : new double[]{0.5, 0.95, 0.99, 0.999}) {
+            double expected = quantile * 100_000;
+            double actual = snapshot.percentile(quantile);
+            assertTrue(actual >= expected && actual <= expected * (1 + 1.0 / 32),
+                    "p" + quantile + " = " + actual + ", 期望约 " + expected);
+        }
+    }
+}
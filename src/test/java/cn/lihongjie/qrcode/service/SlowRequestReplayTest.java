@@ -0,0 +1,75 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import cn.lihongjie.qrcode.model.SlowRequestSample;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 重放 /admin/slow-requests/export 导出的慢请求样本
+ *
+ * 未指定导出文件时跳过：
+ * ./mvnw test -Dtest=SlowRequestReplayTest -Dreplay.archive=slow-requests.zip [-Dreplay.iterations=5]
+ */
+@QuarkusTest
+public class SlowRequestReplayTest {
+
+    private static final Logger LOG = Logger.getLogger(SlowRequestReplayTest.class);
+
+    @Inject
+    QRCodeDetectionService qrCodeDetectionService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Test
+    public void testReplaySlowRequests() throws Exception {
+        String archive = System.getProperty("replay.archive");
+        assumeTrue(archive != null && !archive.isBlank(), "未指定 -Dreplay.archive，跳过慢请求重放");
+        int iterations = Integer.getInteger("replay.iterations", 5);
+        assertTrue(iterations >= 1, "-Dreplay.iterations 必须大于等于1: " + iterations);
+
+        List<SlowRequestSampler.Sample> samples = SlowRequestArchive.read(Path.of(archive), objectMapper);
+        for (SlowRequestSampler.Sample sample : samples) {
+            SlowRequestSample metadata = sample.getMetadata();
+            if (sample.getImage() == null) {
+                LOG.info("#" + metadata.getId() + " 没有保存图片, 跳过");
+                continue;
+            }
+            DetectionOptions options = SlowRequestSampler.options(metadata);
+
+            // 第一次检测用于预热，不计入耗时
+            QRCodeResult result = qrCodeDetectionService.detectQRCodes(sample.getImage(), options);
+            double[] millis = new double[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                result = qrCodeDetectionService.detectQRCodes(sample.getImage(), options);
+                millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+            }
+            Arrays.sort(millis);
+
+            LOG.infof("#%d %s %dx%d mode=%s profile=%s: 采样 %.1fms, 重放中位数 %.1fms, 最大 %.1fms",
+                    metadata.getId(), metadata.getImageFormat(), metadata.getImageWidth(), metadata.getImageHeight(),
+                    metadata.getMode(), metadata.getProfile(), metadata.getTotalTimeMs(), millis[iterations / 2], millis[iterations - 1]);
+            LOG.info("    采样阶段耗时(µs): " + metadata.getStages());
+            LOG.info("    重放阶段耗时(µs): " + (result.getProcessingTime() != null ? result.getProcessingTime().getStages() : null));
+
+            // 采样时检测成功的请求，重放结果应当一致
+            if (metadata.isSuccess()) {
+                assertTrue(result.isSuccess(), "#" + metadata.getId() + ": " + result.getMessage());
+                assertEquals(metadata.getCount(), result.getCount(), "#" + metadata.getId() + " QR码数量");
+            }
+        }
+    }
+}
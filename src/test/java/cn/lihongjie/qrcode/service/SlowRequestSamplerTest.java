@@ -0,0 +1,105 @@
+package cn.lihongjie.qrcode.service;
+
+import cn.lihongjie.qrcode.config.QRCodeConfig;
+import cn.lihongjie.qrcode.model.ProcessingTime;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import cn.lihongjie.qrcode.model.SlowRequestSample;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.config.SmallRyeConfigBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlowRequestSamplerTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void testOnlySlowRequestsAreKeptInBoundedRing() {
+        SlowRequestSampler sampler = sampler(Map.of("qrcode.slow-requests.max-image-bytes", "4"));
+        DetectionOptions options = DetectionOptions.defaults();
+
+        sampler.record(ImageSource.of(ByteBuffer.wrap(new byte[]{1, 2, 3})), options, null, new ProcessingTime(), 5 * MS);
+        assertTrue(sampler.list().isEmpty());
+
+        for (int i = 1; i <= 3; i++) {
+            byte[] image = new byte[i + 2];
+            sampler.record(ImageSource.of(ByteBuffer.wrap(image)), options, new QRCodeResult(false, "失败" + i),
+                    new ProcessingTime(), (10 + i) * MS);
+        }
+
+        // 容量为2，第1个样本已被覆盖；第3个样本的图片超过4字节，只记录哈希
+        List<SlowRequestSample> samples = sampler.list();
+        assertEquals(2, samples.size());
+        assertEquals(3, samples.get(0).getId());
+        assertEquals(2, samples.get(1).getId());
+        assertNull(sampler.get(1));
+        assertEquals(4, sampler.get(2).getImage().length);
+        assertTrue(sampler.get(2).getMetadata().isImageCaptured());
+        assertNull(sampler.get(3).getImage());
+        assertFalse(samples.get(0).isImageCaptured());
+        assertEquals(64, samples.get(0).getImageSha256().length());
+        assertEquals(13.0, samples.get(0).getTotalTimeMs(), 0.001);
+        assertEquals("失败3", samples.get(0).getMessage());
+    }
+
+    @Test
+    public void testArchiveRoundTripRestoresOptions() throws Exception {
+        SlowRequestSampler sampler = sampler(Map.of());
+        DetectionOptions options = new DetectionOptions();
+        options.setMode(DetectionMode.COARSE);
+        options.setProfile("fast");
+        options.setMaxCodes(2);
+        options.setContentPattern(Pattern.compile("PAY:\\d+"));
+        ProcessingTime processingTime = new ProcessingTime();
+        processingTime.addStage(DetectionStage.DECODE.getName(), 30 * MS);
+        byte[] image = {9, 8, 7, 6};
+
+        sampler.record(ImageSource.of(ByteBuffer.wrap(image)), options, null, processingTime, 50 * MS);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SlowRequestArchive.write(sampler.snapshot(), objectMapper, out);
+        List<SlowRequestSampler.Sample> samples = SlowRequestArchive.read(new ByteArrayInputStream(out.toByteArray()), objectMapper);
+
+        assertEquals(1, samples.size());
+        assertArrayEquals(image, samples.get(0).getImage());
+        SlowRequestSample metadata = samples.get(0).getMetadata();
+        assertFalse(metadata.isSuccess());
+        assertEquals(30_000L, metadata.getStages().get("decode"));
+
+        DetectionOptions replay = SlowRequestSampler.options(metadata);
+        assertEquals(options.cacheKey(), replay.cacheKey());
+        assertTrue(replay.isCacheBypass());
+    }
+
+    private static SlowRequestSampler sampler(Map<String, String> overrides) {
+        Map<String, String> properties = new HashMap<>(Map.of(
+                "qrcode.slow-requests.enabled", "true",
+                "qrcode.slow-requests.capture-images", "true",
+                "qrcode.slow-requests.threshold", "PT0.01S",
+                "qrcode.slow-requests.capacity", "2"));
+        properties.putAll(overrides);
+        SlowRequestSampler sampler = new SlowRequestSampler();
+        sampler.config = new SmallRyeConfigBuilder()
+                .addDiscoveredConverters()
+                .withMapping(QRCodeConfig.class)
+                .withDefaultValues(properties)
+                .build()
+                .getConfigMapping(QRCodeConfig.class);
+        sampler.init();
+        return sampler;
+    }
+}
@@ -0,0 +1,81 @@
+package cn.lihongjie.qrcode.service;
+
+import boofcv.alg.fiducial.qrcode.QrCode;
+import cn.lihongjie.qrcode.model.QRCodeInfo;
+import cn.lihongjie.qrcode.model.QRCodeResult;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TiledDetectorTest {
+
+    @Test
+    public void testLayoutCoversImageWithOverlap() {
+        List<Rectangle> tiles = TiledDetector.layout(3000, 1000, 1536, 384);
+
+        assertEquals(3, tiles.size());
+        assertEquals(new Rectangle(0, 0, 1536, 1000), tiles.get(0));
+        assertEquals(new Rectangle(1152, 0, 1536, 1000), tiles.get(1));
+        // 最后一块与右边缘对齐
+        assertEquals(new Rectangle(1464, 0, 1536, 1000), tiles.get(2));
+    }
+
+    @Test
+    public void testDeduplicateKeepsDistinctPositions() {
+        QrCode first = code("label-1", 1200, 100, 200);
+        QrCode duplicate = code("label-1", 1201, 101, 199);
+        QrCode samePayloadElsewhere = code("label-1", 2500, 100, 200);
+        QrCode other = code("label-2", 1200, 100, 200);
+
+        List<QrCode> unique = TiledDetector.deduplicate(List.of(first, duplicate, samePayloadElsewhere, other));
+
+        assertEquals(List.of(first, samePayloadElsewhere, other), unique);
+    }
+
+    @Test
+    public void testTilesRunOnDetectionThreadsWithPooledDetectors() {
+        QRCodeDetectionService service = BenchmarkServices.detectionService(Map.of(
+                "qrcode.tiled.tile-size", "320",
+                "qrcode.tiled.overlap", "160",
+                "qrcode.execution.detection-threads", "2"));
+        BufferedImage left = QRCodeTestImages.render("tile-left");
+        BufferedImage right = QRCodeTestImages.render("tile-right");
+        BufferedImage image = new BufferedImage(left.getWidth() + right.getWidth(),
+                Math.max(left.getHeight(), right.getHeight()), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.drawImage(left, 0, 0, null);
+        graphics.drawImage(right, left.getWidth(), 0, null);
+        graphics.dispose();
+        DetectionOptions options = new DetectionOptions();
+        options.setMode(DetectionMode.TILED);
+
+        QRCodeResult result = service.detectQRCodes(QRCodeTestImages.toBytes(image, "png"), options);
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals("tiled", result.getProcessingTime().getDetectionMode());
+        assertTrue(result.getProcessingTime().getTiles() > 1);
+        assertEquals(List.of("tile-left", "tile-right"), result.getQrCodes().stream().map(QRCodeInfo::getContent).sorted().toList());
+        // 分块借用的检测器全部归还到检测器池
+        assertEquals(0, service.detectorProfiles.pool(null).getBorrowedCount());
+    }
+
+    private static QrCode code(String message, double x, double y, double size) {
+        QrCode code = new QrCode();
+        code.message = message;
+        code.bounds.get(0).setTo(x, y);
+        code.bounds.get(1).setTo(x + size, y);
+        code.bounds.get(2).setTo(x + size, y + size);
+        code.bounds.get(3).setTo(x, y + size);
+        return code;
+    }
+}